@@ -0,0 +1,76 @@
+package com.example.myapplication.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts how many times the SQLite file is opened per HomeFragment.loadExpenses() data fetch
+ * (one session lookup plus one expense read), on a database of its own.
+ *
+ * "Legacy" replays the old behaviour where every DatabaseHelper call closed the connection
+ * afterwards and is logged for comparison only; "shared" keeps one helper open, as the
+ * process-wide instance does, and must not reopen the file at all.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConnectionBenchmark {
+    private static final String TAG = "DbConnectionBenchmark";
+    private static final String DB_NAME = "connection_benchmark.db";
+    private static final int LOADS = 50;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = new DatabaseHelper(context, DB_NAME);
+        userId = (int) helper.signup("bench", "secret", "rex");
+        assertTrue(userId > 0);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(helper.addExpense(userId, "Food", 10 + i, "note " + i, 20150L, null) > 0);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void connectionOpensPerLoadExpenses() {
+        // Legacy: each helper call ended with db.close()
+        int before = DatabaseHelper.getConnectionOpenCount();
+        for (int i = 0; i < LOADS; i++) {
+            helper.checkUserExists(userId);
+            helper.close();
+            helper.getExpenses(userId);
+            helper.close();
+        }
+        double legacyPerLoad = (DatabaseHelper.getConnectionOpenCount() - before) / (double) LOADS;
+
+        // Shared: the connection stays open across the whole screen load
+        helper.getExpenses(userId); // first use opens the connection
+        before = DatabaseHelper.getConnectionOpenCount();
+        for (int i = 0; i < LOADS; i++) {
+            assertTrue(helper.checkUserExists(userId));
+            assertEquals(20, helper.getExpenses(userId).size());
+        }
+        double sharedPerLoad = (DatabaseHelper.getConnectionOpenCount() - before) / (double) LOADS;
+
+        Log.i(TAG, "connection opens per loadExpenses(): legacy=" + legacyPerLoad + ", shared=" + sharedPerLoad);
+        assertEquals(0.0, sharedPerLoad, 0.0);
+    }
+}
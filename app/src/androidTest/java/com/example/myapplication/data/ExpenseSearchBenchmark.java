@@ -0,0 +1,221 @@
+package com.example.myapplication.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpenseQuery;
+import com.example.myapplication.utils.DateUtils;
+import com.example.myapplication.utils.Money;
+import com.example.myapplication.utils.SearchText;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the Home search bar's old linear filter (every note, category, amount and date
+ * lowercased or formatted on each keystroke) with the full-text index at 100k expenses.
+ * Timings are logged under "ExpenseSearchBenchmark".
+ *
+ * The notes are built from words that never contain one another, so a prefix query and the old
+ * substring filter select the same rows and the result counts can be compared.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseSearchBenchmark {
+    private static final String TAG = "ExpenseSearchBenchmark";
+    private static final String DB_NAME = "search_benchmark.db";
+    private static final int ROWS = 100_000;
+    private static final int RUNS = 5;
+
+    private static final String[] WORDS = {"groceries", "taxi", "rent", "coffee", "lunch", "movie",
+            "pharmacy", "gym", "books", "parking"};
+    private static final String[] CATEGORIES = {"Food", "Transport", "Shopping", "Bills", "Entertainment", "Others"};
+    // A word on few enough rows that its matches fit under the result limit
+    private static final String RARE_WORD = "quinoa";
+    private static final int RARE_EVERY = 500;
+    private static final String[] QUERIES = {"gro", "coffee", "park", "taxi lunch", "transport"};
+
+    private Context context;
+    private DatabaseHelper helper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = new DatabaseHelper(context, DB_NAME);
+        userId = (int) helper.signup("bench", "secret", "rex");
+        assertTrue(userId > 0);
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                String note = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length];
+                if (i % RARE_EVERY == 0) note += " " + RARE_WORD;
+                helper.addExpense(userId, CATEGORIES[i % CATEGORIES.length], i % 5000 + 100, note,
+                        20000L + i % 365, null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void fullTextSearchVersusLinearFilter() {
+        List<Expense> history = helper.getExpenses(userId);
+        assertEquals(ROWS, history.size());
+
+        for (String query : QUERIES) {
+            long linearNs = Long.MAX_VALUE, ftsNs = Long.MAX_VALUE;
+            int linearCount = 0, ftsCount = 0;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                linearCount = linearFilter(history, query).size();
+                linearNs = Math.min(linearNs, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                ftsCount = search(query, Integer.MAX_VALUE).size();
+                ftsNs = Math.min(ftsNs, System.nanoTime() - start);
+            }
+            Log.i(TAG, "rows=" + ROWS + " query=\"" + query + "\" matches=" + ftsCount +
+                    " linear=" + linearNs / 1_000_000 + " ms, fts=" + ftsNs / 1_000_000 + " ms");
+            if (!query.contains(" ")) {
+                // The old filter treated the whole query as one substring, so only single words compare
+                assertEquals(query, linearCount, ftsCount);
+            }
+        }
+
+        // What the screen actually shows: the best matches, loaded as rows
+        long start = System.nanoTime();
+        List<Expense> shown = search("coffee", 500);
+        Log.i(TAG, "findExpenses(\"coffee\", 500)=" + (System.nanoTime() - start) / 1_000_000 + " ms");
+        assertEquals(500, shown.size());
+    }
+
+    @Test
+    public void narrowingVersusRequeryPerKeystroke() {
+        // Typing a rare word one character at a time, with at most 500 results shown as on Home
+        String word = RARE_WORD;
+        int limit = 500;
+        long requeryNs = 0, narrowNs = 0;
+        List<Expense> previous = null;
+        for (int i = 1; i <= word.length(); i++) {
+            String query = word.substring(0, i);
+
+            long start = System.nanoTime();
+            List<Expense> requeried = search(query, limit);
+            requeryNs += System.nanoTime() - start;
+
+            // SearchPipeline: narrow the previous results when they were complete, otherwise query
+            start = System.nanoTime();
+            List<Expense> narrowed;
+            if (previous != null && previous.size() < limit) {
+                narrowed = new ArrayList<>();
+                for (Expense expense : previous) {
+                    if (SearchText.matchesAllPrefixes(query, expense.note, expense.category)) narrowed.add(expense);
+                }
+            } else {
+                narrowed = search(query, limit);
+            }
+            narrowNs += System.nanoTime() - start;
+            previous = narrowed;
+
+            assertEquals(query, requeried.size(), narrowed.size());
+        }
+        Log.i(TAG, "typing \"" + word + "\": requery every keystroke=" + requeryNs / 1_000_000 +
+                " ms, with narrowing=" + narrowNs / 1_000_000 + " ms");
+    }
+
+    @Test
+    public void indexFollowsUpdatesAndDeletes() {
+        long id = helper.addExpense(userId, "Food", 1250, "zucchini soup", 20150L, null);
+        assertEquals(1, search("zucc", 10).size());
+
+        helper.updateExpense(userId, (int) id, "Food", 1250, "tomato soup", 20150L, null);
+        assertTrue(search("zucc", 10).isEmpty());
+        assertEquals((int) id, search("tomato", 10).get(0).id);
+
+        helper.deleteExpense((int) id);
+        assertTrue(search("tomato", 10).isEmpty());
+    }
+
+    @Test
+    public void findExpensesAppliesEveryCondition() {
+        List<Expense> history = helper.getExpenses(userId);
+        Set<Integer> categoryIds = new HashSet<>();
+        categoryIds.add(history.get(0).categoryId);
+        categoryIds.add(history.get(1).categoryId);
+        categoryIds.add(history.get(2).categoryId);
+        ExpenseQuery query = ExpenseQuery.all().between(20100L, 20200L).amountBetween(1000L, 3000L)
+                .inCategories(categoryIds).matching("coffee").withReceipt(false).orderBy(ExpenseOrder.HIGHEST_FIRST);
+
+        List<Expense> expected = new ArrayList<>();
+        for (Expense expense : history) {
+            if (expense.epochDay >= 20100 && expense.epochDay <= 20200 && expense.amountCents >= 1000 &&
+                    expense.amountCents <= 3000 && categoryIds.contains(expense.categoryId) &&
+                    expense.note.contains("coffee")) {
+                expected.add(expense);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        List<Expense> found = helper.findExpenses(userId, query, ROWS, null);
+        assertEquals(expected.size(), found.size());
+        for (int i = 1; i < found.size(); i++) {
+            Expense previous = found.get(i - 1), expense = found.get(i);
+            assertTrue(previous.amountCents > expense.amountCents || previous.amountCents == expense.amountCents &&
+                    (previous.epochDay > expense.epochDay || previous.epochDay == expense.epochDay && previous.id > expense.id));
+        }
+
+        long total = 0;
+        for (Expense expense : expected) {
+            total += expense.amountCents;
+        }
+        assertEquals(total, helper.summarizeExpenses(userId, query, null).totalCents);
+        assertTrue(helper.findExpenses(userId, query.withReceipt(true), ROWS, null).isEmpty());
+        assertTrue(helper.findExpenses(userId, query.inCategories(new HashSet<>()), ROWS, null).isEmpty());
+    }
+
+    // The Home search bar's query: text only, best matches first
+    private List<Expense> search(String text, int limit) {
+        return helper.findExpenses(userId, ExpenseQuery.all().matching(text), limit, null);
+    }
+
+    // HomeFragment.filterExpenses as it was before the full-text index
+    private static List<Expense> linearFilter(List<Expense> expenses, String query) {
+        List<Expense> filtered = new ArrayList<>();
+        for (Expense expense : expenses) {
+            if (expense.note != null && expense.note.toLowerCase().contains(query)) {
+                filtered.add(expense);
+            } else if (expense.category != null && expense.category.toLowerCase().contains(query)) {
+                filtered.add(expense);
+            } else if (Money.formatNumber(expense.amountCents).contains(query)) {
+                filtered.add(expense);
+            } else if (DateUtils.format(expense.epochDay).toLowerCase().contains(query)) {
+                filtered.add(expense);
+            }
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.myapplication.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpenseQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every statement DatabaseHelper issues on behalf of the repositories
+ * and fails if any of them falls back to a full SCAN of a table or index.
+ *
+ * When adding a query to DatabaseHelper, add it here as well.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanGuardTest {
+
+    // Statements that are allowed to scan, with the reason
+    private static final String[][] ALLOWED_SCANS = {
+        // Schema probe in signup()/login(); sqlite_master holds a handful of rows
+        {"SELECT name FROM sqlite_master WHERE type='table' AND name=?", "users"},
+        // Diagnostic dump after a failed login only
+        {"SELECT username FROM users"},
+        // checkSpendTotals() recomputes every total by design; runs only after a schema upgrade or backfill
+        {"SELECT user_id, category_id, SUM(amount_cents), COUNT(*) FROM expenses GROUP BY user_id, category_id"},
+        // checkRollups() visits every user, only after a schema upgrade or backfill
+        {"SELECT id FROM users"},
+        // getReceiptUris() reads every receipt reference for the sweep that follows a delete, clear or receipt change
+        {"SELECT DISTINCT image_uri FROM expenses WHERE image_uri IS NOT NULL"},
+        // checkRollups() compares one user's recomputed rollups with the stored ones; both sides are index
+        // searches for that user, only their results are scanned
+        {"SELECT (SELECT COUNT(*) FROM (" +
+            "SELECT date_day AS k, category_id AS c, SUM(amount_cents) AS total, COUNT(*) AS n, MIN(amount_cents) AS lo, MAX(amount_cents) AS hi FROM expenses WHERE user_id=? AND date_day IS NOT NULL GROUP BY date_day, category_id) e LEFT JOIN (" +
+            "SELECT day AS k, category_id AS c, total, count AS n, min_cents AS lo, max_cents AS hi FROM daily_totals WHERE user_id=?) a ON a.k = e.k AND a.c = e.c WHERE a.n IS NULL OR a.n != e.n OR a.total != e.total OR a.lo != e.lo OR a.hi != e.hi) + " +
+            "(SELECT COUNT(*) FROM (" +
+            "SELECT day AS k, category_id AS c, total, count AS n, min_cents AS lo, max_cents AS hi FROM daily_totals WHERE user_id=?) a LEFT JOIN (" +
+            "SELECT date_day AS k, category_id AS c, SUM(amount_cents) AS total, COUNT(*) AS n, MIN(amount_cents) AS lo, MAX(amount_cents) AS hi FROM expenses WHERE user_id=? AND date_day IS NOT NULL GROUP BY date_day, category_id) e ON a.k = e.k AND a.c = e.c WHERE e.n IS NULL)", "1", "1", "1", "1"},
+        {"SELECT (SELECT COUNT(*) FROM (" +
+            "SELECT CAST(strftime('%s', date_day * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AS k, category_id AS c, SUM(amount_cents) AS total, COUNT(*) AS n, MIN(amount_cents) AS lo, MAX(amount_cents) AS hi FROM expenses WHERE user_id=? AND date_day IS NOT NULL GROUP BY k, category_id) e LEFT JOIN (" +
+            "SELECT month AS k, category_id AS c, total, count AS n, min_cents AS lo, max_cents AS hi FROM monthly_totals WHERE user_id=?) a ON a.k = e.k AND a.c = e.c WHERE a.n IS NULL OR a.n != e.n OR a.total != e.total OR a.lo != e.lo OR a.hi != e.hi) + " +
+            "(SELECT COUNT(*) FROM (" +
+            "SELECT month AS k, category_id AS c, total, count AS n, min_cents AS lo, max_cents AS hi FROM monthly_totals WHERE user_id=?) a LEFT JOIN (" +
+            "SELECT CAST(strftime('%s', date_day * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AS k, category_id AS c, SUM(amount_cents) AS total, COUNT(*) AS n, MIN(amount_cents) AS lo, MAX(amount_cents) AS hi FROM expenses WHERE user_id=? AND date_day IS NOT NULL GROUP BY k, category_id) e ON a.k = e.k AND a.c = e.c WHERE e.n IS NULL)", "1", "1", "1", "1"},
+        // CategoryCache reload; the table holds a few rows per user and is read whole after each change
+        {"SELECT id, user_id, name, icon, color, hidden FROM categories"},
+    };
+
+    private static final String[][] QUERIES = {
+        // AuthRepository
+        {"SELECT id FROM users WHERE username=?", "alice"},
+        {"SELECT id, username, password_hash FROM users WHERE username=?", "alice"},
+        {"SELECT id FROM users WHERE username=? AND id!=?", "alice", "1"},
+        {"UPDATE users SET username=? WHERE id=?", "bob", "1"},
+        {"SELECT password_hash FROM users WHERE id=?", "1"},
+        {"UPDATE users SET password_hash=? WHERE id=?", "hash", "1"},
+        {"SELECT id FROM users WHERE username=? AND pet_hash=?", "alice", "hash"},
+        {"SELECT id FROM users WHERE id=?", "1"},
+        // ExpenseRepository
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? ORDER BY date_day DESC, id DESC", "1"},
+        // Keyset-paged feed, both directions, first and later pages
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? ORDER BY date_day DESC, id DESC LIMIT 51", "1"},
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? AND date_day<=? AND (date_day<? OR id<?) ORDER BY date_day DESC, id DESC LIMIT 51", "1", "20150", "20150", "7"},
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? ORDER BY date_day ASC, id ASC LIMIT 51", "1"},
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? AND date_day>=? AND (date_day>? OR id>?) ORDER BY date_day ASC, id ASC LIMIT 51", "1", "20150", "20150", "7"},
+        // Amount orders, ties by date then id
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? ORDER BY amount_cents DESC, date_day DESC, id DESC LIMIT 51", "1"},
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? AND amount_cents<=? AND (amount_cents<? OR (date_day<=? AND (date_day<? OR id<?))) ORDER BY amount_cents DESC, date_day DESC, id DESC LIMIT 51", "1", "500", "500", "20150", "20150", "7"},
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? AND amount_cents>=? AND (amount_cents>? OR (date_day>=? AND (date_day>? OR id>?))) ORDER BY amount_cents ASC, date_day ASC, id ASC LIMIT 51", "1", "500", "500", "20150", "20150", "7"},
+        // Category orders: the rest of the current category, then the categories after it
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE user_id=? AND category_id=? AND date_day<=? AND (date_day<? OR id<?) ORDER BY date_day DESC, id DESC LIMIT 51", "1", "1", "20150", "20150", "7"},
+        {"SELECT e.id, e.category_id, e.amount_cents, e.note, e.date_day, e.image_uri, e.date FROM categories c CROSS JOIN expenses e ON e.user_id = c.user_id AND e.category_id = c.id WHERE c.user_id=? ORDER BY c.name COLLATE NOCASE ASC, c.id ASC, e.date_day DESC, e.id DESC LIMIT 51", "1"},
+        {"SELECT e.id, e.category_id, e.amount_cents, e.note, e.date_day, e.image_uri, e.date FROM categories c CROSS JOIN expenses e ON e.user_id = c.user_id AND e.category_id = c.id WHERE c.user_id=? AND c.name COLLATE NOCASE>=? AND (c.name COLLATE NOCASE>? OR c.id>?) ORDER BY c.name COLLATE NOCASE ASC, c.id ASC, e.date_day DESC, e.id DESC LIMIT 51", "1", "Food", "Food", "1"},
+        {"SELECT e.id, e.category_id, e.amount_cents, e.note, e.date_day, e.image_uri, e.date FROM categories c CROSS JOIN expenses e ON e.user_id = c.user_id AND e.category_id = c.id WHERE c.user_id=? AND c.name COLLATE NOCASE<=? AND (c.name COLLATE NOCASE<? OR c.id<?) ORDER BY c.name COLLATE NOCASE DESC, c.id DESC, e.date_day DESC, e.id DESC LIMIT 51", "1", "Food", "Food", "1"},
+        {"SELECT id, category_id, amount_cents, note, date_day, image_uri, date FROM expenses WHERE id=? ORDER BY date_day DESC, id DESC", "1"},
+        {"UPDATE expenses SET category_id=?, amount_cents=?, note=?, date_day=?, image_uri=? WHERE id=? AND user_id=?", "1", "1", "n", "20150", "", "1", "1"},
+        // Spending summaries from the rollups: all time, within a month, and whole months plus the days around them
+        {"SELECT category_id, SUM(total), SUM(count), MIN(min_cents), MAX(max_cents) FROM (SELECT category_id, total, count, min_cents, max_cents FROM monthly_totals WHERE user_id=?) GROUP BY category_id", "1"},
+        {"SELECT category_id, SUM(total), SUM(count), MIN(min_cents), MAX(max_cents) FROM (SELECT category_id, total, count, min_cents, max_cents FROM daily_totals WHERE user_id=? AND day BETWEEN ? AND ?) GROUP BY category_id", "1", "20150", "20160"},
+        {"SELECT category_id, SUM(total), SUM(count), MIN(min_cents), MAX(max_cents) FROM (SELECT category_id, total, count, min_cents, max_cents FROM monthly_totals WHERE user_id=? AND month>=? AND month<? " +
+            "UNION ALL SELECT category_id, total, count, min_cents, max_cents FROM daily_totals WHERE user_id=? AND day BETWEEN ? AND ? " +
+            "UNION ALL SELECT category_id, total, count, min_cents, max_cents FROM daily_totals WHERE user_id=? AND day BETWEEN ? AND ?) GROUP BY category_id", "1", "20149", "20332", "1", "20100", "20148", "1", "20332", "20340"},
+        {"DELETE FROM expenses WHERE id=?", "1"},
+        {"DELETE FROM expenses WHERE user_id=?", "1"},
+        // Epoch-day backfill
+        {"SELECT id, date FROM expenses WHERE id>? AND date_day IS NULL ORDER BY id LIMIT 500", "0"},
+        {"UPDATE expenses SET date_day=? WHERE id=? AND date_day IS NULL", "20150", "1"},
+        // Per-category spend used by budget checks, and the trigger statements maintaining it
+        {"SELECT total FROM spend_totals WHERE user_id=? AND category_id=? AND period=?", "1", "1", "0"},
+        {"UPDATE spend_totals SET total = total + ?, count = count + 1 WHERE user_id = ? AND category_id = ? AND period = 0", "1", "1", "1"},
+        {"DELETE FROM spend_totals WHERE user_id = ? AND category_id = ? AND period = 0 AND count <= 0", "1", "1"},
+        {"UPDATE daily_totals SET total = total + ?, count = count + 1 WHERE user_id = ? AND day = ? AND category_id = ?", "1", "1", "20150", "1"},
+        {"DELETE FROM daily_totals WHERE user_id = ? AND day = ? AND category_id = ? AND count <= 0", "1", "20150", "1"},
+        {"UPDATE monthly_totals SET total = total + ?, count = count + 1 WHERE user_id = ? AND month = CAST(strftime('%s', ? * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AND category_id = ?", "1", "1", "20150", "1"},
+        {"DELETE FROM monthly_totals WHERE user_id = ? AND month = CAST(strftime('%s', ? * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AND category_id = ? AND count <= 0", "1", "20150", "1"},
+        // Smallest/largest amount left in a day or month once the expense holding it is removed
+        {"SELECT MIN(+amount_cents) FROM expenses WHERE user_id = ? AND category_id = ? AND date_day = ?", "1", "1", "20150"},
+        {"SELECT MIN(+amount_cents) FROM expenses WHERE user_id = ? AND category_id = ? AND date_day >= CAST(strftime('%s', ? * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AND date_day < CAST(strftime('%s', ? * 86400, 'unixepoch', 'start of month', '+1 month') AS INTEGER) / 86400", "1", "1", "20150", "20150"},
+        // Rollup rebuild for one user (checkRollups)
+        {"DELETE FROM daily_totals WHERE user_id=?", "1"},
+        {"SELECT user_id, date_day, category_id, SUM(amount_cents), COUNT(*), MIN(amount_cents), MAX(amount_cents) FROM expenses WHERE user_id=? AND date_day IS NOT NULL GROUP BY date_day, category_id", "1"},
+        {"SELECT user_id, CAST(strftime('%s', day * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AS m, category_id, SUM(total), SUM(count), MIN(min_cents), MAX(max_cents) FROM daily_totals WHERE user_id=? GROUP BY m, category_id", "1"},
+        // Full-text index maintenance done by the triggers
+        {"DELETE FROM expenses_fts WHERE docid = ?", "1"},
+        // BudgetRepository
+        {"INSERT OR REPLACE INTO budgets(user_id, category_id, limit_cents) VALUES(?, ?, ?)", "1", "1", "100"},
+        {"SELECT category_id, limit_cents FROM budgets WHERE user_id=?", "1"},
+        {"SELECT category_id, limit_cents FROM budgets WHERE user_id=? AND category_id=?", "1", "1"},
+        {"DELETE FROM budgets WHERE user_id=? AND category_id=?", "1", "1"},
+        // Categories; names are resolved through CategoryCache, so only writes hit the table
+        {"SELECT EXISTS(SELECT 1 FROM expenses WHERE user_id=? AND category_id=?) OR EXISTS(SELECT 1 FROM budgets WHERE user_id=? AND category_id=?)", "1", "1", "1", "1"},
+        {"UPDATE categories SET hidden=? WHERE id=?", "1", "1"},
+        {"UPDATE categories SET name=? WHERE id=? AND user_id=?", "Groceries", "1", "1"},
+        {"DELETE FROM categories WHERE id=?", "1"},
+        // Search index update when a category is renamed
+        {"UPDATE expenses_fts SET category = ? WHERE docid IN (SELECT id FROM expenses WHERE user_id = ? AND category_id = ?)", "Groceries", "1", "1"},
+    };
+
+    /**
+     * ExpenseQuery statements as ExpenseQueryCompiler emits them, one per kind of condition and order,
+     * so the guard follows the compiler rather than a copy of its output.
+     */
+    private static List<String[]> compiledQueries() {
+        ExpenseQueryCompiler compiler = new ExpenseQueryCompiler();
+        List<ExpenseQueryCompiler.Statement> statements = new ArrayList<>();
+        for (ExpenseOrder order : ExpenseOrder.values()) {
+            statements.add(compiler.rows(1, ExpenseQuery.all().orderBy(order), null, 50));
+            statements.add(compiler.rows(1, ExpenseQuery.all().orderBy(order), "lun*", 500));
+        }
+        // Text search in relevance order, and the totals behind it
+        statements.add(compiler.rows(1, ExpenseQuery.all(), "lun*", 500));
+        statements.add(compiler.totals(1, ExpenseQuery.all(), "lun*"));
+        // Every filter at once, and the remaining variants of each
+        statements.add(compiler.rows(1, ExpenseQuery.all().between(20000L, 20100L).amountBetween(500L, null)
+                .inCategories(Arrays.asList(1, 2, 3)).withReceipt(true).orderBy(ExpenseOrder.HIGHEST_FIRST), null, 50));
+        statements.add(compiler.rows(1, ExpenseQuery.all().amountBetween(null, 500L).withReceipt(false)
+                .orderBy(ExpenseOrder.OLDEST_FIRST), null, 50));
+        statements.add(compiler.totals(1, ExpenseQuery.all().between(20000L, 20100L), null));
+        statements.add(compiler.totals(1, ExpenseQuery.all().inCategories(Arrays.asList(1, 2)), null));
+        return toQueries(statements);
+    }
+
+    // Compiled statements allowed to scan, with the reason
+    private static List<String[]> compiledAllowedScans() {
+        ExpenseQueryCompiler compiler = new ExpenseQueryCompiler();
+        List<ExpenseQueryCompiler.Statement> statements = new ArrayList<>();
+        // An empty category set; the WHERE is constant false, so no row is read
+        statements.add(compiler.totals(1, ExpenseQuery.all().inCategories(Collections.<Integer>emptyList()), null));
+        return toQueries(statements);
+    }
+
+    private static List<String[]> toQueries(List<ExpenseQueryCompiler.Statement> statements) {
+        List<String[]> queries = new ArrayList<>();
+        for (ExpenseQueryCompiler.Statement statement : statements) {
+            String[] query = new String[statement.args.length + 1];
+            query[0] = statement.sql;
+            System.arraycopy(statement.args, 0, query, 1, statement.args.length);
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    @Test
+    public void noRepositoryQueryScans() {
+        SQLiteDatabase db = database();
+        List<String[]> queries = new ArrayList<>(Arrays.asList(QUERIES));
+        queries.addAll(compiledQueries());
+        List<String> failures = new ArrayList<>();
+        for (String[] query : queries) {
+            for (String step : queryPlan(db, query)) {
+                if (isScan(step)) {
+                    failures.add(query[0] + "\n    -> " + step);
+                }
+            }
+        }
+        assertTrue("Queries falling back to SCAN:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void allowedScansStillPlan() {
+        // Keeps the allow-list honest: every entry must still be valid SQL against the schema
+        SQLiteDatabase db = database();
+        List<String[]> queries = new ArrayList<>(Arrays.asList(ALLOWED_SCANS));
+        queries.addAll(compiledAllowedScans());
+        for (String[] query : queries) {
+            assertFalse(query[0], queryPlan(db, query).isEmpty());
+        }
+    }
+
+    private static SQLiteDatabase database() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        return DatabaseHelper.getInstance(context).getReadableDatabase();
+    }
+
+    private static boolean isScan(String step) {
+        // "SCAN TABLE x" on older SQLite, "SCAN x" on newer; both also cover "USING COVERING INDEX".
+        // A virtual table is always reported as SCAN; "VIRTUAL TABLE INDEX" means its own index (e.g. FTS MATCH) is used.
+        // Reading back the rows of a FROM subquery ("SCAN SUBQUERY 1", "SCAN (subquery-1)") scans no table.
+        return step.startsWith("SCAN ") && !step.startsWith("SCAN CONSTANT ROW") && !step.contains("VIRTUAL TABLE INDEX") &&
+                !step.startsWith("SCAN SUBQUERY") && !step.startsWith("SCAN (subquery");
+    }
+
+    private static List<String> queryPlan(SQLiteDatabase db, String[] query) {
+        String[] args = new String[query.length - 1];
+        System.arraycopy(query, 1, args, 0, args.length);
+        List<String> steps = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query[0], args);
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                steps.add(cursor.getString(detail));
+            }
+        } finally {
+            cursor.close();
+        }
+        return steps;
+    }
+}
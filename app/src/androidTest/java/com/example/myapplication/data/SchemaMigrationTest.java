@@ -0,0 +1,348 @@
+package com.example.myapplication.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.example.myapplication.models.CategoryTotal;
+import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpensePage;
+import com.example.myapplication.models.ExpenseQuery;
+import com.example.myapplication.models.SpendingSummary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a synthetic version 5 database (the oldest in-place upgradable schema) to the current
+ * version and checks that no data is lost. Timings of the schema upgrade and of the background
+ * backfills are logged under "SchemaMigrationTest".
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchemaMigrationTest {
+    private static final String TAG = "SchemaMigrationTest";
+    private static final String UPGRADE_DB = "migration_test_upgrade.db";
+    private static final String FRESH_DB = "migration_test_fresh.db";
+    private static final int ROWS = 100_000;
+
+    // Schema exactly as shipped in version 5
+    private static final String[] V5_SCHEMA = {
+        "CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT UNIQUE NOT NULL, " +
+                "password_hash TEXT NOT NULL, pet_hash TEXT NOT NULL)",
+        "CREATE TABLE expenses (id INTEGER PRIMARY KEY AUTOINCREMENT, user_id INTEGER NOT NULL, " +
+                "category TEXT NOT NULL, amount REAL NOT NULL, note TEXT, date TEXT, image_uri TEXT, " +
+                "FOREIGN KEY(user_id) REFERENCES users(id))",
+        "CREATE TABLE budgets (user_id INTEGER NOT NULL, category TEXT NOT NULL, limit_amount REAL NOT NULL, " +
+                "PRIMARY KEY(user_id, category), FOREIGN KEY(user_id) REFERENCES users(id))",
+    };
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(UPGRADE_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(UPGRADE_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @Test
+    public void registryIsContiguousAndEndsAtCurrentVersion() {
+        int expected = Migrations.BASE_VERSION + 1;
+        for (Migration migration : Migrations.ALL) {
+            assertEquals(expected++, migration.version);
+        }
+        assertEquals(DatabaseHelper.DATABASE_VERSION, expected - 1);
+    }
+
+    @Test
+    public void upgradesSyntheticV5DatabaseWithoutDataLoss() {
+        createV5Database(UPGRADE_DB, ROWS);
+
+        DatabaseHelper helper = new DatabaseHelper(context, UPGRADE_DB);
+        try {
+            long start = System.nanoTime();
+            SQLiteDatabase db = helper.getWritableDatabase();
+            long upgradeMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            assertTrue(helper.runPendingBackfills());
+            long backfillMs = (System.nanoTime() - start) / 1_000_000;
+
+            Log.i(TAG, "rows=" + ROWS + " schema upgrade and staged moves=" + upgradeMs + " ms, backfills=" + backfillMs + " ms");
+
+            assertEquals(DatabaseHelper.DATABASE_VERSION, db.getVersion());
+            assertEquals(1, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM users", null));
+            assertEquals(1, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM budgets", null));
+            assertEquals(ROWS, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM expenses", null));
+            assertEquals(0, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM expenses WHERE date_day IS NULL", null));
+            // Row 3 was stored as "March 3, 2025"
+            assertEquals(20150, DatabaseUtils.longForQuery(db,
+                    "SELECT date_day FROM expenses WHERE id=3", null));
+            // Version 10 converted dollars to cents; 1.29 has no exact binary representation
+            assertEquals(129, DatabaseUtils.longForQuery(db,
+                    "SELECT amount_cents FROM expenses WHERE id=29", null));
+            assertEquals(20000, DatabaseUtils.longForQuery(db,
+                    "SELECT limit_cents FROM budgets b JOIN categories c ON c.id = b.category_id " +
+                    "WHERE b.user_id=1 AND c.name='Food'", null));
+            // Version 11 moved categories into their own table; the legacy user gets the defaults
+            assertEquals(6, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM categories WHERE user_id=1 AND hidden=0", null));
+            assertEquals("Transport", DatabaseUtils.stringForQuery(db,
+                    "SELECT c.name FROM expenses e JOIN categories c ON c.id = e.category_id WHERE e.id=7", null));
+            assertEquals((ROWS + 5) / 6, DatabaseUtils.longForQuery(db, // Rows with i % 6 == 1
+                    "SELECT COUNT(*) FROM expenses_fts WHERE expenses_fts MATCH 'category:transport'", null));
+            long expectedCents = 0;
+            for (int i = 1; i <= ROWS; i++) {
+                expectedCents += i % 5000 + 100;
+            }
+            assertEquals(expectedCents, DatabaseUtils.longForQuery(db, "SELECT SUM(amount_cents) FROM expenses", null));
+            // Running totals (recreated in cents by version 10) agree with the rows
+            assertEquals(0, helper.checkSpendTotals(false));
+            // Daily and monthly rollups picked up the days set by the backfill
+            assertEquals(expectedCents, DatabaseUtils.longForQuery(db, "SELECT SUM(total) FROM daily_totals", null));
+            assertEquals(0, helper.checkRollups(false));
+
+            // A second run has nothing left to do, so nothing needs verifying again
+            start = System.nanoTime();
+            assertFalse(helper.runPendingBackfills());
+            Log.i(TAG, "idle backfill pass=" + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void feedPagesCoverEveryRowInEveryOrder() {
+        int rows = 3_000;
+        createV5Database(UPGRADE_DB, rows);
+        DatabaseHelper helper = new DatabaseHelper(context, UPGRADE_DB);
+        try {
+            helper.runPendingBackfills();
+            // Names straight from the table: CategoryCache may hold another database's categories
+            Map<Integer, String> names = new HashMap<>();
+            Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT id, name FROM categories", null);
+            try {
+                while (cursor.moveToNext()) {
+                    names.put(cursor.getInt(0), cursor.getString(1));
+                }
+            } finally {
+                cursor.close();
+            }
+
+            for (ExpenseOrder order : ExpenseOrder.values()) {
+                Set<Integer> seen = new HashSet<>();
+                Expense previous = null;
+                ExpensePage page = helper.getExpensePage(1, order, null, 97);
+                while (true) {
+                    for (Expense expense : page.expenses) {
+                        assertTrue(order + " repeated " + expense.id, seen.add(expense.id));
+                        if (previous != null) {
+                            assertTrue(order + ": " + previous.id + " before " + expense.id,
+                                    compare(order, previous, expense, names) < 0);
+                        }
+                        previous = expense;
+                    }
+                    if (!page.hasMore) break;
+                    page = helper.getExpensePage(1, order, previous, 97);
+                }
+                assertEquals(order.toString(), rows, seen.size());
+            }
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void rangeSummariesFollowEveryWrite() {
+        createV5Database(UPGRADE_DB, 3_000);
+        DatabaseHelper helper = new DatabaseHelper(context, UPGRADE_DB);
+        try {
+            helper.runPendingBackfills();
+            // Within a month, whole months with days either side, a single whole month, everything
+            long[][] ranges = {{20000, 20500}, {20150, 20150}, {20151, 20160}, {20148, 20178}, {0, 30000}};
+            assertRangeSummariesMatchRows(helper, ranges);
+
+            Expense moved = helper.getExpense(3);
+            helper.updateExpense(1, moved.id, "Bills", moved.amountCents + 250, moved.note, 20155, null);
+            helper.deleteExpense(4);
+            helper.addExpense(1, "Food", 999, "new", 20150, null);
+            assertRangeSummariesMatchRows(helper, ranges);
+            assertEquals(0, helper.checkRollups(false));
+
+            // A drifted rollup is found and rebuilt
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.execSQL("UPDATE daily_totals SET total = total + 1 WHERE user_id=1 AND day=20150");
+            db.execSQL("DELETE FROM monthly_totals WHERE user_id=1 AND month=20148");
+            assertTrue(helper.checkRollups(true) > 0);
+            assertEquals(0, helper.checkRollups(false));
+            assertRangeSummariesMatchRows(helper, ranges);
+
+            helper.clearExpenses(1);
+            assertEquals(0, DatabaseUtils.longForQuery(helper.getReadableDatabase(), "SELECT COUNT(*) FROM daily_totals", null));
+            assertEquals(0, DatabaseUtils.longForQuery(helper.getReadableDatabase(), "SELECT COUNT(*) FROM monthly_totals", null));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void firstCallsAfterUpgradeSeeEveryRow() {
+        int rows = 3_000;
+        createV5Database(UPGRADE_DB, rows);
+        DatabaseHelper helper = new DatabaseHelper(context, UPGRADE_DB);
+        try {
+            // No runPendingBackfills() first: these are the calls the app's screens make after an upgrade
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertFalse(Migrations.hasStagingTables(db));
+            assertEquals(rows, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM expenses", null));
+            assertEquals((rows + 5) / 6, // Rows with i % 6 == 1
+                    helper.findExpenses(1, ExpenseQuery.all().matching("transport"), rows, null).size());
+
+            Expense edited = helper.getExpense(7);
+            assertTrue(helper.updateExpense(1, edited.id, "Bills", 12345, edited.note, edited.epochDay, null));
+            assertTrue(helper.deleteExpense(8));
+            assertTrue(helper.deleteBudget(1, "Food"));
+            // Nothing the backfills do afterwards brings the old rows back
+            helper.runPendingBackfills();
+            assertEquals(12345, helper.getExpense(7).amountCents);
+            assertNull(helper.getExpense(8));
+            assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM budgets", null));
+            assertEquals(0, helper.checkSpendTotals(false));
+
+            assertTrue(helper.clearExpenses(1));
+            helper.runPendingBackfills();
+            assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM expenses", null));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void freshInstallMatchesUpgradedSchema() {
+        createV5Database(UPGRADE_DB, 0);
+        DatabaseHelper upgraded = new DatabaseHelper(context, UPGRADE_DB);
+        DatabaseHelper fresh = new DatabaseHelper(context, FRESH_DB);
+        try {
+            assertEquals(schema(fresh.getReadableDatabase()), schema(upgraded.getReadableDatabase()));
+        } finally {
+            upgraded.close();
+            fresh.close();
+        }
+    }
+
+    private void createV5Database(String name, int rows) {
+        SQLiteDatabase db = context.openOrCreateDatabase(name, Context.MODE_PRIVATE, null);
+        try {
+            db.beginTransaction();
+            try {
+                for (String statement : V5_SCHEMA) {
+                    db.execSQL(statement);
+                }
+                db.execSQL("INSERT INTO users(id, username, password_hash, pet_hash) VALUES(1, 'legacy', 'x', 'y')");
+                db.execSQL("INSERT INTO budgets(user_id, category, limit_amount) VALUES(1, 'Food', 200)");
+
+                // Mix of every date shape older versions wrote
+                String[] dates = {"Today", "January 15, 2024", "March 3, 2025", "Mar 4, 2025", "2025-03-05", "03/06/2025", ""};
+                String[] categories = {"Food", "Transport", "Shopping", "Bills", "Entertainment", "Others"};
+                SQLiteStatement insert = db.compileStatement(
+                        "INSERT INTO expenses(user_id, category, amount, note, date, image_uri) VALUES(1, ?, ?, ?, ?, NULL)");
+                for (int i = 1; i <= rows; i++) {
+                    insert.bindString(1, categories[i % categories.length]);
+                    insert.bindDouble(2, (i % 5000) / 100.0 + 1);
+                    insert.bindString(3, "note " + i);
+                    insert.bindString(4, dates[i % dates.length]);
+                    insert.executeInsert();
+                }
+                db.setVersion(Migrations.BASE_VERSION);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void assertRangeSummariesMatchRows(DatabaseHelper helper, long[][] ranges) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        for (long[] range : ranges) {
+            String[] args = {String.valueOf(range[0]), String.valueOf(range[1])};
+            SpendingSummary summary = helper.getSpendingSummaryBetween(1, range[0], range[1]);
+            String label = range[0] + ".." + range[1];
+            assertEquals(label, DatabaseUtils.longForQuery(db,
+                    "SELECT COALESCE(SUM(amount_cents), 0) FROM expenses WHERE user_id=1 AND date_day BETWEEN ? AND ?", args),
+                    summary.totalCents);
+            assertEquals(label, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM expenses WHERE user_id=1 AND date_day BETWEEN ? AND ?", args),
+                    summary.count);
+            for (CategoryTotal category : summary.categories) {
+                String[] categoryArgs = {args[0], args[1], String.valueOf(category.categoryId)};
+                assertEquals(label, DatabaseUtils.longForQuery(db, "SELECT MIN(amount_cents) FROM expenses " +
+                        "WHERE user_id=1 AND date_day BETWEEN ? AND ? AND category_id=?", categoryArgs), category.minCents);
+                assertEquals(label, DatabaseUtils.longForQuery(db, "SELECT MAX(amount_cents) FROM expenses " +
+                        "WHERE user_id=1 AND date_day BETWEEN ? AND ? AND category_id=?", categoryArgs), category.maxCents);
+            }
+        }
+    }
+
+    // The order getExpensePage promises, as a comparator
+    private static int compare(ExpenseOrder order, Expense a, Expense b, Map<Integer, String> names) {
+        int newestFirst = a.epochDay != b.epochDay ? Long.compare(b.epochDay, a.epochDay) : Integer.compare(b.id, a.id);
+        switch (order) {
+            case OLDEST_FIRST:
+                return -newestFirst;
+            case HIGHEST_FIRST:
+                return a.amountCents != b.amountCents ? Long.compare(b.amountCents, a.amountCents) : newestFirst;
+            case LOWEST_FIRST:
+                return a.amountCents != b.amountCents ? Long.compare(a.amountCents, b.amountCents) : -newestFirst;
+            case CATEGORY_A_Z:
+            case CATEGORY_Z_A:
+                int category = names.get(a.categoryId).compareToIgnoreCase(names.get(b.categoryId));
+                if (category == 0) category = Integer.compare(a.categoryId, b.categoryId);
+                if (order == ExpenseOrder.CATEGORY_Z_A) category = -category;
+                return category != 0 ? category : newestFirst;
+            case NEWEST_FIRST:
+            default:
+                return newestFirst;
+        }
+    }
+
+    private static List<String> schema(SQLiteDatabase db) {
+        List<String> entries = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master " +
+                "WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata' ORDER BY type, name", null);
+        try {
+            while (cursor.moveToNext()) {
+                entries.add(cursor.getString(0) + " " + cursor.getString(1) + ": " + cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
+        }
+        return entries;
+    }
+}
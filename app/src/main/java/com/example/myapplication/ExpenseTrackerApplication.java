@@ -0,0 +1,63 @@
+package com.example.myapplication;
+
+import android.app.Application;
+import android.util.Log;
+import com.example.myapplication.data.DatabaseHelper;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.ThumbnailCache;
+
+/**
+ * ExpenseTrackerApplication
+ *
+ * Process-level entry point. Owns the lifecycle of app-wide singletons such as the
+ * shared DatabaseHelper connection: it is opened lazily on first query and kept open until the
+ * process exits.
+ */
+public class ExpenseTrackerApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Bind the shared helper to the application context up front; the connection itself opens on first use
+        DatabaseHelper dbHelper = DatabaseHelper.getInstance(this);
+
+        // Finish any row-by-row data migration left by a schema upgrade; a no-op once done.
+        // Only when that changed rows are the trigger-maintained spend totals and daily/monthly rollups
+        // verified (a full read), and rebuilt only if the check finds drift.
+        AppExecutors.getInstance().io().execute(() -> {
+            boolean changed = false;
+            try {
+                changed = dbHelper.runPendingBackfills();
+            } catch (Exception e) {
+                Log.e("ExpenseTrackerApplication", "Backfill failed: " + e.getMessage(), e);
+            }
+            if (changed) {
+                try {
+                    if (dbHelper.checkSpendTotals(false) > 0) dbHelper.checkSpendTotals(true);
+                } catch (Exception e) {
+                    Log.e("ExpenseTrackerApplication", "Spend totals check failed: " + e.getMessage(), e);
+                }
+                try {
+                    if (dbHelper.checkRollups(false) > 0) dbHelper.checkRollups(true);
+                } catch (Exception e) {
+                    Log.e("ExpenseTrackerApplication", "Rollups check failed: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Decoded receipt thumbnails are the largest memory users; the copies on disk survive this
+        ThumbnailCache.trimInstance(level);
+        // The shared connection is deliberately left open: queued I/O tasks may still be using it,
+        // and the process being killed releases it anyway
+    }
+
+    @Override
+    public void onTerminate() {
+        DatabaseHelper.closeInstance();
+        super.onTerminate();
+    }
+}
@@ -9,9 +9,16 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.myapplication.R;
 import com.example.myapplication.models.Budget;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.CategoryCache;
+import com.example.myapplication.utils.Money;
 import java.util.List;
 import java.util.Locale;
 
@@ -21,15 +28,34 @@ import java.util.Locale;
  * RecyclerView Adapter for displaying a list of budgets.
  * 
  * Features:
- * - Displays Category name and dynamic icon
+ * - Displays Category name and icon (from CategoryCache)
  * - Visual ProgressBar showing spent vs limit
  * - Dynamic color coding based on percentage used:
  *   - < 80% : Blue (Safe)
  *   - >= 80% : Orange (Warning)
  *   - >= 100% : Red (Over budget)
+ *
+ * Lists are diffed in the background (AsyncListDiffer) and rows are identified by category id,
+ * so a refresh only rebinds budgets whose limit or spending changed.
  */
 public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetViewHolder> {
-    private List<BudgetItem> budgets;
+    private static final DiffUtil.ItemCallback<BudgetItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<BudgetItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BudgetItem oldItem, @NonNull BudgetItem newItem) {
+            return oldItem.budget.categoryId == newItem.budget.categoryId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull BudgetItem oldItem, @NonNull BudgetItem newItem) {
+            return oldItem.budget.category.equals(newItem.budget.category)
+                    && oldItem.budget.limitCents == newItem.budget.limitCents && oldItem.spentCents == newItem.spentCents;
+        }
+    };
+
+    private final AsyncListDiffer<BudgetItem> differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                    .setBackgroundThreadExecutor(AppExecutors.getInstance().io())
+                    .build());
     private OnBudgetClickListener listener;
 
     /**
@@ -42,8 +68,9 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
     }
 
     public BudgetAdapter(List<BudgetItem> budgets, OnBudgetClickListener listener) {
-        this.budgets = budgets;
         this.listener = listener;
+        setHasStableIds(true);
+        differ.submitList(budgets);
     }
 
     @NonNull
@@ -57,22 +84,26 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
 
     @Override
     public void onBindViewHolder(@NonNull BudgetViewHolder holder, int position) {
-        BudgetItem budgetItem = budgets.get(position);
+        BudgetItem budgetItem = differ.getCurrentList().get(position);
         holder.bind(budgetItem);
     }
 
     @Override
     public int getItemCount() {
-        return budgets.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).budget.categoryId;
     }
 
     /**
-     * Updates the dataset and refreshes the RecyclerView.
-     * @param newBudgets New list of budget items
+     * Updates the dataset; only changed rows are refreshed once the background diff completes.
+     * @param newBudgets New list of budget items, not to be modified afterwards
      */
     public void updateBudgets(List<BudgetItem> newBudgets) {
-        this.budgets = newBudgets;
-        notifyDataSetChanged();
+        differ.submitList(newBudgets);
     }
 
     /**
@@ -102,16 +133,16 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
          */
         public void bind(BudgetItem budgetItem) {
             Budget budget = budgetItem.budget;
-            double spent = budgetItem.spent;
-            double limit = budget.limit;
+            long spent = budgetItem.spentCents;
+            long limit = budget.limitCents;
             
             // Calculate percentage used (0 to 100+)
-            double percentage = limit > 0 ? (spent / limit) * 100 : 0;
+            double percentage = limit > 0 ? spent * 100.0 / limit : 0;
             
             tvCategory.setText(budget.category);
-            tvCategoryIcon.setText(getCategoryIcon(budget.category));
-            tvSpent.setText(String.format(Locale.getDefault(), "$%.2f", spent));
-            tvLimit.setText(String.format(Locale.getDefault(), "/ $%.2f", limit));
+            tvCategoryIcon.setText(CategoryCache.getInstance().iconOf(budget.categoryId));
+            tvSpent.setText(Money.format(spent));
+            tvLimit.setText("/ " + Money.format(limit));
             
             // Set basic progress bar value (capped at 100 for visual bar)
             int progress = (int) Math.min(percentage, 100);
@@ -171,27 +202,15 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
                 popupMenu.show();
             });
         }
-
-        private String getCategoryIcon(String category) {
-            switch (category) {
-                case "Food": return "🍔";
-                case "Transport": return "🚗";
-                case "Shopping": return "🛍️";
-                case "Bills": return "📜";
-                case "Entertainment": return "🍿";
-                case "Others": return "✨";
-                default: return "📦";
-            }
-        }
     }
 
     public static class BudgetItem {
         public Budget budget;
-        public double spent;
+        public long spentCents;
 
-        public BudgetItem(Budget budget, double spent) {
+        public BudgetItem(Budget budget, long spentCents) {
             this.budget = budget;
-            this.spent = spent;
+            this.spentCents = spentCents;
         }
     }
 }
@@ -1,90 +1,114 @@
-package com.example.myapplication.adapters;
-
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.TextView;
-import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.RecyclerView;
-import com.example.myapplication.R;
-import java.util.List;
-import java.util.Locale;
-
-public class CategoryBreakdownAdapter extends RecyclerView.Adapter<CategoryBreakdownAdapter.CategoryBreakdownViewHolder> {
-    private List<CategoryBreakdown> breakdowns;
-
-    public CategoryBreakdownAdapter(List<CategoryBreakdown> breakdowns) {
-        this.breakdowns = breakdowns;
-    }
-
-    @NonNull
-    @Override
-    public CategoryBreakdownViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-            .inflate(R.layout.item_category_breakdown, parent, false);
-        return new CategoryBreakdownViewHolder(view);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull CategoryBreakdownViewHolder holder, int position) {
-        CategoryBreakdown breakdown = breakdowns.get(position);
-        holder.bind(breakdown);
-    }
-
-    @Override
-    public int getItemCount() {
-        return breakdowns != null ? breakdowns.size() : 0;
-    }
-
-    public void updateBreakdowns(List<CategoryBreakdown> newBreakdowns) {
-        this.breakdowns = newBreakdowns;
-        notifyDataSetChanged();
-    }
-
-    class CategoryBreakdownViewHolder extends RecyclerView.ViewHolder {
-        private TextView tvCategoryIcon, tvCategoryName, tvCategoryAmount, tvCategoryPercentage;
-
-        public CategoryBreakdownViewHolder(@NonNull View itemView) {
-            super(itemView);
-            tvCategoryIcon = itemView.findViewById(R.id.tvCategoryIcon);
-            tvCategoryName = itemView.findViewById(R.id.tvCategoryName);
-            tvCategoryAmount = itemView.findViewById(R.id.tvCategoryAmount);
-            tvCategoryPercentage = itemView.findViewById(R.id.tvCategoryPercentage);
-        }
-
-        public void bind(CategoryBreakdown breakdown) {
-            tvCategoryName.setText(breakdown.category);
-            tvCategoryAmount.setText(String.format(Locale.getDefault(), "$%.2f", breakdown.amount));
-            tvCategoryPercentage.setText(String.format(Locale.getDefault(), "%.1f%%", breakdown.percentage));
-            
-            // Set category icon
-            String icon = getCategoryIcon(breakdown.category);
-            tvCategoryIcon.setText(icon);
-        }
-
-        private String getCategoryIcon(String category) {
-            switch (category) {
-                case "Food": return "🍔";
-                case "Transport": return "🚗";
-                case "Shopping": return "🛍️";
-                case "Bills": return "📜";
-                case "Entertainment": return "🍿";
-                case "Others": return "✨";
-                default: return "📦";
-            }
-        }
-    }
-
-    public static class CategoryBreakdown {
-        public String category;
-        public double amount;
-        public double percentage;
-
-        public CategoryBreakdown(String category, double amount, double percentage) {
-            this.category = category;
-            this.amount = amount;
-            this.percentage = percentage;
-        }
-    }
-}
-
+package com.example.myapplication.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.myapplication.R;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.CategoryCache;
+import com.example.myapplication.utils.Money;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CategoryBreakdownAdapter
+ *
+ * Lists are diffed in the background (AsyncListDiffer); rows are identified by category id, and
+ * icons come from {@link CategoryCache}.
+ */
+public class CategoryBreakdownAdapter extends RecyclerView.Adapter<CategoryBreakdownAdapter.CategoryBreakdownViewHolder> {
+    private static final DiffUtil.ItemCallback<CategoryBreakdown> DIFF_CALLBACK = new DiffUtil.ItemCallback<CategoryBreakdown>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CategoryBreakdown oldItem, @NonNull CategoryBreakdown newItem) {
+            return oldItem.categoryId == newItem.categoryId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CategoryBreakdown oldItem, @NonNull CategoryBreakdown newItem) {
+            return oldItem.category.equals(newItem.category)
+                    && oldItem.amountCents == newItem.amountCents && oldItem.percentage == newItem.percentage;
+        }
+    };
+
+    private final AsyncListDiffer<CategoryBreakdown> differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                    .setBackgroundThreadExecutor(AppExecutors.getInstance().io())
+                    .build());
+
+    public CategoryBreakdownAdapter(List<CategoryBreakdown> breakdowns) {
+        setHasStableIds(true);
+        differ.submitList(breakdowns);
+    }
+
+    @NonNull
+    @Override
+    public CategoryBreakdownViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+            .inflate(R.layout.item_category_breakdown, parent, false);
+        return new CategoryBreakdownViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull CategoryBreakdownViewHolder holder, int position) {
+        CategoryBreakdown breakdown = differ.getCurrentList().get(position);
+        holder.bind(breakdown);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).categoryId;
+    }
+
+    /**
+     * Shows a new list. The caller must not modify it afterwards; the diff runs in the background.
+     */
+    public void updateBreakdowns(List<CategoryBreakdown> newBreakdowns) {
+        differ.submitList(newBreakdowns);
+    }
+
+    class CategoryBreakdownViewHolder extends RecyclerView.ViewHolder {
+        private TextView tvCategoryIcon, tvCategoryName, tvCategoryAmount, tvCategoryPercentage;
+
+        public CategoryBreakdownViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvCategoryIcon = itemView.findViewById(R.id.tvCategoryIcon);
+            tvCategoryName = itemView.findViewById(R.id.tvCategoryName);
+            tvCategoryAmount = itemView.findViewById(R.id.tvCategoryAmount);
+            tvCategoryPercentage = itemView.findViewById(R.id.tvCategoryPercentage);
+        }
+
+        public void bind(CategoryBreakdown breakdown) {
+            tvCategoryName.setText(breakdown.category);
+            tvCategoryAmount.setText(Money.format(breakdown.amountCents));
+            tvCategoryPercentage.setText(String.format(Locale.getDefault(), "%.1f%%", breakdown.percentage));
+            tvCategoryIcon.setText(CategoryCache.getInstance().iconOf(breakdown.categoryId));
+        }
+    }
+
+    public static class CategoryBreakdown {
+        public int categoryId;
+        public String category;
+        public long amountCents;
+        public double percentage;
+
+        public CategoryBreakdown(int categoryId, String category, long amountCents, double percentage) {
+            this.categoryId = categoryId;
+            this.category = category;
+            this.amountCents = amountCents;
+            this.percentage = percentage;
+        }
+    }
+}
+
@@ -1,5 +1,6 @@
 package com.example.myapplication.adapters;
 
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -7,17 +8,58 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.PopupMenu;
 import android.widget.TextView;
-import android.net.Uri;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.myapplication.R;
 import com.example.myapplication.models.Expense;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.AsyncRequest;
+import com.example.myapplication.utils.CategoryCache;
+import com.example.myapplication.utils.DateUtils;
+import com.example.myapplication.utils.Money;
+import com.example.myapplication.utils.ThumbnailCache;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
 
+/**
+ * ExpenseAdapter
+ *
+ * New lists are diffed against the current one on the I/O pool (AsyncListDiffer), and only rows
+ * that were added, removed, moved or actually changed are notified. Item ids are the expense ids.
+ * Category icons come from {@link CategoryCache}.
+ *
+ * Receipt photos are shown through {@link ThumbnailCache}: rows bind synchronously on a memory hit,
+ * otherwise the thumbnail is loaded in the background and the load is cancelled if the row is
+ * recycled or rebound first.
+ */
 public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
-    private List<Expense> expenses;
+    private static final DiffUtil.ItemCallback<Expense> DIFF_CALLBACK = new DiffUtil.ItemCallback<Expense>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.categoryId == newItem.categoryId
+                    && Objects.equals(oldItem.category, newItem.category)
+                    && oldItem.amountCents == newItem.amountCents
+                    && Objects.equals(oldItem.note, newItem.note)
+                    && oldItem.epochDay == newItem.epochDay
+                    && Objects.equals(oldItem.imageUri, newItem.imageUri);
+        }
+    };
+
+    private final AsyncListDiffer<Expense> differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                    .setBackgroundThreadExecutor(AppExecutors.getInstance().io())
+                    .build());
     private OnExpenseClickListener listener;
+    private static final int THUMBNAIL_SIZE_DP = 48; // Icon slot in item_expense.xml
 
     public interface OnExpenseClickListener {
         void onEditClick(Expense expense);
@@ -25,8 +67,9 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
     }
 
     public ExpenseAdapter(List<Expense> expenses, OnExpenseClickListener listener) {
-        this.expenses = expenses;
         this.listener = listener;
+        setHasStableIds(true);
+        differ.submitList(expenses);
     }
 
     @NonNull
@@ -39,24 +82,38 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
 
     @Override
     public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-        Expense expense = expenses.get(position);
+        Expense expense = differ.getCurrentList().get(position);
         holder.bind(expense);
     }
 
     @Override
     public int getItemCount() {
-        return expenses.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ExpenseViewHolder holder) {
+        holder.cancelThumbnail();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).id;
     }
 
+    /**
+     * Shows a new list. The caller must not modify it afterwards; the diff runs in the background.
+     */
     public void updateExpenses(List<Expense> newExpenses) {
-        this.expenses = newExpenses;
-        notifyDataSetChanged();
+        differ.submitList(newExpenses);
     }
 
     class ExpenseViewHolder extends RecyclerView.ViewHolder {
         private TextView tvCategory, tvNote, tvAmount, tvCategoryIcon, tvDate;
         private ImageView ivExpenseImage, ivCategoryIconImage;
         private android.widget.ImageButton btnMenu;
+        private final int thumbnailSizePx;
+        private AsyncRequest thumbnailRequest;
 
         public ExpenseViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -68,20 +125,23 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             ivExpenseImage = itemView.findViewById(R.id.ivExpenseImage);
             ivCategoryIconImage = itemView.findViewById(R.id.ivCategoryIconImage);
             btnMenu = itemView.findViewById(R.id.btnMenu);
+            float density = itemView.getContext().getResources().getDisplayMetrics().density;
+            thumbnailSizePx = Math.round(THUMBNAIL_SIZE_DP * density);
         }
 
         public void bind(Expense expense) {
             tvCategory.setText(expense.category);
             tvNote.setText(expense.note);
-            tvAmount.setText(String.format(Locale.getDefault(), "-$%.2f", expense.amount));
-            
+            tvAmount.setText("-" + Money.format(expense.amountCents));
+            cancelThumbnail(); // A load for the previous expense shown in this row must not land here
+
             // Handle Image and Icon display
             // If an image is present, show it in the icon slot (ivCategoryIconImage) and hide the text icon.
             // Also hide the large ivExpenseImage as requested.
             if (expense.imageUri != null && !expense.imageUri.isEmpty()) {
                 ivCategoryIconImage.setVisibility(View.VISIBLE);
-                ivCategoryIconImage.setImageURI(Uri.parse(expense.imageUri));
                 tvCategoryIcon.setVisibility(View.GONE);
+                bindThumbnail(expense);
                 
                 // Hide the big image preview
                 ivExpenseImage.setVisibility(View.GONE);
@@ -89,20 +149,14 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
                 ivCategoryIconImage.setVisibility(View.GONE);
                 tvCategoryIcon.setVisibility(View.VISIBLE);
                 
-                // Set category icon
-                String icon = getCategoryIcon(expense.category);
-                tvCategoryIcon.setText(icon);
+                tvCategoryIcon.setText(CategoryCache.getInstance().iconOf(expense.categoryId));
                 
                 // Ensure big image is hidden
                 ivExpenseImage.setVisibility(View.GONE);
             }
             
-            // Set date - show "Category • Date" format or just date if category is already shown separately
-            if (expense.date != null && !expense.date.isEmpty()) {
-                tvDate.setText(expense.date);
-            } else {
-                tvDate.setText("Today");
-            }
+            // Set date - formatted from the stored epoch day only when bound
+            tvDate.setText(DateUtils.format(expense.epochDay));
 
             // Setup 3-dot menu button
             btnMenu.setOnClickListener(v -> {
@@ -128,15 +182,31 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             });
         }
 
-        private String getCategoryIcon(String category) {
-            switch (category) {
-                case "Food": return "🍔";
-                case "Transport": return "🚗";
-                case "Shopping": return "🛍️";
-                case "Bills": return "📜";
-                case "Entertainment": return "🍿";
-                case "Others": return "✨";
-                default: return "📦";
+        private void bindThumbnail(Expense expense) {
+            ThumbnailCache cache = ThumbnailCache.getInstance(itemView.getContext());
+            Bitmap cached = cache.getFromMemory(expense.imageUri, thumbnailSizePx);
+            if (cached != null) {
+                ivCategoryIconImage.setImageBitmap(cached);
+                return;
+            }
+            ivCategoryIconImage.setImageDrawable(null);
+            thumbnailRequest = cache.load(expense.imageUri, thumbnailSizePx, bitmap -> {
+                thumbnailRequest = null;
+                if (bitmap != null) {
+                    ivCategoryIconImage.setImageBitmap(bitmap);
+                } else {
+                    // Image deleted or permission revoked: fall back to the category icon
+                    ivCategoryIconImage.setVisibility(View.GONE);
+                    tvCategoryIcon.setText(CategoryCache.getInstance().iconOf(expense.categoryId));
+                    tvCategoryIcon.setVisibility(View.VISIBLE);
+                }
+            });
+        }
+
+        void cancelThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
             }
         }
     }
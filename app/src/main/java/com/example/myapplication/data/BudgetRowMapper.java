@@ -0,0 +1,31 @@
+package com.example.myapplication.data;
+
+import android.database.Cursor;
+import com.example.myapplication.models.Budget;
+import com.example.myapplication.utils.CategoryCache;
+
+/**
+ * Maps rows of the budgets table to {@link Budget}. Category names come from {@link CategoryCache},
+ * which the caller loads before mapping.
+ */
+public final class BudgetRowMapper extends RowMapper<Budget> {
+    static final String[] PROJECTION = {
+        DatabaseHelper.COL_BUDGET_CATEGORY_ID,
+        DatabaseHelper.COL_BUDGET_LIMIT
+    };
+
+    // Declared after PROJECTION so the constructor sees it initialized
+    public static final BudgetRowMapper INSTANCE = new BudgetRowMapper();
+
+    private static final int CATEGORY_ID = 0, LIMIT = 1;
+
+    private BudgetRowMapper() {
+        super(PROJECTION);
+    }
+
+    @Override
+    protected Budget mapRow(Cursor cursor, int[] columns) {
+        int categoryId = cursor.getInt(columns[CATEGORY_ID]);
+        return new Budget(categoryId, CategoryCache.getInstance().nameOf(categoryId), cursor.getLong(columns[LIMIT]));
+    }
+}
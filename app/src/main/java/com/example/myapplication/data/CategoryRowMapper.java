@@ -0,0 +1,39 @@
+package com.example.myapplication.data;
+
+import android.database.Cursor;
+import com.example.myapplication.models.Category;
+
+/**
+ * Maps rows of the categories table to {@link Category}.
+ */
+public final class CategoryRowMapper extends RowMapper<Category> {
+    static final String[] PROJECTION = {
+        DatabaseHelper.COL_CATEGORY_ID,
+        DatabaseHelper.COL_CATEGORY_USER_ID,
+        DatabaseHelper.COL_CATEGORY_NAME,
+        DatabaseHelper.COL_CATEGORY_ICON,
+        DatabaseHelper.COL_CATEGORY_COLOR,
+        DatabaseHelper.COL_CATEGORY_HIDDEN
+    };
+
+    // Declared after PROJECTION so the constructor sees it initialized
+    public static final CategoryRowMapper INSTANCE = new CategoryRowMapper();
+
+    private static final int ID = 0, USER_ID = 1, NAME = 2, ICON = 3, COLOR = 4, HIDDEN = 5;
+
+    private CategoryRowMapper() {
+        super(PROJECTION);
+    }
+
+    @Override
+    protected Category mapRow(Cursor cursor, int[] columns) {
+        return new Category(
+            cursor.getInt(columns[ID]),
+            cursor.getInt(columns[USER_ID]),
+            cursor.getString(columns[NAME]),
+            cursor.getString(columns[ICON]),
+            cursor.getInt(columns[COLOR]),
+            cursor.getInt(columns[HIDDEN]) != 0
+        );
+    }
+}
@@ -3,14 +3,38 @@ package com.example.myapplication.data;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.CancellationSignal;
 import android.util.Log;
+import androidx.annotation.VisibleForTesting;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import com.example.myapplication.models.Budget;
+import com.example.myapplication.models.Category;
+import com.example.myapplication.models.CategoryTotal;
+import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpenseQuery;
+import com.example.myapplication.models.ExpensePage;
+import com.example.myapplication.models.SpendingSummary;
 import com.example.myapplication.models.User;
+import com.example.myapplication.utils.CategoryCache;
+import com.example.myapplication.utils.DateUtils;
+import com.example.myapplication.utils.SearchText;
 
 /**
  * DatabaseHelper manages the SQLite database creation and version management.
@@ -18,47 +42,191 @@ import com.example.myapplication.models.User;
  *
  * This class defines the database schema including tables for Users, Expenses, and Budgets.
  * It also encapsulates low-level SQL operations and raw cursor handling.
+ *
+ * There is exactly one instance per process (see {@link #getInstance(Context)}). The underlying
+ * SQLiteDatabase is opened lazily on first use and then kept open for the lifetime of the app;
+ * individual operations must NOT close it. SQLiteDatabase is internally synchronized, so the
+ * shared connection can be used from any thread. It is not closed while the app runs, since
+ * queued background work may still be using it; {@link #closeInstance()} exists for teardown and tests.
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "expense_tracker.db";
     // ... (rest of class) ...
 
-    private static final int DATABASE_VERSION = 5; // Incremented to add image URI
+    // Must equal the version of the last step in Migrations.ALL
+    static final int DATABASE_VERSION = 14;
 
     // Users table
-    private static final String TABLE_USERS = "users";
-    private static final String COL_USER_ID = "id";
+    static final String TABLE_USERS = "users";
+    static final String COL_USER_ID = "id";
     private static final String COL_USERNAME = "username";
     private static final String COL_PASSWORD_HASH = "password_hash";
     private static final String COL_PET_HASH = "pet_hash";
 
     // Expenses table
-    private static final String TABLE_EXPENSES = "expenses";
-    private static final String COL_EXPENSE_ID = "id";
-    private static final String COL_EXPENSE_USER_ID = "user_id";
-    private static final String COL_EXPENSE_CATEGORY = "category";
-    private static final String COL_EXPENSE_AMOUNT = "amount";
-    private static final String COL_EXPENSE_NOTE = "note";
-    private static final String COL_EXPENSE_DATE = "date";
-    private static final String COL_EXPENSE_IMAGE_URI = "image_uri";
+    static final String TABLE_EXPENSES = "expenses";
+    static final String COL_EXPENSE_ID = "id";
+    static final String COL_EXPENSE_USER_ID = "user_id";
+    // Category (v11), see TABLE_CATEGORIES
+    static final String COL_EXPENSE_CATEGORY_ID = "category_id";
+    // Category name, versions 5-10; only read by the version 11 migration
+    static final String COL_EXPENSE_CATEGORY_V5 = "category";
+    // Amount in cents (see Money), since version 10
+    static final String COL_EXPENSE_AMOUNT = "amount_cents";
+    // Amount in dollars as REAL, versions 5-9; only read by the version 10 migration
+    static final String COL_EXPENSE_AMOUNT_V5 = "amount";
+    static final String COL_EXPENSE_NOTE = "note";
+    // Free-text display date written by versions before 7; only read to backfill COL_EXPENSE_DAY
+    static final String COL_EXPENSE_DATE = "date";
+    static final String COL_EXPENSE_IMAGE_URI = "image_uri";
+    // Expense date as an epoch day (see DateUtils); NULL only until the version 7 backfill runs
+    static final String COL_EXPENSE_DAY = "date_day";
 
     // Budgets table
-    private static final String TABLE_BUDGETS = "budgets";
-    private static final String COL_BUDGET_USER_ID = "user_id";
-    private static final String COL_BUDGET_CATEGORY = "category";
-    private static final String COL_BUDGET_LIMIT = "limit_amount";
+    static final String TABLE_BUDGETS = "budgets";
+    static final String COL_BUDGET_USER_ID = "user_id";
+    // Category (v11), see TABLE_CATEGORIES
+    static final String COL_BUDGET_CATEGORY_ID = "category_id";
+    // Category name, versions 5-10; only read by the version 11 migration
+    static final String COL_BUDGET_CATEGORY_V5 = "category";
+    // Limit in cents, since version 10
+    static final String COL_BUDGET_LIMIT = "limit_cents";
+    // Limit in dollars as REAL, versions 5-9; only read by the version 10 migration
+    static final String COL_BUDGET_LIMIT_V5 = "limit_amount";
+
+    // Categories table (v11): per-user names with display metadata. Expenses, budgets and spend totals
+    // reference a category by id, so renaming one touches a single row. Mirrored in CategoryCache.
+    static final String TABLE_CATEGORIES = "categories";
+    static final String COL_CATEGORY_ID = "id";
+    static final String COL_CATEGORY_USER_ID = "user_id";
+    static final String COL_CATEGORY_NAME = "name";
+    static final String COL_CATEGORY_ICON = "icon";
+    static final String COL_CATEGORY_COLOR = "color";
+    // 1 once the user deleted a category that expenses or budgets still use; it then leaves the pickers
+    static final String COL_CATEGORY_HIDDEN = "hidden";
+
+    // Spend totals table (v8): SUM/COUNT of expenses per user, category and period, maintained by
+    // triggers on the expenses table (see Migrations) and checked by checkSpendTotals()
+    static final String TABLE_SPEND_TOTALS = "spend_totals";
+    static final String COL_TOTAL_USER_ID = "user_id";
+    static final String COL_TOTAL_CATEGORY_ID = "category_id";
+    // Category name, versions 8-10
+    static final String COL_TOTAL_CATEGORY_V8 = "category";
+    static final String COL_TOTAL_PERIOD = "period";
+    static final String COL_TOTAL_AMOUNT = "total";
+    static final String COL_TOTAL_COUNT = "count";
+    // The only period kept so far; budgets apply to all expenses regardless of date
+    static final long PERIOD_ALL_TIME = 0;
+
+    // Daily totals table (v13): SUM/COUNT (and, since v14, MIN/MAX amount) of expenses per user, day
+    // and category, maintained by triggers like spend_totals and checked by checkRollups()
+    static final String TABLE_DAILY_TOTALS = "daily_totals";
+    static final String COL_DAILY_USER_ID = "user_id";
+    static final String COL_DAILY_DAY = "day"; // Epoch day, see DateUtils
+    static final String COL_DAILY_CATEGORY_ID = "category_id";
+    static final String COL_DAILY_AMOUNT = "total";
+    static final String COL_DAILY_COUNT = "count";
+    static final String COL_DAILY_MIN = "min_cents";
+    static final String COL_DAILY_MAX = "max_cents";
+
+    // Monthly totals table (v14): the daily totals rolled up per calendar month, same columns
+    static final String TABLE_MONTHLY_TOTALS = "monthly_totals";
+    static final String COL_MONTHLY_USER_ID = "user_id";
+    static final String COL_MONTHLY_MONTH = "month"; // Epoch day of the month's first day
+    static final String COL_MONTHLY_CATEGORY_ID = "category_id";
+    static final String COL_MONTHLY_AMOUNT = "total";
+    static final String COL_MONTHLY_COUNT = "count";
+    static final String COL_MONTHLY_MIN = "min_cents";
+    static final String COL_MONTHLY_MAX = "max_cents";
+
+    // Full-text index over expense notes and category names (v9), docid = expense id. Holds its own
+    // copy of the text since v11, as expenses no longer store the category name.
+    static final String TABLE_EXPENSES_FTS = "expenses_fts";
+    // Weight of a match in each indexed column, in fts4 column order (note, category)
+    private static final double[] SEARCH_COLUMN_WEIGHTS = {1.0, 2.0};
+
+    // Rows touched per transaction by runPendingBackfills()
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private static volatile DatabaseHelper instance;
+
+    // Number of times the database file has been opened in this process (diagnostics/benchmarks)
+    private static final AtomicInteger connectionOpenCount = new AtomicInteger();
 
     private Context context;
+    // Serializes loads of CategoryCache so a reload never replaces a newer snapshot with an older one
+    private final Object categoryCacheLock = new Object();
+    // SQL text of findExpenses()/summarizeExpenses() statements, by query shape
+    private final ExpenseQueryCompiler queryCompiler = new ExpenseQueryCompiler();
+    // Set when onUpgrade() migrated the schema or staged rows were moved; reported once by runPendingBackfills()
+    private volatile boolean upgraded;
+    // Set by onOpen() while a migration's staging table exists (see getWritableDatabase())
+    private volatile boolean rowsStaged;
     
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Opens a helper on a database file other than the app's own. Only for tests (e.g. upgrading a
+     * synthetic old-version file); the app always goes through {@link #getInstance(Context)}.
+     */
+    @VisibleForTesting
+    DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
         this.context = context;
+        // WAL lets readers on other threads proceed while a write is in progress
+        setWriteAheadLoggingEnabled(true);
         Log.d("DatabaseHelper", "DatabaseHelper constructor called");
     }
 
+    /**
+     * Returns the process-wide DatabaseHelper, creating it on first call.
+     * Always bound to the application context so no Activity is leaked.
+     *
+     * @param context Any context; only its application context is retained
+     * @return The shared DatabaseHelper
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        DatabaseHelper local = instance;
+        if (local == null) {
+            synchronized (DatabaseHelper.class) {
+                local = instance;
+                if (local == null) {
+                    local = new DatabaseHelper(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Closes the shared connection, if one was ever opened.
+     * The next {@link #getInstance(Context)} call transparently reopens it on first query.
+     */
+    public static void closeInstance() {
+        synchronized (DatabaseHelper.class) {
+            if (instance != null) {
+                instance.close();
+                Log.d("DatabaseHelper", "Shared database connection closed");
+            }
+        }
+    }
+
+    /**
+     * @return How many times the database file has been opened since process start
+     */
+    public static int getConnectionOpenCount() {
+        return connectionOpenCount.get();
+    }
+
     /**
      * Called when the database is created for the first time.
      * This is where the creation of tables and the initial population of the tables should happen.
+     *
+     * The tables are created as they were in schema version 5 and then every step in
+     * {@link Migrations#ALL} is applied, exactly as for an upgraded database.
      * 
      * We enable foreign keys to ensure data integrity (e.g., expenses must belong to a valid user).
      *
@@ -85,8 +253,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             String createExpensesTable = "CREATE TABLE " + TABLE_EXPENSES + " (" +
                     COL_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
                     COL_EXPENSE_USER_ID + " INTEGER NOT NULL, " +
-                    COL_EXPENSE_CATEGORY + " TEXT NOT NULL, " +
-                    COL_EXPENSE_AMOUNT + " REAL NOT NULL, " +
+                    COL_EXPENSE_CATEGORY_V5 + " TEXT NOT NULL, " +
+                    COL_EXPENSE_AMOUNT_V5 + " REAL NOT NULL, " +
                     COL_EXPENSE_NOTE + " TEXT, " +
                     COL_EXPENSE_DATE + " TEXT, " +
                     COL_EXPENSE_IMAGE_URI + " TEXT, " +
@@ -97,12 +265,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             // Create budgets table
             String createBudgetsTable = "CREATE TABLE " + TABLE_BUDGETS + " (" +
                     COL_BUDGET_USER_ID + " INTEGER NOT NULL, " +
-                    COL_BUDGET_CATEGORY + " TEXT NOT NULL, " +
-                    COL_BUDGET_LIMIT + " REAL NOT NULL, " +
-                    "PRIMARY KEY(" + COL_BUDGET_USER_ID + ", " + COL_BUDGET_CATEGORY + "), " +
+                    COL_BUDGET_CATEGORY_V5 + " TEXT NOT NULL, " +
+                    COL_BUDGET_LIMIT_V5 + " REAL NOT NULL, " +
+                    "PRIMARY KEY(" + COL_BUDGET_USER_ID + ", " + COL_BUDGET_CATEGORY_V5 + "), " +
                     "FOREIGN KEY(" + COL_BUDGET_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COL_USER_ID + "))";
             db.execSQL(createBudgetsTable);
             Log.d("DatabaseHelper", "Budgets table created");
+
+            applyMigrations(db, Migrations.BASE_VERSION, DATABASE_VERSION);
             Log.d("DatabaseHelper", "Database created successfully");
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error creating database: " + e.getMessage(), e);
@@ -114,17 +284,60 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onOpen(SQLiteDatabase db) {
         super.onOpen(db);
+        connectionOpenCount.incrementAndGet();
         // Enable foreign keys every time database is opened
         db.execSQL("PRAGMA foreign_keys = ON");
+        // Room for every shape of compiled ExpenseQuery next to the fixed statements (default is 25)
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+        rowsStaged = Migrations.hasStagingTables(db);
+    }
+
+    /**
+     * Opens the database, upgrading it if needed. After an upgrade that moved rows into a staging
+     * table (see {@link Migration#stagesRows()}), the first caller also waits for the move to finish,
+     * so no query ever runs against a table still missing some of its rows. Every database call is
+     * made off the main thread, where the wait only delays the screen's first load.
+     */
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        SQLiteDatabase db = super.getWritableDatabase();
+        if (rowsStaged) moveStagedRows(db);
+        return db;
+    }
+
+    @Override
+    public SQLiteDatabase getReadableDatabase() {
+        SQLiteDatabase db = super.getReadableDatabase();
+        if (rowsStaged) moveStagedRows(db);
+        return db;
+    }
+
+    // Callers arriving meanwhile block on the lock and find the move done
+    private synchronized void moveStagedRows(SQLiteDatabase db) {
+        if (!rowsStaged) return;
+        int batches = 0;
+        for (Migration migration : Migrations.ALL) {
+            if (migration.stagesRows()) batches += runBackfill(db, migration);
+        }
+        rowsStaged = false;
+        if (batches > 0) {
+            upgraded = true;
+            reloadCategoryCache(db);
+            TableVersions.getInstance().bumpAll();
+        }
     }
 
     /**
      * Called when the database needs to be upgraded.
      * This happens when the DATABASE_VERSION is incremented.
-     * 
-     * Current strategy: Drop all existing tables and recreate them.
-     * logic: This is a destructive upgrade (data loss). In a production app,
-     * you would typically write ALTER TABLE statements to preserve data.
+     *
+     * Every step in {@link Migrations#ALL} newer than oldVersion is applied in order, each in its own
+     * transaction, so existing rows are kept. SQLiteOpenHelper wraps the whole call in an outer
+     * transaction: if any step throws, nothing is committed and the upgrade is retried on next open.
+     * Row-by-row data work is not done here; see {@link #runPendingBackfills()}.
+     *
+     * Databases older than {@link Migrations#BASE_VERSION} predate the registry and are dropped
+     * and recreated (data loss), as before.
      *
      * @param db The database.
      * @param oldVersion The old database version.
@@ -133,13 +346,88 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.d("DatabaseHelper", "Upgrading database from version " + oldVersion + " to " + newVersion);
-        // Drop all tables and recreate
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BUDGETS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        onCreate(db);
+        if (oldVersion < Migrations.BASE_VERSION) {
+            // Drop all tables and recreate
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES_FTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SPEND_TOTALS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_DAILY_TOTALS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_MONTHLY_TOTALS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_BUDGETS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+            onCreate(db);
+            Log.d("DatabaseHelper", "Database upgrade completed");
+            return;
+        }
+        applyMigrations(db, oldVersion, newVersion);
+        upgraded = true;
         Log.d("DatabaseHelper", "Database upgrade completed");
     }
+
+    private void applyMigrations(SQLiteDatabase db, int fromVersion, int toVersion) {
+        for (Migration migration : Migrations.ALL) {
+            if (migration.version <= fromVersion || migration.version > toVersion) continue;
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                migration.migrate(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.d("DatabaseHelper", "Migrated to version " + migration.version + " in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Runs the data backfills of every migration until none has work left.
+     * Each batch of {@value #BACKFILL_BATCH_SIZE} rows commits in its own short transaction, so the
+     * write lock is never held for long and an interrupted run simply resumes on the next start.
+     * Readers are told every table changed after each backfill that did work.
+     *
+     * Safe to call on every start: finished backfills return immediately.
+     * Must not be called on the main thread.
+     *
+     * @return True if the schema was upgraded since the last call or any backfill had rows left, i.e.
+     * if the derived tables are worth verifying (see {@link #checkSpendTotals(boolean)})
+     */
+    public synchronized boolean runPendingBackfills() {
+        SQLiteDatabase db = this.getWritableDatabase(); // Runs onUpgrade() first if the schema is old
+        boolean changed = upgraded;
+        upgraded = false;
+        for (Migration migration : Migrations.ALL) {
+            if (runBackfill(db, migration) > 0) {
+                changed = true;
+                TableVersions.getInstance().bumpAll();
+            }
+        }
+        return changed;
+    }
+
+    // Runs one migration's backfill to the end, a batch per transaction; returns the number of batches
+    private static int runBackfill(SQLiteDatabase db, Migration migration) {
+        long start = System.nanoTime();
+        long resumeAfter = 0;
+        int batches = 0;
+        while (true) {
+            db.beginTransaction();
+            try {
+                resumeAfter = migration.backfill(db, resumeAfter, BACKFILL_BATCH_SIZE);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (resumeAfter == Migration.DONE) break;
+            batches++;
+        }
+        if (batches > 0) {
+            Log.d("DatabaseHelper", "Backfill for version " + migration.version + ": " + batches +
+                    " batches in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return batches;
+    }
     
     // Method to completely reset the database
     /**
@@ -151,24 +439,30 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void resetDatabase(Context context) {
         Log.d("DatabaseHelper", "=== RESETTING DATABASE COMPLETELY ===");
         try {
-            // Close any open database connections first
+            // Close the shared connection first so the file can be deleted
             SQLiteDatabase db = null;
             try {
-                // Get writable database to close it properly if open
                 db = this.getWritableDatabase();
                 if (db != null && db.isOpen()) {
                     // Drop all tables
+                    db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES_FTS);
+                    db.execSQL("DROP TABLE IF EXISTS " + TABLE_SPEND_TOTALS);
+                    db.execSQL("DROP TABLE IF EXISTS " + TABLE_DAILY_TOTALS);
+                    db.execSQL("DROP TABLE IF EXISTS " + TABLE_MONTHLY_TOTALS);
+                    db.execSQL("DROP TABLE IF EXISTS " + Migrations.TABLE_BUDGETS_V10);
+                    db.execSQL("DROP TABLE IF EXISTS " + Migrations.TABLE_EXPENSES_V10);
+                    db.execSQL("DROP TABLE IF EXISTS " + Migrations.TABLE_BUDGETS_V5);
+                    db.execSQL("DROP TABLE IF EXISTS " + Migrations.TABLE_EXPENSES_V5);
                     db.execSQL("DROP TABLE IF EXISTS " + TABLE_BUDGETS);
                     db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
+                    db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
                     db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
                     Log.d("DatabaseHelper", "All tables dropped");
-                    db.close();
                 }
             } catch (Exception e) {
                 Log.e("DatabaseHelper", "Error dropping tables: " + e.getMessage());
-                if (db != null && db.isOpen()) {
-                    db.close();
-                }
+            } finally {
+                this.close();
             }
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error closing database: " + e.getMessage());
@@ -181,14 +475,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error deleting database file: " + e.getMessage(), e);
         }
+        CategoryCache.getInstance().invalidate();
+        TableVersions.getInstance().bumpAll();
         
-        // Recreate database by getting a new instance
+        // Reopen the shared connection; SQLiteOpenHelper runs onCreate on the fresh file
         try {
             SQLiteDatabase newDb = this.getWritableDatabase();
             if (newDb != null) {
-                onCreate(newDb);
                 Log.d("DatabaseHelper", "Database recreated successfully");
-                newDb.close();
             }
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error recreating database: " + e.getMessage(), e);
@@ -302,6 +596,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             try {
                 id = db.insertOrThrow(TABLE_USERS, null, values);
                 Log.d("DatabaseHelper", "Signup successful for user: " + trimmedUsername + " with ID: " + id);
+                DefaultCategories.insertFor(db, id);
+                reloadCategoryCache(db);
             } catch (SQLException e) {
                 Log.e("DatabaseHelper", "SQLException during insert: " + e.getMessage(), e);
                 // Check if it's a unique constraint violation (username already exists)
@@ -581,86 +877,601 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Uses ContentValues to safely bind parameters and avoid SQL injection.
      *
      * @param userId   The ID of the user owning the expense
-     * @param category Expense category
-     * @param amount   Expense amount
+     * @param category Category name; created (hidden from pickers) if the user has no such category
+     * @param amountCents Expense amount in cents
      * @param note     Optional note
-     * @param date     Date of expense
+     * @param epochDay Date of expense as an epoch day
      * @param imageUri Optional receipt image URI
      * @return The row ID of the newly inserted expense, or -1 if an error occurred
      */
-    public long addExpense(int userId, String category, double amount, String note, String date, String imageUri) {
+    public long addExpense(int userId, String category, long amountCents, String note, long epochDay, String imageUri) {
         SQLiteDatabase db = this.getWritableDatabase();
+        int categoryId = categoryIdFor(db, userId, category);
+        if (categoryId < 0) return -1;
         ContentValues values = new ContentValues();
         values.put(COL_EXPENSE_USER_ID, userId);
-        values.put(COL_EXPENSE_CATEGORY, category);
-        values.put(COL_EXPENSE_AMOUNT, amount);
+        values.put(COL_EXPENSE_CATEGORY_ID, categoryId);
+        values.put(COL_EXPENSE_AMOUNT, amountCents);
         values.put(COL_EXPENSE_NOTE, note);
-        values.put(COL_EXPENSE_DATE, date);
+        values.put(COL_EXPENSE_DAY, epochDay);
         values.put(COL_EXPENSE_IMAGE_URI, imageUri);
 
         long id = db.insert(TABLE_EXPENSES, null, values);
-        db.close();
+        if (id > 0) TableVersions.getInstance().bump(TableVersions.EXPENSES);
         return id;
     }
 
     /**
-     * Retrieves all expenses for a user.
-     * 
-     * IMPORTANT: This method manually constructs a JSON string result.
-     * Ideally, we would return a Cursor or a List of objects, but this approach
-     * demonstrates how to format raw data for manual serialization at the database layer.
-     * 
+     * Retrieves all expenses for a user, newest date first (latest entry first within a day).
+     * Rows are mapped straight from the cursor into Expense objects by {@link ExpenseRowMapper}.
+     *
      * @param userId The user ID
-     * @return A JSON string representing the list of expenses
+     * @return The user's expenses (empty if none)
+     */
+    public List<Expense> getExpenses(int userId) {
+        return queryExpenses(COL_EXPENSE_USER_ID + "=?", new String[]{String.valueOf(userId)});
+    }
+
+    /**
+     * Retrieves one page of a user's expenses in the given order, using keyset pagination: the next
+     * page starts strictly after the last expense of the previous one, so each page is an index range
+     * read no matter how deep the user has scrolled, and rows added or removed meanwhile never shift
+     * the page boundaries.
+     *
+     * The date orders read (date, id) from the date index and the amount orders (amount, date, id) from
+     * the amount index. The category orders walk the user's categories by name and, within each, read
+     * its expenses newest first from the (category, date) index; a later page first finishes the
+     * category the previous one stopped in, then moves on to the following categories.
+     *
+     * Rows still waiting for the version 7 date backfill (NULL date_day) are not reachable past
+     * the first page until it completes.
+     *
+     * @param userId   The user ID
+     * @param order    The order to read the expenses in
+     * @param after    Last expense of the previous page, or null for the first page
+     * @param pageSize Maximum number of expenses to return
+     * @return The page, with hasMore set if further expenses follow
+     */
+    public ExpensePage getExpensePage(int userId, ExpenseOrder order, Expense after, int pageSize) {
+        // One extra row tells whether another page follows
+        int limit = pageSize + 1;
+        List<Expense> expenses;
+        switch (order) {
+            case CATEGORY_A_Z:
+            case CATEGORY_Z_A:
+                expenses = getCategoryOrderedPage(userId, order == ExpenseOrder.CATEGORY_Z_A, after, limit);
+                break;
+            case HIGHEST_FIRST:
+            case LOWEST_FIRST:
+                expenses = getKeysetPage(userId, order == ExpenseOrder.HIGHEST_FIRST, after, limit,
+                        COL_EXPENSE_AMOUNT, COL_EXPENSE_DAY, COL_EXPENSE_ID);
+                break;
+            case OLDEST_FIRST:
+            case NEWEST_FIRST:
+            default:
+                expenses = getKeysetPage(userId, order != ExpenseOrder.OLDEST_FIRST, after, limit,
+                        COL_EXPENSE_DAY, COL_EXPENSE_ID);
+                break;
+        }
+        boolean hasMore = expenses.size() > pageSize;
+        if (hasMore) {
+            expenses.remove(pageSize);
+        }
+        return new ExpensePage(expenses, hasMore);
+    }
+
+    // A page of a user's expenses ordered by the given expense columns, all in the same direction
+    private List<Expense> getKeysetPage(int userId, boolean descending, Expense after, int limit, String... columns) {
+        StringBuilder selection = new StringBuilder(COL_EXPENSE_USER_ID + "=?");
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(String.valueOf(userId));
+        if (after != null) {
+            selection.append(" AND ");
+            appendKeysetBound(selection, selectionArgs, descending, after, columns, 0);
+        }
+        String direction = descending ? " DESC" : " ASC";
+        StringBuilder orderBy = new StringBuilder();
+        for (String column : columns) {
+            if (orderBy.length() > 0) orderBy.append(", ");
+            orderBy.append(column).append(direction);
+        }
+        return queryExpenses(selection.toString(), selectionArgs.toArray(new String[0]),
+                orderBy.toString(), String.valueOf(limit));
+    }
+
+    /**
+     * Appends "rows strictly after the key of {@code after}" over columns[from..], e.g. for (date_day, id)
+     * newest first: {@code date_day<=? AND (date_day<? OR id<?)}. The non-strict bound on the leading
+     * column is what lets SQLite read it as an index range; SQLite before 3.15 has no row values to
+     * write the tuple comparison directly.
      */
-    public String getExpenses(int userId) {
+    private static void appendKeysetBound(StringBuilder selection, List<String> args, boolean descending,
+                                          Expense after, String[] columns, int from) {
+        String cmp = descending ? "<" : ">";
+        String column = columns[from];
+        String value = keyOf(after, column);
+        if (from == columns.length - 1) {
+            selection.append(column).append(cmp).append("?");
+            args.add(value);
+            return;
+        }
+        selection.append(column).append(cmp).append("=? AND (").append(column).append(cmp).append("? OR ");
+        args.add(value);
+        args.add(value);
+        boolean nested = from < columns.length - 2;
+        if (nested) selection.append("(");
+        appendKeysetBound(selection, args, descending, after, columns, from + 1);
+        if (nested) selection.append(")");
+        selection.append(")");
+    }
+
+    private static String keyOf(Expense expense, String column) {
+        switch (column) {
+            case COL_EXPENSE_AMOUNT:
+                return String.valueOf(expense.amountCents);
+            case COL_EXPENSE_DAY:
+                return String.valueOf(expense.epochDay);
+            default:
+                return String.valueOf(expense.id);
+        }
+    }
+
+    /**
+     * A page of a user's expenses ordered by category name (ignoring case, then by category id so equal
+     * names stay apart), newest first within each category.
+     */
+    private List<Expense> getCategoryOrderedPage(int userId, boolean descending, Expense after, int limit) {
+        List<Expense> expenses = new ArrayList<>();
+        String[] nameArgs = {String.valueOf(userId)};
+        String categoryBound = "";
+        if (after != null) {
+            // The rest of the category the previous page stopped in
+            String day = String.valueOf(after.epochDay);
+            expenses.addAll(queryExpenses(
+                    COL_EXPENSE_USER_ID + "=? AND " + COL_EXPENSE_CATEGORY_ID + "=? AND " +
+                    COL_EXPENSE_DAY + "<=? AND (" + COL_EXPENSE_DAY + "<? OR " + COL_EXPENSE_ID + "<?)",
+                    new String[]{String.valueOf(userId), String.valueOf(after.categoryId), day, day, String.valueOf(after.id)},
+                    COL_EXPENSE_DAY + " DESC, " + COL_EXPENSE_ID + " DESC", String.valueOf(limit)));
+            if (expenses.size() >= limit) return expenses;
+
+            String cmp = descending ? "<" : ">";
+            String name = after.category != null ? after.category : "";
+            categoryBound = " AND c." + COL_CATEGORY_NAME + " COLLATE NOCASE" + cmp + "=? AND (c." +
+                    COL_CATEGORY_NAME + " COLLATE NOCASE" + cmp + "? OR c." + COL_CATEGORY_ID + cmp + "?)";
+            nameArgs = new String[]{nameArgs[0], name, name, String.valueOf(after.categoryId)};
+        }
+
+        // CROSS JOIN keeps categories as the outer loop, so rows come out in order with no sort step
+        String direction = descending ? " DESC" : " ASC";
+        StringBuilder projection = new StringBuilder();
+        for (String column : ExpenseRowMapper.INSTANCE.getProjection()) {
+            if (projection.length() > 0) projection.append(", ");
+            projection.append("e.").append(column);
+        }
         SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
+        Cursor cursor = db.rawQuery("SELECT " + projection + " FROM " + TABLE_CATEGORIES + " c CROSS JOIN " +
+                TABLE_EXPENSES + " e ON e." + COL_EXPENSE_USER_ID + " = c." + COL_CATEGORY_USER_ID +
+                " AND e." + COL_EXPENSE_CATEGORY_ID + " = c." + COL_CATEGORY_ID +
+                " WHERE c." + COL_CATEGORY_USER_ID + "=?" + categoryBound +
+                " ORDER BY c." + COL_CATEGORY_NAME + " COLLATE NOCASE" + direction + ", c." + COL_CATEGORY_ID + direction +
+                ", e." + COL_EXPENSE_DAY + " DESC, e." + COL_EXPENSE_ID + " DESC" +
+                " LIMIT " + (limit - expenses.size()), nameArgs);
+        if (cursor == null) return expenses;
+        try {
+            expenses.addAll(ExpenseRowMapper.INSTANCE.mapAll(cursor));
+        } finally {
+            cursor.close();
+        }
+        return expenses;
+    }
+
+    private List<Expense> queryExpenses(String selection, String[] selectionArgs) {
+        return queryExpenses(selection, selectionArgs, COL_EXPENSE_DAY + " DESC, " + COL_EXPENSE_ID + " DESC", null);
+    }
+
+    private List<Expense> queryExpenses(String selection, String[] selectionArgs, String orderBy, String limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
         Cursor cursor = db.query(TABLE_EXPENSES,
-                new String[]{COL_EXPENSE_ID, COL_EXPENSE_CATEGORY, COL_EXPENSE_AMOUNT, COL_EXPENSE_NOTE, COL_EXPENSE_DATE, COL_EXPENSE_IMAGE_URI},
-                COL_EXPENSE_USER_ID + "=?",
-                new String[]{String.valueOf(userId)},
-                null, null, COL_EXPENSE_ID + " DESC");
+                ExpenseRowMapper.INSTANCE.getProjection(),
+                selection,
+                selectionArgs,
+                null, null, orderBy, limit);
+        if (cursor == null) return new ArrayList<>();
+        try {
+            return ExpenseRowMapper.INSTANCE.mapAll(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Retrieves a user's expenses matching a query, compiled to one SQL statement (see
+     * {@link ExpenseQueryCompiler}) so every condition is applied by SQLite.
+     *
+     * Text is matched through the full-text index over notes and categories: every word of it is
+     * matched as a prefix ("lun caf" finds "Lunch at the cafe"), and all words must match. Without an
+     * explicit order the matches are ranked by a tf-idf style score computed from FTS matchinfo, with
+     * category hits weighted above note hits; ties go to the newer expense.
+     *
+     * @param userId The user ID
+     * @param query  Conditions and order
+     * @param limit  Maximum number of expenses to return
+     * @param signal Aborts the query when cancelled (it then throws OperationCanceledException); may be null
+     * @return The matching expenses in the query's order (empty if none, or if the text has no words)
+     */
+    public List<Expense> findExpenses(int userId, ExpenseQuery query, int limit, CancellationSignal signal) {
+        String match = query.text != null ? toPrefixQuery(query.text) : null;
+        if (match != null && match.isEmpty()) return new ArrayList<>();
+        ExpenseQueryCompiler.Statement statement = queryCompiler.rows(userId, query, match, limit);
+        SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
+        Cursor cursor = db.rawQuery(statement.sql, statement.args, signal);
+        if (cursor == null) return new ArrayList<>();
+        try {
+            if (!statement.ranked) return ExpenseRowMapper.INSTANCE.mapAll(cursor);
+
+            // Scores first, then the rows themselves from the same cursor
+            int matchinfo = cursor.getColumnCount() - 1;
+            double[] scores = new double[Math.max(cursor.getCount(), 0)];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                scores[i] = searchScore(cursor.getBlob(matchinfo));
+            }
+            cursor.moveToPosition(-1);
+            List<Expense> matches = ExpenseRowMapper.INSTANCE.mapAll(cursor);
+            Integer[] order = new Integer[matches.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // Ties go to the newer expense
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                    ? Double.compare(scores[b], scores[a])
+                    : Integer.compare(matches.get(b).id, matches.get(a).id));
+            List<Expense> expenses = new ArrayList<>(Math.min(limit, order.length));
+            for (int i = 0; i < order.length && i < limit; i++) {
+                expenses.add(matches.get(order[i]));
+            }
+            return expenses;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Sums a user's expenses matching a query per category, in one SQL statement; the query's order
+     * is ignored. Like {@link #getSpendingSummary(int)} for the matching expenses only. A query with
+     * no condition besides a complete date range (or none at all) is summed from the rollup tables.
+     *
+     * @param userId The user ID
+     * @param query  Conditions
+     * @param signal Aborts the query when cancelled (it then throws OperationCanceledException); may be null
+     * @return Per-category totals and counts plus the overall total (all zero if nothing matches)
+     */
+    public SpendingSummary summarizeExpenses(int userId, ExpenseQuery query, CancellationSignal signal) {
+        String match = query.text != null ? toPrefixQuery(query.text) : null;
+        if (match != null && match.isEmpty()) return new SpendingSummary(0, 0, new ArrayList<>());
+        if (match == null && query.minCents == null && query.maxCents == null && query.categoryIds == null &&
+                query.hasReceipt == null && (query.fromEpochDay == null) == (query.toEpochDay == null)) {
+            return querySpendingSummary(userId, query.fromEpochDay, query.toEpochDay, signal);
+        }
+        ExpenseQueryCompiler.Statement statement = queryCompiler.totals(userId, query, match);
+        SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
+        return readSpendingSummary(db.rawQuery(statement.sql, statement.args, signal));
+    }
 
-        StringBuilder json = new StringBuilder("[");
-        if (cursor != null) {
+    /**
+     * Turns free text into an FTS MATCH expression: each word (see {@link SearchText#terms(String)})
+     * becomes a prefix term, everything else (including FTS operators and quotes) is dropped.
+     */
+    static String toPrefixQuery(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String term : SearchText.terms(text)) {
+            if (match.length() > 0) match.append(' ');
+            match.append(term).append('*');
+        }
+        return match.toString();
+    }
+
+    // matchinfo 'pcnx': phrase count, column count, row count, then per (phrase, column):
+    // hits in this row, hits in all rows, rows with at least one hit
+    private static double searchScore(byte[] matchinfo) {
+        IntBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0), columns = info.get(1), rows = info.get(2);
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int base = 3 + 3 * (p * columns + c);
+                int hits = info.get(base), rowsWithHits = info.get(base + 2);
+                if (hits == 0) continue;
+                double weight = c < SEARCH_COLUMN_WEIGHTS.length ? SEARCH_COLUMN_WEIGHTS[c] : 1.0;
+                score += weight * hits * Math.log(1.0 + (double) rows / Math.max(1, rowsWithHits));
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Retrieves a single expense by primary key.
+     *
+     * @param expenseId The expense ID
+     * @return The expense, or null if it does not exist
+     */
+    public Expense getExpense(int expenseId) {
+        List<Expense> expenses = queryExpenses(COL_EXPENSE_ID + "=?", new String[]{String.valueOf(expenseId)});
+        return expenses.isEmpty() ? null : expenses.get(0);
+    }
+
+    /**
+     * Returns how much a user has spent in one category, read from the running totals in
+     * {@value #TABLE_SPEND_TOTALS} with a single primary-key lookup.
+     *
+     * @param userId   The user ID
+     * @param category The category name
+     * @return The total spent in cents, or 0 if the category has no expenses
+     */
+    public long getCategorySpend(int userId, String category) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
+        Category found = CategoryCache.getInstance().find(userId, category);
+        if (found == null) return 0;
+        Cursor cursor = db.query(TABLE_SPEND_TOTALS,
+                new String[]{COL_TOTAL_AMOUNT},
+                COL_TOTAL_USER_ID + "=? AND " + COL_TOTAL_CATEGORY_ID + "=? AND " + COL_TOTAL_PERIOD + "=?",
+                new String[]{String.valueOf(userId), String.valueOf(found.id), String.valueOf(PERIOD_ALL_TIME)},
+                null, null, null);
+        if (cursor == null) return 0;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Consistency check for {@value #TABLE_SPEND_TOTALS}: recomputes every total from the expenses
+     * table and compares it with the maintained value. This reads every expense, so it is only run
+     * after a schema upgrade or backfill; the comparison is a single read and takes no write lock.
+     *
+     * @param repair If true and anything is off, the table is rebuilt from scratch in one transaction
+     * @return The number of (user, category) totals that were wrong, missing or stale
+     */
+    public int checkSpendTotals(boolean repair) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        // Full outer join emulated with two LEFT JOINs (RIGHT/FULL JOIN need SQLite 3.39)
+        String expected = "SELECT " + COL_EXPENSE_USER_ID + " AS u, " + COL_EXPENSE_CATEGORY_ID + " AS c, " +
+                "SUM(" + COL_EXPENSE_AMOUNT + ") AS total, COUNT(*) AS n FROM " + TABLE_EXPENSES +
+                " GROUP BY " + COL_EXPENSE_USER_ID + ", " + COL_EXPENSE_CATEGORY_ID;
+        String actual = "SELECT " + COL_TOTAL_USER_ID + " AS u, " + COL_TOTAL_CATEGORY_ID + " AS c, " +
+                COL_TOTAL_AMOUNT + " AS total, " + COL_TOTAL_COUNT + " AS n FROM " + TABLE_SPEND_TOTALS +
+                " WHERE " + COL_TOTAL_PERIOD + "=" + PERIOD_ALL_TIME;
+        int mismatches = (int) DatabaseUtils.longForQuery(db,
+                "SELECT (SELECT COUNT(*) FROM (" + expected + ") e LEFT JOIN (" + actual + ") a " +
+                        "ON a.u = e.u AND a.c = e.c " +
+                        "WHERE a.n IS NULL OR a.n != e.n OR a.total != e.total) + " +
+                "(SELECT COUNT(*) FROM (" + actual + ") a LEFT JOIN (" + expected + ") e " +
+                        "ON a.u = e.u AND a.c = e.c WHERE e.n IS NULL)", null);
+        if (mismatches > 0) {
+            Log.w("DatabaseHelper", "spend_totals has " + mismatches + " inconsistent rows" +
+                    (repair ? ", rebuilding" : ""));
+            if (repair) {
+                db.beginTransaction();
+                try {
+                    db.delete(TABLE_SPEND_TOTALS, null, null);
+                    db.execSQL("INSERT INTO " + TABLE_SPEND_TOTALS + "(" + COL_TOTAL_USER_ID + ", " +
+                            COL_TOTAL_CATEGORY_ID + ", " + COL_TOTAL_PERIOD + ", " + COL_TOTAL_AMOUNT + ", " +
+                            COL_TOTAL_COUNT + ") SELECT u, c, " + PERIOD_ALL_TIME + ", total, n FROM (" + expected + ")");
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Consistency check for {@value #TABLE_DAILY_TOTALS} and {@value #TABLE_MONTHLY_TOTALS}: recomputes
+     * every row from the expenses table and compares it with the maintained one, one user at a time.
+     * Like {@link #checkSpendTotals(boolean)} it is only run after a schema upgrade or backfill; the
+     * comparisons are reads and take no write lock.
+     *
+     * @param repair If true, the rollups of a user with anything off are rebuilt from that user's
+     *               expenses, each user in its own transaction
+     * @return The number of daily and monthly rows that were wrong, missing or stale
+     */
+    public int checkRollups(boolean repair) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        List<Integer> userIds = new ArrayList<>();
+        Cursor users = db.query(TABLE_USERS, new String[]{COL_USER_ID}, null, null, null, null, null);
+        try {
+            while (users.moveToNext()) {
+                userIds.add(users.getInt(0));
+            }
+        } finally {
+            users.close();
+        }
+
+        String expectedDaily = "SELECT " + COL_EXPENSE_DAY + " AS k, " + COL_EXPENSE_CATEGORY_ID + " AS c, " +
+                "SUM(" + COL_EXPENSE_AMOUNT + ") AS total, COUNT(*) AS n, MIN(" + COL_EXPENSE_AMOUNT + ") AS lo, " +
+                "MAX(" + COL_EXPENSE_AMOUNT + ") AS hi FROM " + TABLE_EXPENSES + " WHERE " + COL_EXPENSE_USER_ID + "=? AND " +
+                COL_EXPENSE_DAY + " IS NOT NULL GROUP BY " + COL_EXPENSE_DAY + ", " + COL_EXPENSE_CATEGORY_ID;
+        String actualDaily = "SELECT " + COL_DAILY_DAY + " AS k, " + COL_DAILY_CATEGORY_ID + " AS c, " +
+                COL_DAILY_AMOUNT + " AS total, " + COL_DAILY_COUNT + " AS n, " + COL_DAILY_MIN + " AS lo, " +
+                COL_DAILY_MAX + " AS hi FROM " + TABLE_DAILY_TOTALS + " WHERE " + COL_DAILY_USER_ID + "=?";
+        String expectedMonthly = "SELECT " + monthOf(COL_EXPENSE_DAY) + " AS k, " + COL_EXPENSE_CATEGORY_ID + " AS c, " +
+                "SUM(" + COL_EXPENSE_AMOUNT + ") AS total, COUNT(*) AS n, MIN(" + COL_EXPENSE_AMOUNT + ") AS lo, " +
+                "MAX(" + COL_EXPENSE_AMOUNT + ") AS hi FROM " + TABLE_EXPENSES + " WHERE " + COL_EXPENSE_USER_ID + "=? AND " +
+                COL_EXPENSE_DAY + " IS NOT NULL GROUP BY k, " + COL_EXPENSE_CATEGORY_ID;
+        String actualMonthly = "SELECT " + COL_MONTHLY_MONTH + " AS k, " + COL_MONTHLY_CATEGORY_ID + " AS c, " +
+                COL_MONTHLY_AMOUNT + " AS total, " + COL_MONTHLY_COUNT + " AS n, " + COL_MONTHLY_MIN + " AS lo, " +
+                COL_MONTHLY_MAX + " AS hi FROM " + TABLE_MONTHLY_TOTALS + " WHERE " + COL_MONTHLY_USER_ID + "=?";
+
+        int mismatches = 0;
+        for (int userId : userIds) {
+            int wrong = countMismatches(db, expectedDaily, actualDaily, userId) +
+                    countMismatches(db, expectedMonthly, actualMonthly, userId);
+            if (wrong > 0) {
+                Log.w("DatabaseHelper", "Rollups of user " + userId + " have " + wrong + " inconsistent rows" +
+                        (repair ? ", rebuilding" : ""));
+                if (repair) {
+                    db.beginTransaction();
+                    try {
+                        rebuildRollups(db, userId);
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                }
+            }
+            mismatches += wrong;
+        }
+        return mismatches;
+    }
+
+    // Rows of (k, c, total, n, lo, hi) that differ between the two queries, each bound to the user
+    private static int countMismatches(SQLiteDatabase db, String expected, String actual, int userId) {
+        String user = String.valueOf(userId);
+        // Full outer join emulated with two LEFT JOINs, as in checkSpendTotals()
+        return (int) DatabaseUtils.longForQuery(db,
+                "SELECT (SELECT COUNT(*) FROM (" + expected + ") e LEFT JOIN (" + actual + ") a " +
+                        "ON a.k = e.k AND a.c = e.c " +
+                        "WHERE a.n IS NULL OR a.n != e.n OR a.total != e.total OR a.lo != e.lo OR a.hi != e.hi) + " +
+                "(SELECT COUNT(*) FROM (" + actual + ") a LEFT JOIN (" + expected + ") e " +
+                        "ON a.k = e.k AND a.c = e.c WHERE e.n IS NULL)",
+                new String[]{user, user, user, user});
+    }
+
+    // Recomputes one user's daily totals from their expenses, then the monthly totals from those
+    private static void rebuildRollups(SQLiteDatabase db, int userId) {
+        String[] user = {String.valueOf(userId)};
+        db.delete(TABLE_DAILY_TOTALS, COL_DAILY_USER_ID + "=?", user);
+        db.execSQL("INSERT INTO " + TABLE_DAILY_TOTALS + "(" + COL_DAILY_USER_ID + ", " + COL_DAILY_DAY + ", " +
+                COL_DAILY_CATEGORY_ID + ", " + COL_DAILY_AMOUNT + ", " + COL_DAILY_COUNT + ", " + COL_DAILY_MIN + ", " +
+                COL_DAILY_MAX + ") SELECT " + COL_EXPENSE_USER_ID + ", " + COL_EXPENSE_DAY + ", " + COL_EXPENSE_CATEGORY_ID +
+                ", SUM(" + COL_EXPENSE_AMOUNT + "), COUNT(*), MIN(" + COL_EXPENSE_AMOUNT + "), MAX(" + COL_EXPENSE_AMOUNT +
+                ") FROM " + TABLE_EXPENSES + " WHERE " + COL_EXPENSE_USER_ID + "=? AND " + COL_EXPENSE_DAY +
+                " IS NOT NULL GROUP BY " + COL_EXPENSE_DAY + ", " + COL_EXPENSE_CATEGORY_ID, user);
+        db.delete(TABLE_MONTHLY_TOTALS, COL_MONTHLY_USER_ID + "=?", user);
+        db.execSQL("INSERT INTO " + TABLE_MONTHLY_TOTALS + "(" + COL_MONTHLY_USER_ID + ", " + COL_MONTHLY_MONTH + ", " +
+                COL_MONTHLY_CATEGORY_ID + ", " + COL_MONTHLY_AMOUNT + ", " + COL_MONTHLY_COUNT + ", " + COL_MONTHLY_MIN + ", " +
+                COL_MONTHLY_MAX + ") SELECT " + COL_DAILY_USER_ID + ", " + monthOf(COL_DAILY_DAY) + " AS m, " +
+                COL_DAILY_CATEGORY_ID + ", SUM(" + COL_DAILY_AMOUNT + "), SUM(" + COL_DAILY_COUNT + "), MIN(" +
+                COL_DAILY_MIN + "), MAX(" + COL_DAILY_MAX + ") FROM " + TABLE_DAILY_TOTALS + " WHERE " +
+                COL_DAILY_USER_ID + "=? GROUP BY m, " + COL_DAILY_CATEGORY_ID, user);
+    }
+
+    // SQL for the first day of the month of an epoch-day column, as an epoch day; the key of monthly_totals
+    private static String monthOf(String dayColumn) {
+        return "CAST(strftime('%s', " + dayColumn + " * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400";
+    }
+
+    /**
+     * Sums a user's expenses per category from {@value #TABLE_MONTHLY_TOTALS}, so the cost depends on
+     * the months of history, not the number of expenses. The grand total and transaction count are
+     * added up from the per-category rows.
+     *
+     * @param userId The user ID
+     * @return Per-category totals, counts and smallest/largest amounts plus the overall total (all zero if no expenses)
+     */
+    public SpendingSummary getSpendingSummary(int userId) {
+        return querySpendingSummary(userId, null, null, null);
+    }
+
+    /**
+     * Same as {@link #getSpendingSummary(int)}, restricted to expenses dated within
+     * [fromEpochDay, toEpochDay]. Whole months inside the range are read from
+     * {@value #TABLE_MONTHLY_TOTALS} and the days before and after them from {@value #TABLE_DAILY_TOTALS},
+     * so a range costs at most a month's worth of days on either side plus one row per month.
+     */
+    public SpendingSummary getSpendingSummaryBetween(int userId, long fromEpochDay, long toEpochDay) {
+        return querySpendingSummary(userId, fromEpochDay, toEpochDay, null);
+    }
+
+    /**
+     * Sums the rollup rows of a user, for all time when the bounds are null.
+     */
+    private SpendingSummary querySpendingSummary(int userId, Long fromEpochDay, Long toEpochDay, CancellationSignal signal) {
+        String user = String.valueOf(userId);
+        String monthly = "SELECT " + COL_MONTHLY_CATEGORY_ID + ", " + COL_MONTHLY_AMOUNT + ", " + COL_MONTHLY_COUNT + ", " +
+                COL_MONTHLY_MIN + ", " + COL_MONTHLY_MAX + " FROM " + TABLE_MONTHLY_TOTALS + " WHERE " + COL_MONTHLY_USER_ID + "=?";
+        String daily = "SELECT " + COL_DAILY_CATEGORY_ID + ", " + COL_DAILY_AMOUNT + ", " + COL_DAILY_COUNT + ", " +
+                COL_DAILY_MIN + ", " + COL_DAILY_MAX + " FROM " + TABLE_DAILY_TOTALS + " WHERE " + COL_DAILY_USER_ID + "=? AND " +
+                COL_DAILY_DAY + " BETWEEN ? AND ?";
+        String rows;
+        String[] args;
+        if (fromEpochDay == null || toEpochDay == null) {
+            rows = monthly;
+            args = new String[]{user};
+        } else {
+            long from = fromEpochDay, to = toEpochDay;
+            // Whole months in the range: [firstMonth, endMonth)
+            long firstMonth = DateUtils.firstDayOfMonth(from) == from ? from : DateUtils.firstDayOfNextMonth(from);
+            long endMonth = DateUtils.firstDayOfMonth(to + 1);
+            if (firstMonth >= endMonth) {
+                rows = daily;
+                args = new String[]{user, String.valueOf(from), String.valueOf(to)};
+            } else {
+                rows = monthly + " AND " + COL_MONTHLY_MONTH + ">=? AND " + COL_MONTHLY_MONTH + "<? " +
+                        "UNION ALL " + daily + " UNION ALL " + daily;
+                args = new String[]{user, String.valueOf(firstMonth), String.valueOf(endMonth),
+                        user, String.valueOf(from), String.valueOf(firstMonth - 1),
+                        user, String.valueOf(endMonth), String.valueOf(to)};
+            }
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
+        return readSpendingSummary(db.rawQuery("SELECT " + COL_DAILY_CATEGORY_ID + ", SUM(" + COL_DAILY_AMOUNT + "), SUM(" +
+                COL_DAILY_COUNT + "), MIN(" + COL_DAILY_MIN + "), MAX(" + COL_DAILY_MAX + ") FROM (" + rows + ") GROUP BY " +
+                COL_DAILY_CATEGORY_ID, args, signal));
+    }
+
+    // Reads (category_id, sum, count, min, max) rows and closes the cursor; CategoryCache must be loaded
+    private static SpendingSummary readSpendingSummary(Cursor cursor) {
+        List<CategoryTotal> categories = new ArrayList<>();
+        long total = 0;
+        int count = 0;
+        CategoryCache cache = CategoryCache.getInstance();
+        if (cursor == null) return new SpendingSummary(0, 0, categories);
+        try {
             while (cursor.moveToNext()) {
-                if (json.length() > 1) json.append(",");
-                json.append("{")
-                    .append("\"id\":").append(cursor.getInt(0)).append(",")
-                    .append("\"category\":\"").append(cursor.getString(1) != null ? cursor.getString(1) : "").append("\",")
-                    .append("\"amount\":").append(cursor.getDouble(2)).append(",")
-                    .append("\"note\":\"").append(escapeJson(cursor.isNull(3) ? "" : cursor.getString(3))).append("\",")
-                    .append("\"date\":\"").append(escapeJson(cursor.isNull(4) ? "" : cursor.getString(4))).append("\",")
-                    .append("\"imageUri\":\"").append(escapeJson(cursor.isNull(5) ? "" : cursor.getString(5))).append("\"")
-                    .append("}");
+                int categoryId = cursor.getInt(0);
+                CategoryTotal category = new CategoryTotal(categoryId, cache.nameOf(categoryId), cursor.getLong(1),
+                        cursor.getInt(2), cursor.getLong(3), cursor.getLong(4));
+                total += category.amountCents;
+                count += category.count;
+                categories.add(category);
             }
+        } finally {
             cursor.close();
         }
-        json.append("]");
-        db.close();
-        return json.toString();
+        return new SpendingSummary(total, count, categories);
     }
 
-    public boolean updateExpense(int expenseId, String category, double amount, String note, String date, String imageUri) {
+    public boolean updateExpense(int userId, int expenseId, String category, long amountCents, String note, long epochDay, String imageUri) {
         try {
             SQLiteDatabase db = this.getWritableDatabase();
             if (db == null) {
                 Log.e("DatabaseHelper", "Update expense failed: Cannot get writable database");
                 return false;
             }
+            int categoryId = categoryIdFor(db, userId, category);
+            if (categoryId < 0) return false;
             
             ContentValues values = new ContentValues();
-            values.put(COL_EXPENSE_CATEGORY, category);
-            values.put(COL_EXPENSE_AMOUNT, amount);
+            values.put(COL_EXPENSE_CATEGORY_ID, categoryId);
+            values.put(COL_EXPENSE_AMOUNT, amountCents);
             values.put(COL_EXPENSE_NOTE, note);
-            values.put(COL_EXPENSE_DATE, date);
+            values.put(COL_EXPENSE_DAY, epochDay);
             values.put(COL_EXPENSE_IMAGE_URI, imageUri);
 
-            int rows = db.update(TABLE_EXPENSES, values, COL_EXPENSE_ID + "=?",
-                    new String[]{String.valueOf(expenseId)});
+            int rows = db.update(TABLE_EXPENSES, values, COL_EXPENSE_ID + "=? AND " + COL_EXPENSE_USER_ID + "=?",
+                    new String[]{String.valueOf(expenseId), String.valueOf(userId)});
             
             if (rows > 0) {
                 Log.d("DatabaseHelper", "Expense updated successfully: ID " + expenseId);
+                TableVersions.getInstance().bump(TableVersions.EXPENSES);
                 return true;
             } else {
                 Log.e("DatabaseHelper", "Update expense failed: No rows affected for ID " + expenseId);
@@ -676,7 +1487,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         int rows = db.delete(TABLE_EXPENSES, COL_EXPENSE_ID + "=?",
                 new String[]{String.valueOf(expenseId)});
-        db.close();
+        if (rows > 0) TableVersions.getInstance().bump(TableVersions.EXPENSES);
         return rows > 0;
     }
 
@@ -684,55 +1495,230 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         int rows = db.delete(TABLE_EXPENSES, COL_EXPENSE_USER_ID + "=?",
                 new String[]{String.valueOf(userId)});
-        db.close();
+        if (rows > 0) TableVersions.getInstance().bump(TableVersions.EXPENSES);
         return rows >= 0;
     }
 
-    public boolean setBudget(int userId, String category, double limit) {
+    /**
+     * Returns every distinct receipt URI still referenced by an expense, of any user. Reads the whole
+     * expenses table, so it is only used by the receipt sweep after a receipt may have been orphaned.
+     */
+    public Set<String> getReceiptUris() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Set<String> uris = new HashSet<>();
+        Cursor cursor = db.rawQuery("SELECT DISTINCT " + COL_EXPENSE_IMAGE_URI + " FROM " + TABLE_EXPENSES
+                + " WHERE " + COL_EXPENSE_IMAGE_URI + " IS NOT NULL", null);
+        try {
+            while (cursor.moveToNext()) {
+                uris.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return uris;
+    }
+
+    public boolean setBudget(int userId, String category, long limitCents) {
         SQLiteDatabase db = this.getWritableDatabase();
+        int categoryId = categoryIdFor(db, userId, category);
+        if (categoryId < 0) return false;
         ContentValues values = new ContentValues();
         values.put(COL_BUDGET_USER_ID, userId);
-        values.put(COL_BUDGET_CATEGORY, category);
-        values.put(COL_BUDGET_LIMIT, limit);
+        values.put(COL_BUDGET_CATEGORY_ID, categoryId);
+        values.put(COL_BUDGET_LIMIT, limitCents);
 
         long id = db.insertWithOnConflict(TABLE_BUDGETS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
-        db.close();
+        if (id > 0) TableVersions.getInstance().bump(TableVersions.BUDGETS);
         return id > 0;
     }
 
-    public String getBudgets(int userId) {
+    public List<Budget> getBudgets(int userId) {
         SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
         Cursor cursor = db.query(TABLE_BUDGETS,
-                new String[]{COL_BUDGET_CATEGORY, COL_BUDGET_LIMIT},
+                BudgetRowMapper.INSTANCE.getProjection(),
                 COL_BUDGET_USER_ID + "=?",
                 new String[]{String.valueOf(userId)},
                 null, null, null);
+        if (cursor == null) return new ArrayList<>();
+        try {
+            return BudgetRowMapper.INSTANCE.mapAll(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
 
-        StringBuilder json = new StringBuilder("[");
-        if (cursor != null) {
-            while (cursor.moveToNext()) {
-                if (json.length() > 1) json.append(",");
-                json.append("{")
-                    .append("\"category\":\"").append(cursor.getString(0)).append("\",")
-                    .append("\"limit\":").append(cursor.getDouble(1))
-                    .append("}");
-            }
+    /**
+     * Retrieves one budget by its (user, category id) primary key.
+     *
+     * @return The budget, or null if none is set for the category
+     */
+    public Budget getBudget(int userId, String category) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        ensureCategoriesCached(db);
+        Category found = CategoryCache.getInstance().find(userId, category);
+        if (found == null) return null;
+        Cursor cursor = db.query(TABLE_BUDGETS,
+                BudgetRowMapper.INSTANCE.getProjection(),
+                COL_BUDGET_USER_ID + "=? AND " + COL_BUDGET_CATEGORY_ID + "=?",
+                new String[]{String.valueOf(userId), String.valueOf(found.id)},
+                null, null, null);
+        if (cursor == null) return null;
+        try {
+            List<Budget> budgets = BudgetRowMapper.INSTANCE.mapAll(cursor);
+            return budgets.isEmpty() ? null : budgets.get(0);
+        } finally {
             cursor.close();
         }
-        json.append("]");
-        db.close();
-        return json.toString();
     }
 
     public boolean deleteBudget(int userId, String category) {
         SQLiteDatabase db = this.getWritableDatabase();
+        ensureCategoriesCached(db);
+        Category found = CategoryCache.getInstance().find(userId, category);
+        if (found == null) return false;
         int rows = db.delete(TABLE_BUDGETS,
-                COL_BUDGET_USER_ID + "=? AND " + COL_BUDGET_CATEGORY + "=?",
-                new String[]{String.valueOf(userId), category});
-        db.close();
+                COL_BUDGET_USER_ID + "=? AND " + COL_BUDGET_CATEGORY_ID + "=?",
+                new String[]{String.valueOf(userId), String.valueOf(found.id)});
+        if (rows > 0) TableVersions.getInstance().bump(TableVersions.BUDGETS);
         return rows > 0;
     }
 
+    /**
+     * Returns the user's categories offered in pickers, in creation order. Served from
+     * {@link CategoryCache}, which is loaded from the table on first use.
+     *
+     * @param userId The user ID
+     * @return The visible categories (empty if none)
+     */
+    public List<Category> getCategories(int userId) {
+        ensureCategoriesCached(this.getReadableDatabase());
+        return CategoryCache.getInstance().visibleFor(userId);
+    }
+
+    /**
+     * Adds a category with the default icon and colour for its name, or shows a hidden one again.
+     *
+     * @return true if the category is now offered, false if it already was or the insert failed
+     */
+    public boolean addCategory(int userId, String name) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ensureCategoriesCached(db);
+        Category existing = CategoryCache.getInstance().find(userId, name);
+        boolean changed;
+        if (existing != null) {
+            if (!existing.hidden) return false;
+            ContentValues values = new ContentValues();
+            values.put(COL_CATEGORY_HIDDEN, 0);
+            changed = db.update(TABLE_CATEGORIES, values, COL_CATEGORY_ID + "=?",
+                    new String[]{String.valueOf(existing.id)}) > 0;
+        } else {
+            changed = insertCategory(db, userId, name, false) > 0;
+        }
+        reloadCategoryCache(db);
+        if (changed) TableVersions.getInstance().bump(TableVersions.CATEGORIES);
+        return changed;
+    }
+
+    /**
+     * Removes a category from the pickers. A category still used by an expense or budget is only
+     * hidden, so those rows keep their name and icon; an unused one is deleted.
+     *
+     * @return true if the category was hidden or deleted
+     */
+    public boolean deleteCategory(int userId, String name) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ensureCategoriesCached(db);
+        Category existing = CategoryCache.getInstance().find(userId, name);
+        if (existing == null) return false;
+        String user = String.valueOf(userId), id = String.valueOf(existing.id);
+        boolean inUse = DatabaseUtils.longForQuery(db,
+                "SELECT EXISTS(SELECT 1 FROM " + TABLE_EXPENSES + " WHERE " + COL_EXPENSE_USER_ID + "=? AND " +
+                        COL_EXPENSE_CATEGORY_ID + "=?) OR EXISTS(SELECT 1 FROM " + TABLE_BUDGETS + " WHERE " +
+                        COL_BUDGET_USER_ID + "=? AND " + COL_BUDGET_CATEGORY_ID + "=?)",
+                new String[]{user, id, user, id}) != 0;
+        int rows;
+        if (inUse) {
+            ContentValues values = new ContentValues();
+            values.put(COL_CATEGORY_HIDDEN, 1);
+            rows = db.update(TABLE_CATEGORIES, values, COL_CATEGORY_ID + "=?", new String[]{id});
+        } else {
+            rows = db.delete(TABLE_CATEGORIES, COL_CATEGORY_ID + "=?", new String[]{id});
+        }
+        reloadCategoryCache(db);
+        if (rows > 0) TableVersions.getInstance().bump(TableVersions.CATEGORIES);
+        return rows > 0;
+    }
+
+    /**
+     * Renames a category. Expenses, budgets and totals refer to it by id, so this updates one row
+     * (plus the search index, through a trigger).
+     *
+     * @return true if renamed, false if the user already has a category with the new name
+     */
+    public boolean renameCategory(int userId, int categoryId, String newName) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_CATEGORY_NAME, newName);
+        int rows;
+        try {
+            rows = db.update(TABLE_CATEGORIES, values, COL_CATEGORY_ID + "=? AND " + COL_CATEGORY_USER_ID + "=?",
+                    new String[]{String.valueOf(categoryId), String.valueOf(userId)});
+        } catch (SQLiteConstraintException e) {
+            Log.e("DatabaseHelper", "Rename category failed: '" + newName + "' already exists");
+            return false;
+        }
+        reloadCategoryCache(db);
+        if (rows > 0) TableVersions.getInstance().bump(TableVersions.CATEGORIES);
+        return rows > 0;
+    }
+
+    /**
+     * Resolves a category name to its id for writing an expense or budget. Names typed into the
+     * "Others" field become hidden categories, as they were never added to the pickers before.
+     *
+     * @return The category id, or -1 if it could not be created
+     */
+    private int categoryIdFor(SQLiteDatabase db, int userId, String name) {
+        ensureCategoriesCached(db);
+        Category existing = CategoryCache.getInstance().find(userId, name);
+        if (existing != null) return existing.id;
+        long id = insertCategory(db, userId, name, true);
+        reloadCategoryCache(db);
+        // A new row like any other category write: caches keyed on the categories table must see it
+        if (id > 0) TableVersions.getInstance().bump(TableVersions.CATEGORIES);
+        return (int) id;
+    }
+
+    private long insertCategory(SQLiteDatabase db, int userId, String name, boolean hidden) {
+        ContentValues values = new ContentValues();
+        values.put(COL_CATEGORY_USER_ID, userId);
+        values.put(COL_CATEGORY_NAME, name);
+        values.put(COL_CATEGORY_ICON, DefaultCategories.iconFor(name));
+        values.put(COL_CATEGORY_COLOR, DefaultCategories.colorFor(name));
+        values.put(COL_CATEGORY_HIDDEN, hidden ? 1 : 0);
+        return db.insert(TABLE_CATEGORIES, null, values);
+    }
+
+    private void ensureCategoriesCached(SQLiteDatabase db) {
+        if (!CategoryCache.getInstance().isLoaded()) {
+            reloadCategoryCache(db);
+        }
+    }
+
+    // The table holds a few rows per user, so it is always reloaded whole after a change
+    private void reloadCategoryCache(SQLiteDatabase db) {
+        synchronized (categoryCacheLock) {
+            Cursor cursor = db.query(TABLE_CATEGORIES, CategoryRowMapper.INSTANCE.getProjection(),
+                    null, null, null, null, null);
+            try {
+                CategoryCache.getInstance().replaceAll(CategoryRowMapper.INSTANCE.mapAll(cursor));
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
     public boolean checkUserExists(int userId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
@@ -742,25 +1728,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     null, null, null);
             boolean exists = (cursor != null && cursor.getCount() > 0);
             if (cursor != null) cursor.close();
-            db.close();
             return exists;
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error checking user existence: " + e.getMessage());
             if (cursor != null) cursor.close();
-            db.close();
             return false;
         }
     }
 
-    private String escapeJson(String str) {
-        if (str == null) return "";
-        return str.replace("\\", "\\\\")
-                  .replace("\"", "\\\"")
-                  .replace("\n", "\\n")
-                  .replace("\r", "\\r")
-                  .replace("\t", "\\t");
-    }
-
     // Debug method to check database state
     public boolean verifyDatabase() {
         try {
@@ -0,0 +1,48 @@
+package com.example.myapplication.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.myapplication.models.Category;
+
+/**
+ * The categories every user starts with, and the icon and colour given to each.
+ */
+final class DefaultCategories {
+    static final String[] NAMES = {"Food", "Transport", "Shopping", "Bills", "Entertainment", "Others"};
+    private static final String[] ICONS = {"🍔", "🚗", "🛍️", "📜", "🍿", "✨"};
+    private static final int[] COLORS = {0xFFFF7043, 0xFF42A5F5, 0xFFAB47BC, 0xFF78909C, 0xFFFFCA28, 0xFF26A69A};
+
+    private DefaultCategories() {}
+
+    static String iconFor(String name) {
+        int index = indexOf(name);
+        return index >= 0 ? ICONS[index] : Category.DEFAULT_ICON;
+    }
+
+    static int colorFor(String name) {
+        int index = indexOf(name);
+        return index >= 0 ? COLORS[index] : Category.DEFAULT_COLOR;
+    }
+
+    /**
+     * Adds the default categories a user does not have yet.
+     */
+    static void insertFor(SQLiteDatabase db, long userId) {
+        ContentValues values = new ContentValues();
+        for (String name : NAMES) {
+            values.put(DatabaseHelper.COL_CATEGORY_USER_ID, userId);
+            values.put(DatabaseHelper.COL_CATEGORY_NAME, name);
+            values.put(DatabaseHelper.COL_CATEGORY_ICON, iconFor(name));
+            values.put(DatabaseHelper.COL_CATEGORY_COLOR, colorFor(name));
+            values.put(DatabaseHelper.COL_CATEGORY_HIDDEN, 0);
+            db.insertWithOnConflict(DatabaseHelper.TABLE_CATEGORIES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        }
+    }
+
+    private static int indexOf(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.myapplication.data;
+
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpenseQuery;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ExpenseQueryCompiler
+ *
+ * Turns an {@link ExpenseQuery} into a single parameterized SQL statement: every condition becomes a
+ * WHERE term over the indexed expense columns, text goes to the full-text index through a join, and
+ * the order becomes ORDER BY. Values are always bound as arguments, never spliced into the SQL.
+ *
+ * Queries of the same shape (which conditions are set, how many categories, the order) compile to
+ * the same SQL text. The text is built once per shape and kept here, and because SQLite keeps
+ * prepared statements per connection keyed on that text, a repeated shape also skips preparing the
+ * statement. Category lists are padded to the next power of two so a growing selection does not
+ * create a shape per size.
+ *
+ * Safe to use from any thread.
+ */
+final class ExpenseQueryCompiler {
+    private static final int MAX_SHAPES = 32;
+
+    /**
+     * A compiled query: the SQL and its arguments, in binding order.
+     */
+    static final class Statement {
+        final String sql;
+        final String[] args;
+        final boolean ranked; // Rows carry matchinfo as their last column and come back unordered
+
+        Statement(String sql, String[] args, boolean ranked) {
+            this.sql = sql;
+            this.args = args;
+            this.ranked = ranked;
+        }
+    }
+
+    private final Map<String, String> sqlByShape = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_SHAPES;
+        }
+    };
+
+    /**
+     * Compiles a query returning matching expenses in the query's order.
+     *
+     * @param match FTS MATCH expression for the query's text (see DatabaseHelper#toPrefixQuery), or null
+     * @param limit Maximum rows; not applied in SQL when the statement is ranked
+     */
+    Statement rows(int userId, ExpenseQuery query, String match, int limit) {
+        boolean ranked = match != null && query.order == null;
+        ExpenseOrder order = query.order != null ? query.order : ExpenseOrder.NEWEST_FIRST;
+        boolean byCategory = !ranked && (order == ExpenseOrder.CATEGORY_A_Z || order == ExpenseOrder.CATEGORY_Z_A);
+        String shape = "rows " + shapeOf(query, match) + (ranked ? " ranked" : " " + order);
+
+        List<String> args = new ArrayList<>();
+        String sql = cached(shape);
+        StringBuilder builder = sql == null ? new StringBuilder() : null;
+        if (builder != null) {
+            builder.append("SELECT ");
+            String[] projection = ExpenseRowMapper.INSTANCE.getProjection();
+            for (int i = 0; i < projection.length; i++) {
+                builder.append(i == 0 ? "e." : ", e.").append(projection[i]);
+            }
+            if (ranked) builder.append(", matchinfo(" + DatabaseHelper.TABLE_EXPENSES_FTS + ", 'pcnx')");
+            appendFrom(builder, match);
+            if (byCategory) {
+                builder.append(" JOIN " + DatabaseHelper.TABLE_CATEGORIES + " c ON c." +
+                        DatabaseHelper.COL_CATEGORY_ID + " = e." + DatabaseHelper.COL_EXPENSE_CATEGORY_ID);
+            }
+        }
+        appendWhere(builder, args, userId, query, match);
+        if (builder != null && !ranked) {
+            builder.append(" ORDER BY ").append(orderBy(order)).append(" LIMIT ?");
+        }
+        if (!ranked) args.add(String.valueOf(limit));
+        if (builder != null) sql = cache(shape, builder.toString());
+        return new Statement(sql, args.toArray(new String[0]), ranked);
+    }
+
+    /**
+     * Compiles a query summing the matching expenses per category:
+     * rows of (category_id, SUM(amount_cents), COUNT(*), MIN(amount_cents), MAX(amount_cents)).
+     */
+    Statement totals(int userId, ExpenseQuery query, String match) {
+        String shape = "totals " + shapeOf(query, match);
+        List<String> args = new ArrayList<>();
+        String sql = cached(shape);
+        StringBuilder builder = sql == null ? new StringBuilder() : null;
+        if (builder != null) {
+            String amount = "e." + DatabaseHelper.COL_EXPENSE_AMOUNT;
+            builder.append("SELECT e." + DatabaseHelper.COL_EXPENSE_CATEGORY_ID + ", SUM(" + amount + "), COUNT(*), MIN(" +
+                    amount + "), MAX(" + amount + ")");
+            appendFrom(builder, match);
+        }
+        appendWhere(builder, args, userId, query, match);
+        if (builder != null) {
+            builder.append(" GROUP BY e." + DatabaseHelper.COL_EXPENSE_CATEGORY_ID);
+            sql = cache(shape, builder.toString());
+        }
+        return new Statement(sql, args.toArray(new String[0]), false);
+    }
+
+    private static void appendFrom(StringBuilder builder, String match) {
+        if (match != null) {
+            builder.append(" FROM " + DatabaseHelper.TABLE_EXPENSES_FTS + " JOIN " + DatabaseHelper.TABLE_EXPENSES +
+                    " e ON e." + DatabaseHelper.COL_EXPENSE_ID + " = " + DatabaseHelper.TABLE_EXPENSES_FTS + ".docid");
+        } else {
+            builder.append(" FROM " + DatabaseHelper.TABLE_EXPENSES + " e");
+        }
+    }
+
+    /**
+     * Adds the WHERE clause to the builder (null when the SQL is already cached) and its arguments,
+     * in the same order, to args.
+     */
+    private static void appendWhere(StringBuilder builder, List<String> args, int userId, ExpenseQuery query, String match) {
+        List<String> conditions = builder != null ? new ArrayList<>() : null;
+        if (match != null) {
+            add(conditions, DatabaseHelper.TABLE_EXPENSES_FTS + " MATCH ?");
+            args.add(match);
+        }
+        add(conditions, "e." + DatabaseHelper.COL_EXPENSE_USER_ID + "=?");
+        args.add(String.valueOf(userId));
+        if (query.fromEpochDay != null) {
+            add(conditions, "e." + DatabaseHelper.COL_EXPENSE_DAY + ">=?");
+            args.add(String.valueOf(query.fromEpochDay));
+        }
+        if (query.toEpochDay != null) {
+            add(conditions, "e." + DatabaseHelper.COL_EXPENSE_DAY + "<=?");
+            args.add(String.valueOf(query.toEpochDay));
+        }
+        if (query.minCents != null) {
+            add(conditions, "e." + DatabaseHelper.COL_EXPENSE_AMOUNT + ">=?");
+            args.add(String.valueOf(query.minCents));
+        }
+        if (query.maxCents != null) {
+            add(conditions, "e." + DatabaseHelper.COL_EXPENSE_AMOUNT + "<=?");
+            args.add(String.valueOf(query.maxCents));
+        }
+        if (query.categoryIds != null) {
+            int[] ids = query.categoryIds;
+            int slots = categorySlots(ids.length);
+            if (slots == 0) {
+                add(conditions, "0"); // An empty set matches nothing
+            } else if (conditions != null) {
+                StringBuilder placeholders = new StringBuilder();
+                for (int i = 0; i < slots; i++) {
+                    placeholders.append(i == 0 ? "?" : ", ?");
+                }
+                add(conditions, "e." + DatabaseHelper.COL_EXPENSE_CATEGORY_ID + " IN (" + placeholders + ")");
+            }
+            for (int i = 0; i < slots; i++) {
+                args.add(String.valueOf(ids[Math.min(i, ids.length - 1)])); // Padding repeats the last id
+            }
+        }
+        if (query.hasReceipt != null) {
+            // No receipt is stored as NULL or an empty string
+            add(conditions, query.hasReceipt
+                    ? "e." + DatabaseHelper.COL_EXPENSE_IMAGE_URI + "<>''"
+                    : "COALESCE(e." + DatabaseHelper.COL_EXPENSE_IMAGE_URI + ", '')=''");
+        }
+        if (builder != null) builder.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+
+    private static void add(List<String> conditions, String condition) {
+        if (conditions != null) conditions.add(condition);
+    }
+
+    // Same orders, and the same tie-breaking, as the paged feed in DatabaseHelper#getExpensePage
+    private static String orderBy(ExpenseOrder order) {
+        String day = "e." + DatabaseHelper.COL_EXPENSE_DAY, id = "e." + DatabaseHelper.COL_EXPENSE_ID;
+        String amount = "e." + DatabaseHelper.COL_EXPENSE_AMOUNT;
+        String name = "c." + DatabaseHelper.COL_CATEGORY_NAME + " COLLATE NOCASE", category = "c." + DatabaseHelper.COL_CATEGORY_ID;
+        switch (order) {
+            case OLDEST_FIRST:
+                return day + " ASC, " + id + " ASC";
+            case HIGHEST_FIRST:
+                return amount + " DESC, " + day + " DESC, " + id + " DESC";
+            case LOWEST_FIRST:
+                return amount + " ASC, " + day + " ASC, " + id + " ASC";
+            case CATEGORY_A_Z:
+                return name + " ASC, " + category + " ASC, " + day + " DESC, " + id + " DESC";
+            case CATEGORY_Z_A:
+                return name + " DESC, " + category + " DESC, " + day + " DESC, " + id + " DESC";
+            case NEWEST_FIRST:
+            default:
+                return day + " DESC, " + id + " DESC";
+        }
+    }
+
+    private static String shapeOf(ExpenseQuery query, String match) {
+        return (match != null ? "t" : "-") +
+                (query.fromEpochDay != null ? "f" : "-") +
+                (query.toEpochDay != null ? "t" : "-") +
+                (query.minCents != null ? "m" : "-") +
+                (query.maxCents != null ? "M" : "-") +
+                (query.categoryIds != null ? "c" + categorySlots(query.categoryIds.length) : "-") +
+                (query.hasReceipt != null ? (query.hasReceipt ? "r" : "n") : "-");
+    }
+
+    // Placeholders for a category list: the next power of two, or none for an empty list
+    private static int categorySlots(int count) {
+        if (count == 0) return 0;
+        int slots = 1;
+        while (slots < count) slots <<= 1;
+        return slots;
+    }
+
+    private String cached(String shape) {
+        synchronized (sqlByShape) {
+            return sqlByShape.get(shape);
+        }
+    }
+
+    private String cache(String shape, String sql) {
+        synchronized (sqlByShape) {
+            sqlByShape.put(shape, sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.myapplication.data;
+
+import android.database.Cursor;
+import com.example.myapplication.models.Expense;
+import com.example.myapplication.utils.CategoryCache;
+import com.example.myapplication.utils.DateUtils;
+
+/**
+ * Maps rows of the expenses table to {@link Expense}. Category names come from {@link CategoryCache},
+ * which the caller loads before mapping.
+ */
+public final class ExpenseRowMapper extends RowMapper<Expense> {
+    static final String[] PROJECTION = {
+        DatabaseHelper.COL_EXPENSE_ID,
+        DatabaseHelper.COL_EXPENSE_CATEGORY_ID,
+        DatabaseHelper.COL_EXPENSE_AMOUNT,
+        DatabaseHelper.COL_EXPENSE_NOTE,
+        DatabaseHelper.COL_EXPENSE_DAY,
+        DatabaseHelper.COL_EXPENSE_IMAGE_URI,
+        DatabaseHelper.COL_EXPENSE_DATE
+    };
+
+    // Declared after PROJECTION so the constructor sees it initialized
+    public static final ExpenseRowMapper INSTANCE = new ExpenseRowMapper();
+
+    private static final int ID = 0, CATEGORY_ID = 1, AMOUNT = 2, NOTE = 3, DAY = 4, IMAGE_URI = 5, LEGACY_DATE = 6;
+
+    private ExpenseRowMapper() {
+        super(PROJECTION);
+    }
+
+    @Override
+    protected Expense mapRow(Cursor cursor, int[] columns) {
+        return new Expense(
+            cursor.getInt(columns[ID]),
+            cursor.getInt(columns[CATEGORY_ID]),
+            CategoryCache.getInstance().nameOf(cursor.getInt(columns[CATEGORY_ID])),
+            cursor.getLong(columns[AMOUNT]),
+            cursor.isNull(columns[NOTE]) ? "" : cursor.getString(columns[NOTE]),
+            cursor.isNull(columns[DAY]) ? legacyDay(cursor.getString(columns[LEGACY_DATE])) : cursor.getLong(columns[DAY]),
+            cursor.isNull(columns[IMAGE_URI]) ? null : cursor.getString(columns[IMAGE_URI])
+        );
+    }
+
+    // Only hit for rows the background backfill has not converted yet
+    private static long legacyDay(String legacyDate) {
+        Long day = DateUtils.parseLegacy(legacyDate);
+        return day != null ? day : DateUtils.today();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.myapplication.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Migration
+ *
+ * One step of the schema history: upgrades the database from {@code version - 1} to {@code version}.
+ *
+ * {@link #migrate(SQLiteDatabase)} runs inside onUpgrade (or onCreate, for a fresh install) and must
+ * only do schema work that is fast regardless of table size: ALTER, CREATE, DROP INDEX and the like.
+ * Anything that has to touch every row goes in {@link #backfill(SQLiteDatabase, long, int)}, which
+ * {@link DatabaseHelper#runPendingBackfills()} calls in small batches on a background thread once the
+ * database is open. Until a backfill completes, readers must cope with rows it has not reached yet.
+ *
+ * A table whose columns change meaning is renamed aside as a staging table and recreated empty in
+ * migrate(); its backfill moves the rows across (see {@link Migrations#moveRows}). No reader could
+ * cope with rows it cannot see, so such a migration declares {@link #stagesRows()} and its backfill
+ * is finished before the database is handed to anyone.
+ */
+abstract class Migration {
+    // Returned by backfill() once there is nothing left to do
+    static final long DONE = -1;
+
+    final int version;
+
+    Migration(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Applies the schema change. Runs in its own transaction; throwing aborts the whole upgrade and
+     * leaves the database at its previous version.
+     */
+    abstract void migrate(SQLiteDatabase db);
+
+    /**
+     * Whether {@link #backfill(SQLiteDatabase, long, int)} moves rows out of a staging table. If so,
+     * {@link DatabaseHelper#getWritableDatabase()} runs it to the end before returning the database.
+     */
+    boolean stagesRows() {
+        return false;
+    }
+
+    /**
+     * Processes one batch of rows. Called inside a transaction, repeatedly, until it returns {@link #DONE}.
+     * Must be idempotent and cheap when there is no work left, because it is invoked on every app start.
+     *
+     * @param resumeAfter The value returned by the previous call, or 0 for the first batch
+     * @param batchSize   Maximum number of rows to touch
+     * @return The key to resume after (usually the last row ID processed), or {@link #DONE}
+     */
+    long backfill(SQLiteDatabase db, long resumeAfter, int batchSize) {
+        return DONE;
+    }
+}
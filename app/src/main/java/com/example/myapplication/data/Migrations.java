@@ -0,0 +1,656 @@
+package com.example.myapplication.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.myapplication.models.Category;
+import com.example.myapplication.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migrations
+ *
+ * The ordered registry of schema steps applied on top of the version 5 base schema created by
+ * {@link DatabaseHelper#onCreate(SQLiteDatabase)}. Fresh installs replay every step as well, so a new
+ * database and an upgraded one always end up with the same schema.
+ *
+ * To change the schema: append a Migration for DATABASE_VERSION + 1 and bump DATABASE_VERSION.
+ * Never edit or reorder a step that has shipped.
+ */
+final class Migrations {
+    // Oldest schema that can be upgraded in place; anything older is recreated from scratch
+    static final int BASE_VERSION = 5;
+
+    // Index names, by the version that introduced them
+    static final String INDEX_EXPENSES_USER_DATE = "idx_expenses_user_date"; // v6, dropped in v7
+    static final String INDEX_EXPENSES_USER_CATEGORY_AMOUNT = "idx_expenses_user_category_amount"; // v6, dropped in v10
+    static final String INDEX_EXPENSES_USER_DAY = "idx_expenses_user_day"; // v7, recreated in v10 and v11
+    static final String INDEX_EXPENSES_USER_CATEGORY_CENTS = "idx_expenses_user_category_cents"; // v10, dropped in v11
+    static final String INDEX_EXPENSES_USER_CATEGORY_ID_CENTS = "idx_expenses_user_category_id_cents"; // v11
+    static final String INDEX_EXPENSES_USER_AMOUNT_DAY = "idx_expenses_user_amount_day"; // v12
+    static final String INDEX_EXPENSES_USER_CATEGORY_ID_DAY = "idx_expenses_user_category_id_day"; // v12
+    static final String INDEX_CATEGORIES_USER_NAME_NOCASE = "idx_categories_user_name_nocase"; // v12
+
+    // Staging tables: a rebuilt table renamed aside until its backfill has moved every row (see moveRows())
+    static final String TABLE_EXPENSES_V5 = "expenses_v5"; // v10
+    static final String TABLE_BUDGETS_V5 = "budgets_v5"; // v10
+    static final String TABLE_EXPENSES_V10 = "expenses_v10"; // v11
+    static final String TABLE_BUDGETS_V10 = "budgets_v10"; // v11
+
+    // Triggers keeping spend_totals in step with expenses (v8, recreated in v10 and v11)
+    static final String TRIGGER_SPEND_TOTALS_INSERT = "trg_spend_totals_insert";
+    static final String TRIGGER_SPEND_TOTALS_UPDATE = "trg_spend_totals_update";
+    static final String TRIGGER_SPEND_TOTALS_DELETE = "trg_spend_totals_delete";
+
+    // Triggers keeping daily_totals in step with expenses (v13, recreated in v14)
+    static final String TRIGGER_DAILY_TOTALS_INSERT = "trg_daily_totals_insert";
+    static final String TRIGGER_DAILY_TOTALS_UPDATE = "trg_daily_totals_update";
+    static final String TRIGGER_DAILY_TOTALS_DELETE = "trg_daily_totals_delete";
+
+    // Triggers keeping monthly_totals in step with expenses (v14)
+    static final String TRIGGER_MONTHLY_TOTALS_INSERT = "trg_monthly_totals_insert";
+    static final String TRIGGER_MONTHLY_TOTALS_UPDATE = "trg_monthly_totals_update";
+    static final String TRIGGER_MONTHLY_TOTALS_DELETE = "trg_monthly_totals_delete";
+
+    // Triggers keeping the expenses_fts search index in step with expenses (v9, recreated in v10 and v11)
+    static final String TRIGGER_FTS_INSERT = "trg_expenses_fts_insert";
+    static final String TRIGGER_FTS_BEFORE_UPDATE = "trg_expenses_fts_before_update"; // v9-v10
+    static final String TRIGGER_FTS_AFTER_UPDATE = "trg_expenses_fts_after_update";
+    static final String TRIGGER_FTS_DELETE = "trg_expenses_fts_delete";
+    static final String TRIGGER_FTS_CATEGORY_RENAME = "trg_expenses_fts_category_rename"; // v11
+
+    static final Migration[] ALL = {
+        // 6: secondary indexes. budgets needs none: its (user_id, category) primary key serves every lookup.
+        new Migration(6) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                // Per-user listing and clearing, ordered by date
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_DATE + " ON " +
+                        DatabaseHelper.TABLE_EXPENSES + "(" + DatabaseHelper.COL_EXPENSE_USER_ID + ", " +
+                        DatabaseHelper.COL_EXPENSE_DATE + ")");
+                // Covers per-category totals without touching the table rows
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_CATEGORY_AMOUNT + " ON " +
+                        DatabaseHelper.TABLE_EXPENSES + "(" + DatabaseHelper.COL_EXPENSE_USER_ID + ", " +
+                        DatabaseHelper.COL_EXPENSE_CATEGORY_V5 + ", " + DatabaseHelper.COL_EXPENSE_AMOUNT_V5 + ")");
+            }
+        },
+
+        // 7: epoch-day date column; listing and range filters order by it instead of the text date
+        new Migration(7) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_EXPENSES + " ADD COLUMN " +
+                        DatabaseHelper.COL_EXPENSE_DAY + " INTEGER");
+                db.execSQL("DROP INDEX IF EXISTS " + INDEX_EXPENSES_USER_DATE);
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_DAY + " ON " +
+                        DatabaseHelper.TABLE_EXPENSES + "(" + DatabaseHelper.COL_EXPENSE_USER_ID + ", " +
+                        DatabaseHelper.COL_EXPENSE_DAY + ")");
+            }
+
+            // Parses the free-text dates written before this version. Values that cannot be parsed
+            // (including "Today") become the current day, which is what the old date sort treated them as.
+            @Override
+            long backfill(SQLiteDatabase db, long resumeAfter, int batchSize) {
+                long today = DateUtils.today();
+                List<long[]> batch = new ArrayList<>();
+                Cursor cursor = db.query(DatabaseHelper.TABLE_EXPENSES,
+                        new String[]{DatabaseHelper.COL_EXPENSE_ID, DatabaseHelper.COL_EXPENSE_DATE},
+                        DatabaseHelper.COL_EXPENSE_ID + ">? AND " + DatabaseHelper.COL_EXPENSE_DAY + " IS NULL",
+                        new String[]{String.valueOf(resumeAfter)},
+                        null, null, DatabaseHelper.COL_EXPENSE_ID, String.valueOf(batchSize));
+                try {
+                    while (cursor.moveToNext()) {
+                        Long day = DateUtils.parseLegacy(cursor.getString(1));
+                        batch.add(new long[]{cursor.getLong(0), day != null ? day : today});
+                    }
+                } finally {
+                    cursor.close();
+                }
+                if (batch.isEmpty()) return DONE;
+
+                ContentValues values = new ContentValues();
+                for (long[] row : batch) {
+                    values.put(DatabaseHelper.COL_EXPENSE_DAY, row[1]);
+                    db.update(DatabaseHelper.TABLE_EXPENSES, values,
+                            DatabaseHelper.COL_EXPENSE_ID + "=? AND " + DatabaseHelper.COL_EXPENSE_DAY + " IS NULL",
+                            new String[]{String.valueOf(row[0])});
+                }
+                return batch.get(batch.size() - 1)[0];
+            }
+        },
+
+        // 8: per-category running totals so budget checks are a primary-key lookup. Budgets have no
+        // period yet, so only the all-time row (period 0) is maintained. The triggers use
+        // INSERT OR IGNORE + UPDATE rather than UPSERT, which needs SQLite 3.24 (API 30).
+        new Migration(8) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_SPEND_TOTALS + " (" +
+                        DatabaseHelper.COL_TOTAL_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_CATEGORY_V8 + " TEXT NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_PERIOD + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_AMOUNT + " REAL NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_COUNT + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_TOTAL_USER_ID + ", " + DatabaseHelper.COL_TOTAL_CATEGORY_V8 + ", " +
+                        DatabaseHelper.COL_TOTAL_PERIOD + ")) WITHOUT ROWID");
+
+                String add = "INSERT OR IGNORE INTO spend_totals(user_id, category, period, total, count) " +
+                        "VALUES(NEW.user_id, NEW.category, 0, 0, 0); " +
+                        "UPDATE spend_totals SET total = total + NEW.amount, count = count + 1 " +
+                        "WHERE user_id = NEW.user_id AND category = NEW.category AND period = 0; ";
+                String remove = "UPDATE spend_totals SET total = total - OLD.amount, count = count - 1 " +
+                        "WHERE user_id = OLD.user_id AND category = OLD.category AND period = 0; " +
+                        "DELETE FROM spend_totals " +
+                        "WHERE user_id = OLD.user_id AND category = OLD.category AND period = 0 AND count <= 0; ";
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SPEND_TOTALS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SPEND_TOTALS_UPDATE +
+                        " AFTER UPDATE OF user_id, category, amount ON expenses BEGIN " + remove + add + "END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_SPEND_TOTALS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + remove + "END");
+
+                // Seed from existing rows. Unlike a backfill this has to happen in the same transaction
+                // as the triggers, or writes in between would be missed or counted twice; it is a single
+                // aggregate over the covering (user_id, category, amount) index, not row-by-row work.
+                db.execSQL("INSERT INTO spend_totals(user_id, category, period, total, count) " +
+                        "SELECT user_id, category, 0, SUM(amount), COUNT(*) FROM expenses GROUP BY user_id, category");
+            }
+        },
+
+        // 9: full-text index over note and category for the search bar. FTS4 (not FTS5) because it is
+        // compiled into SQLite on every supported API level. It is an external-content table: the text
+        // lives only in expenses and the index is updated by triggers, which must remove the old entry
+        // BEFORE the row changes.
+        new Migration(9) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_EXPENSES_FTS +
+                        " USING fts4(content=\"expenses\", note, category, tokenize=unicode61)");
+
+                String add = "INSERT INTO expenses_fts(docid, note, category) VALUES(NEW.id, NEW.note, NEW.category); ";
+                String remove = "DELETE FROM expenses_fts WHERE docid = OLD.id; ";
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_BEFORE_UPDATE +
+                        " BEFORE UPDATE OF note, category ON expenses BEGIN " + remove + "END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_AFTER_UPDATE +
+                        " AFTER UPDATE OF note, category ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_FTS_DELETE +
+                        " BEFORE DELETE ON expenses BEGIN " + remove + "END");
+
+                // Index existing rows; like the v8 seed this must be atomic with the triggers
+                db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_EXPENSES_FTS + "(" +
+                        DatabaseHelper.TABLE_EXPENSES_FTS + ") VALUES('rebuild')");
+            }
+        },
+
+        // 10: money as integer cents, so sums and budget comparisons are exact. SQLite cannot change a
+        // column's type, so expenses and budgets are renamed aside as staging tables and recreated
+        // empty with INTEGER cents; the backfill moves their rows over in batches, converting as it
+        // goes (see moveRows()), before the app reads anything (see Migration#stagesRows()). A row is
+        // either still in dollars in the staging table or already in cents in the new one, never
+        // half-converted. Row ids are kept. spend_totals and the
+        // expenses_fts index are recreated empty and filled by their triggers as rows arrive.
+        new Migration(10) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                // The v6-v9 triggers and indexes go; the staging table only has to be read
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_SPEND_TOTALS_INSERT);
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_SPEND_TOTALS_UPDATE);
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_SPEND_TOTALS_DELETE);
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_FTS_INSERT);
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_FTS_BEFORE_UPDATE);
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_FTS_AFTER_UPDATE);
+                db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_FTS_DELETE);
+                db.execSQL("DROP INDEX IF EXISTS " + INDEX_EXPENSES_USER_CATEGORY_AMOUNT);
+                db.execSQL("DROP INDEX IF EXISTS " + INDEX_EXPENSES_USER_DAY);
+                db.execSQL("DROP TABLE IF EXISTS " + DatabaseHelper.TABLE_EXPENSES_FTS);
+                db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_EXPENSES + " RENAME TO " + TABLE_EXPENSES_V5);
+
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_EXPENSES + " (" +
+                        DatabaseHelper.COL_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_EXPENSE_CATEGORY_V5 + " TEXT NOT NULL, " +
+                        DatabaseHelper.COL_EXPENSE_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_EXPENSE_NOTE + " TEXT, " +
+                        DatabaseHelper.COL_EXPENSE_DATE + " TEXT, " +
+                        DatabaseHelper.COL_EXPENSE_IMAGE_URI + " TEXT, " +
+                        DatabaseHelper.COL_EXPENSE_DAY + " INTEGER, " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_EXPENSE_USER_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "))");
+                continueSequence(db, TABLE_EXPENSES_V5, DatabaseHelper.TABLE_EXPENSES);
+                db.execSQL("CREATE INDEX " + INDEX_EXPENSES_USER_DAY + " ON " + DatabaseHelper.TABLE_EXPENSES + "(" +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + ", " + DatabaseHelper.COL_EXPENSE_DAY + ")");
+                // Covers per-category totals without touching the table rows (replaces the v6 index)
+                db.execSQL("CREATE INDEX " + INDEX_EXPENSES_USER_CATEGORY_CENTS + " ON " + DatabaseHelper.TABLE_EXPENSES + "(" +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + ", " + DatabaseHelper.COL_EXPENSE_CATEGORY_V5 + ", " +
+                        DatabaseHelper.COL_EXPENSE_AMOUNT + ")");
+
+                db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_BUDGETS + " RENAME TO " + TABLE_BUDGETS_V5);
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_BUDGETS + " (" +
+                        DatabaseHelper.COL_BUDGET_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_BUDGET_CATEGORY_V5 + " TEXT NOT NULL, " +
+                        DatabaseHelper.COL_BUDGET_LIMIT + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_BUDGET_USER_ID + ", " + DatabaseHelper.COL_BUDGET_CATEGORY_V5 + "), " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_BUDGET_USER_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "))");
+
+                // Same table and triggers as v8, summing cents; rows are counted as they arrive
+                db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_SPEND_TOTALS);
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_SPEND_TOTALS + " (" +
+                        DatabaseHelper.COL_TOTAL_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_CATEGORY_V8 + " TEXT NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_PERIOD + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_COUNT + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_TOTAL_USER_ID + ", " + DatabaseHelper.COL_TOTAL_CATEGORY_V8 + ", " +
+                        DatabaseHelper.COL_TOTAL_PERIOD + ")) WITHOUT ROWID");
+                String add = "INSERT OR IGNORE INTO spend_totals(user_id, category, period, total, count) " +
+                        "VALUES(NEW.user_id, NEW.category, 0, 0, 0); " +
+                        "UPDATE spend_totals SET total = total + NEW.amount_cents, count = count + 1 " +
+                        "WHERE user_id = NEW.user_id AND category = NEW.category AND period = 0; ";
+                String remove = "UPDATE spend_totals SET total = total - OLD.amount_cents, count = count - 1 " +
+                        "WHERE user_id = OLD.user_id AND category = OLD.category AND period = 0; " +
+                        "DELETE FROM spend_totals " +
+                        "WHERE user_id = OLD.user_id AND category = OLD.category AND period = 0 AND count <= 0; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_SPEND_TOTALS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_SPEND_TOTALS_UPDATE +
+                        " AFTER UPDATE OF user_id, category, amount_cents ON expenses BEGIN " + remove + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_SPEND_TOTALS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + remove + "END");
+
+                // Same index and triggers as v9, over the new table
+                db.execSQL("CREATE VIRTUAL TABLE " + DatabaseHelper.TABLE_EXPENSES_FTS +
+                        " USING fts4(content=\"expenses\", note, category, tokenize=unicode61)");
+                String ftsAdd = "INSERT INTO expenses_fts(docid, note, category) VALUES(NEW.id, NEW.note, NEW.category); ";
+                String ftsRemove = "DELETE FROM expenses_fts WHERE docid = OLD.id; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + ftsAdd + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_BEFORE_UPDATE +
+                        " BEFORE UPDATE OF note, category ON expenses BEGIN " + ftsRemove + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_AFTER_UPDATE +
+                        " AFTER UPDATE OF note, category ON expenses BEGIN " + ftsAdd + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_DELETE +
+                        " BEFORE DELETE ON expenses BEGIN " + ftsRemove + "END");
+            }
+
+            @Override
+            boolean stagesRows() {
+                return true;
+            }
+
+            // Budgets first, then expenses, each in cents. Once version 11 has run the rows go to its
+            // staging tables, which still have the v10 columns, and its own backfill takes them on.
+            // Rows of users that no longer exist are dropped, as the new tables' foreign keys require.
+            @Override
+            long backfill(SQLiteDatabase db, long resumeAfter, int batchSize) {
+                long moved = moveRows(db, TABLE_BUDGETS_V5, batchSize,
+                        "INSERT OR IGNORE INTO " + target(db, TABLE_BUDGETS_V10, DatabaseHelper.TABLE_BUDGETS) +
+                        "(user_id, category, limit_cents) " +
+                        "SELECT user_id, category, CAST(ROUND(limit_amount * 100) AS INTEGER) FROM " + TABLE_BUDGETS_V5 +
+                        " WHERE rowid <= ? AND user_id IN (SELECT id FROM users)");
+                if (moved != DONE) return moved;
+                return moveRows(db, TABLE_EXPENSES_V5, batchSize,
+                        "INSERT INTO " + target(db, TABLE_EXPENSES_V10, DatabaseHelper.TABLE_EXPENSES) +
+                        "(id, user_id, category, amount_cents, note, date, image_uri, date_day) " +
+                        "SELECT id, user_id, category, CAST(ROUND(amount * 100) AS INTEGER), note, date, image_uri, date_day " +
+                        "FROM " + TABLE_EXPENSES_V5 + " WHERE id <= ? AND user_id IN (SELECT id FROM users)");
+            }
+
+            private String target(SQLiteDatabase db, String staged, String table) {
+                return tableExists(db, staged) ? staged : table;
+            }
+        },
+        // 11: categories become rows of their own (per-user id, name, icon, colour) and expenses, budgets
+        // and spend_totals reference them by id instead of repeating the name, so grouping and budget
+        // lookups compare integers and a rename is a single-row update. Every user gets the default
+        // categories; any other name already in use becomes a hidden category (used, but not offered in
+        // pickers, as custom "Others" names were before). SQLite cannot change a column's meaning in
+        // place, so expenses and budgets are renamed aside as staging tables and recreated empty; the
+        // backfill moves their rows over in batches, keeping row ids (see moveRows()), before the app
+        // reads anything (see Migration#stagesRows()). expenses_fts can
+        // no longer read the name from expenses, so it becomes a regular FTS4 table holding its own copy,
+        // filled by the insert trigger as rows arrive and kept current by a trigger on categories.
+        new Migration(11) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                        DatabaseHelper.COL_CATEGORY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        DatabaseHelper.COL_CATEGORY_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_CATEGORY_NAME + " TEXT NOT NULL, " +
+                        DatabaseHelper.COL_CATEGORY_ICON + " TEXT NOT NULL, " +
+                        DatabaseHelper.COL_CATEGORY_COLOR + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_CATEGORY_HIDDEN + " INTEGER NOT NULL DEFAULT 0, " +
+                        "UNIQUE(" + DatabaseHelper.COL_CATEGORY_USER_ID + ", " + DatabaseHelper.COL_CATEGORY_NAME + "), " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_CATEGORY_USER_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "))");
+                Cursor users = db.query(DatabaseHelper.TABLE_USERS, new String[]{DatabaseHelper.COL_USER_ID},
+                        null, null, null, null, null);
+                try {
+                    while (users.moveToNext()) {
+                        DefaultCategories.insertFor(db, users.getLong(0));
+                    }
+                } finally {
+                    users.close();
+                }
+
+                // The v10 triggers, indexes and search index go; the staging table only has to be read
+                db.execSQL("DROP TRIGGER " + TRIGGER_SPEND_TOTALS_INSERT);
+                db.execSQL("DROP TRIGGER " + TRIGGER_SPEND_TOTALS_UPDATE);
+                db.execSQL("DROP TRIGGER " + TRIGGER_SPEND_TOTALS_DELETE);
+                db.execSQL("DROP TRIGGER " + TRIGGER_FTS_INSERT);
+                db.execSQL("DROP TRIGGER " + TRIGGER_FTS_BEFORE_UPDATE);
+                db.execSQL("DROP TRIGGER " + TRIGGER_FTS_AFTER_UPDATE);
+                db.execSQL("DROP TRIGGER " + TRIGGER_FTS_DELETE);
+                db.execSQL("DROP INDEX " + INDEX_EXPENSES_USER_DAY);
+                db.execSQL("DROP INDEX " + INDEX_EXPENSES_USER_CATEGORY_CENTS);
+                db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_EXPENSES_FTS);
+                db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_EXPENSES + " RENAME TO " + TABLE_EXPENSES_V10);
+
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_EXPENSES + " (" +
+                        DatabaseHelper.COL_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_EXPENSE_CATEGORY_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_EXPENSE_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_EXPENSE_NOTE + " TEXT, " +
+                        DatabaseHelper.COL_EXPENSE_DATE + " TEXT, " +
+                        DatabaseHelper.COL_EXPENSE_IMAGE_URI + " TEXT, " +
+                        DatabaseHelper.COL_EXPENSE_DAY + " INTEGER, " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_EXPENSE_USER_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "), " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_EXPENSE_CATEGORY_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_CATEGORIES + "(" + DatabaseHelper.COL_CATEGORY_ID + "))");
+                continueSequence(db, TABLE_EXPENSES_V10, DatabaseHelper.TABLE_EXPENSES);
+                db.execSQL("CREATE INDEX " + INDEX_EXPENSES_USER_DAY + " ON " + DatabaseHelper.TABLE_EXPENSES + "(" +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + ", " + DatabaseHelper.COL_EXPENSE_DAY + ")");
+                // Covers per-category totals without touching the table rows (replaces the v10 index)
+                db.execSQL("CREATE INDEX " + INDEX_EXPENSES_USER_CATEGORY_ID_CENTS + " ON " + DatabaseHelper.TABLE_EXPENSES + "(" +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + ", " + DatabaseHelper.COL_EXPENSE_CATEGORY_ID + ", " +
+                        DatabaseHelper.COL_EXPENSE_AMOUNT + ")");
+
+                db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_BUDGETS + " RENAME TO " + TABLE_BUDGETS_V10);
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_BUDGETS + " (" +
+                        DatabaseHelper.COL_BUDGET_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_BUDGET_CATEGORY_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_BUDGET_LIMIT + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_BUDGET_USER_ID + ", " + DatabaseHelper.COL_BUDGET_CATEGORY_ID + "), " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_BUDGET_USER_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "), " +
+                        "FOREIGN KEY(" + DatabaseHelper.COL_BUDGET_CATEGORY_ID + ") REFERENCES " +
+                        DatabaseHelper.TABLE_CATEGORIES + "(" + DatabaseHelper.COL_CATEGORY_ID + "))");
+
+                // Same table and triggers as v10, keyed by category id; rows are counted as they arrive
+                db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_SPEND_TOTALS);
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_SPEND_TOTALS + " (" +
+                        DatabaseHelper.COL_TOTAL_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_CATEGORY_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_PERIOD + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_TOTAL_COUNT + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_TOTAL_USER_ID + ", " + DatabaseHelper.COL_TOTAL_CATEGORY_ID + ", " +
+                        DatabaseHelper.COL_TOTAL_PERIOD + ")) WITHOUT ROWID");
+                String add = "INSERT OR IGNORE INTO spend_totals(user_id, category_id, period, total, count) " +
+                        "VALUES(NEW.user_id, NEW.category_id, 0, 0, 0); " +
+                        "UPDATE spend_totals SET total = total + NEW.amount_cents, count = count + 1 " +
+                        "WHERE user_id = NEW.user_id AND category_id = NEW.category_id AND period = 0; ";
+                String remove = "UPDATE spend_totals SET total = total - OLD.amount_cents, count = count - 1 " +
+                        "WHERE user_id = OLD.user_id AND category_id = OLD.category_id AND period = 0; " +
+                        "DELETE FROM spend_totals " +
+                        "WHERE user_id = OLD.user_id AND category_id = OLD.category_id AND period = 0 AND count <= 0; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_SPEND_TOTALS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_SPEND_TOTALS_UPDATE +
+                        " AFTER UPDATE OF user_id, category_id, amount_cents ON expenses BEGIN " + remove + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_SPEND_TOTALS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + remove + "END");
+
+                // Same columns as v9, so matchinfo and the search weights are unchanged
+                db.execSQL("CREATE VIRTUAL TABLE " + DatabaseHelper.TABLE_EXPENSES_FTS +
+                        " USING fts4(note, category, tokenize=unicode61)");
+                String ftsAdd = "INSERT INTO expenses_fts(docid, note, category) " +
+                        "VALUES(NEW.id, NEW.note, (SELECT name FROM categories WHERE id = NEW.category_id)); ";
+                String ftsRemove = "DELETE FROM expenses_fts WHERE docid = OLD.id; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + ftsAdd + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_AFTER_UPDATE +
+                        " AFTER UPDATE OF note, category_id ON expenses BEGIN " + ftsRemove + ftsAdd + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + ftsRemove + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_CATEGORY_RENAME +
+                        " AFTER UPDATE OF name ON categories BEGIN " +
+                        "UPDATE expenses_fts SET category = NEW.name WHERE docid IN " +
+                        "(SELECT id FROM expenses WHERE user_id = NEW.user_id AND category_id = NEW.id); END");
+            }
+
+            @Override
+            boolean stagesRows() {
+                return true;
+            }
+
+            // Budgets first (a few rows per user), then expenses. Each batch first adds the names it
+            // uses that are not categories yet, then copies its rows with the name swapped for the id.
+            // Rows of users that no longer exist are dropped, as the new tables' foreign keys require.
+            @Override
+            long backfill(SQLiteDatabase db, long resumeAfter, int batchSize) {
+                long moved = moveRows(db, TABLE_BUDGETS_V10, batchSize,
+                        hiddenCategoriesFrom(TABLE_BUDGETS_V10),
+                        "INSERT OR IGNORE INTO budgets(user_id, category_id, limit_cents) " +
+                        "SELECT b.user_id, c.id, b.limit_cents FROM " + TABLE_BUDGETS_V10 + " b " +
+                        "JOIN categories c ON c.user_id = b.user_id AND c.name = b.category WHERE b.rowid <= ?");
+                if (moved != DONE) return moved;
+                return moveRows(db, TABLE_EXPENSES_V10, batchSize,
+                        hiddenCategoriesFrom(TABLE_EXPENSES_V10),
+                        "INSERT INTO expenses(id, user_id, category_id, amount_cents, note, date, image_uri, date_day) " +
+                        "SELECT e.id, e.user_id, c.id, e.amount_cents, e.note, e.date, e.image_uri, e.date_day " +
+                        "FROM " + TABLE_EXPENSES_V10 + " e " +
+                        "JOIN categories c ON c.user_id = e.user_id AND c.name = e.category WHERE e.id <= ?");
+            }
+
+            private String hiddenCategoriesFrom(String staging) {
+                return "INSERT OR IGNORE INTO categories(user_id, name, icon, color, hidden) " +
+                        "SELECT DISTINCT user_id, category, " + DatabaseUtils.sqlEscapeString(Category.DEFAULT_ICON) +
+                        ", " + Category.DEFAULT_COLOR + ", 1 FROM " + staging +
+                        " WHERE rowid <= ? AND user_id IN (SELECT id FROM users)";
+            }
+        },
+        // 12: indexes serving the remaining feed orders straight from SQL (see DatabaseHelper#getExpensePage):
+        // amount order with date and id breaking ties, and category order, which walks a user's
+        // categories by case-insensitive name and reads each one's expenses by date
+        new Migration(12) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("CREATE INDEX " + INDEX_EXPENSES_USER_AMOUNT_DAY + " ON " + DatabaseHelper.TABLE_EXPENSES + "(" +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + ", " + DatabaseHelper.COL_EXPENSE_AMOUNT + ", " +
+                        DatabaseHelper.COL_EXPENSE_DAY + ")");
+                db.execSQL("CREATE INDEX " + INDEX_EXPENSES_USER_CATEGORY_ID_DAY + " ON " + DatabaseHelper.TABLE_EXPENSES + "(" +
+                        DatabaseHelper.COL_EXPENSE_USER_ID + ", " + DatabaseHelper.COL_EXPENSE_CATEGORY_ID + ", " +
+                        DatabaseHelper.COL_EXPENSE_DAY + ")");
+                db.execSQL("CREATE INDEX " + INDEX_CATEGORIES_USER_NAME_NOCASE + " ON " + DatabaseHelper.TABLE_CATEGORIES + "(" +
+                        DatabaseHelper.COL_CATEGORY_USER_ID + ", " + DatabaseHelper.COL_CATEGORY_NAME + " COLLATE NOCASE)");
+            }
+        },
+
+        // 13: per-day totals so a date range is summed from one row per day and category instead of
+        // every expense in it (see DatabaseHelper#getSpendingSummaryBetween). Same trigger scheme as
+        // spend_totals; rows still waiting for the v7 backfill have no day and are counted once it
+        // sets one. The primary key orders rows by day within a user, so a range is one index range.
+        new Migration(13) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_DAILY_TOTALS + " (" +
+                        DatabaseHelper.COL_DAILY_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_DAY + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_CATEGORY_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_COUNT + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_DAILY_USER_ID + ", " + DatabaseHelper.COL_DAILY_DAY + ", " +
+                        DatabaseHelper.COL_DAILY_CATEGORY_ID + ")) WITHOUT ROWID");
+                String add = "INSERT OR IGNORE INTO daily_totals(user_id, day, category_id, total, count) " +
+                        "SELECT NEW.user_id, NEW.date_day, NEW.category_id, 0, 0 WHERE NEW.date_day IS NOT NULL; " +
+                        "UPDATE daily_totals SET total = total + NEW.amount_cents, count = count + 1 " +
+                        "WHERE user_id = NEW.user_id AND day = NEW.date_day AND category_id = NEW.category_id; ";
+                String remove = "UPDATE daily_totals SET total = total - OLD.amount_cents, count = count - 1 " +
+                        "WHERE user_id = OLD.user_id AND day = OLD.date_day AND category_id = OLD.category_id; " +
+                        "DELETE FROM daily_totals " +
+                        "WHERE user_id = OLD.user_id AND day = OLD.date_day AND category_id = OLD.category_id AND count <= 0; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_DAILY_TOTALS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_DAILY_TOTALS_UPDATE +
+                        " AFTER UPDATE OF user_id, category_id, amount_cents, date_day ON expenses BEGIN " + remove + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_DAILY_TOTALS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + remove + "END");
+                // Seeded in the same transaction as the triggers, as in v8
+                db.execSQL("INSERT INTO daily_totals(user_id, day, category_id, total, count) " +
+                        "SELECT user_id, date_day, category_id, SUM(amount_cents), COUNT(*) FROM expenses " +
+                        "WHERE date_day IS NOT NULL GROUP BY user_id, date_day, category_id");
+            }
+        },
+
+        // 14: smallest and largest expense in each daily total, and the same totals per month, so
+        // summaries of long ranges read one row per month and category (see
+        // DatabaseHelper#getSpendingSummaryBetween). A month is keyed by the epoch day of its first day.
+        // Adding an expense can only widen the min/max; removing the one holding either re-reads it from
+        // the expenses left in that day or month through the (user_id, category_id, date_day) index.
+        // The unary + in MIN(+amount_cents) stops SQLite from walking the (user_id, category_id,
+        // amount_cents) index for the MIN/MAX instead. daily_totals is recreated with the new columns
+        // rather than altered, as its triggers change too.
+        new Migration(14) {
+            @Override
+            void migrate(SQLiteDatabase db) {
+                db.execSQL("DROP TRIGGER " + TRIGGER_DAILY_TOTALS_INSERT);
+                db.execSQL("DROP TRIGGER " + TRIGGER_DAILY_TOTALS_UPDATE);
+                db.execSQL("DROP TRIGGER " + TRIGGER_DAILY_TOTALS_DELETE);
+                db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_DAILY_TOTALS);
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_DAILY_TOTALS + " (" +
+                        DatabaseHelper.COL_DAILY_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_DAY + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_CATEGORY_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_COUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_MIN + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_DAILY_MAX + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_DAILY_USER_ID + ", " + DatabaseHelper.COL_DAILY_DAY + ", " +
+                        DatabaseHelper.COL_DAILY_CATEGORY_ID + ")) WITHOUT ROWID");
+                String add = "INSERT OR IGNORE INTO daily_totals(user_id, day, category_id, total, count, min_cents, max_cents) " +
+                        "SELECT NEW.user_id, NEW.date_day, NEW.category_id, 0, 0, NEW.amount_cents, NEW.amount_cents " +
+                        "WHERE NEW.date_day IS NOT NULL; " +
+                        "UPDATE daily_totals SET total = total + NEW.amount_cents, count = count + 1, " +
+                        "min_cents = MIN(min_cents, NEW.amount_cents), max_cents = MAX(max_cents, NEW.amount_cents) " +
+                        "WHERE user_id = NEW.user_id AND day = NEW.date_day AND category_id = NEW.category_id; ";
+                String remaining = "FROM expenses WHERE user_id = OLD.user_id AND category_id = OLD.category_id " +
+                        "AND date_day = OLD.date_day";
+                String remove = "UPDATE daily_totals SET total = total - OLD.amount_cents, count = count - 1, " +
+                        "min_cents = CASE WHEN OLD.amount_cents = min_cents " +
+                        "THEN COALESCE((SELECT MIN(+amount_cents) " + remaining + "), 0) ELSE min_cents END, " +
+                        "max_cents = CASE WHEN OLD.amount_cents = max_cents " +
+                        "THEN COALESCE((SELECT MAX(+amount_cents) " + remaining + "), 0) ELSE max_cents END " +
+                        "WHERE user_id = OLD.user_id AND day = OLD.date_day AND category_id = OLD.category_id; " +
+                        "DELETE FROM daily_totals " +
+                        "WHERE user_id = OLD.user_id AND day = OLD.date_day AND category_id = OLD.category_id AND count <= 0; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_DAILY_TOTALS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_DAILY_TOTALS_UPDATE +
+                        " AFTER UPDATE OF user_id, category_id, amount_cents, date_day ON expenses BEGIN " + remove + add + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_DAILY_TOTALS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + remove + "END");
+                db.execSQL("INSERT INTO daily_totals(user_id, day, category_id, total, count, min_cents, max_cents) " +
+                        "SELECT user_id, date_day, category_id, SUM(amount_cents), COUNT(*), MIN(amount_cents), MAX(amount_cents) " +
+                        "FROM expenses WHERE date_day IS NOT NULL GROUP BY user_id, date_day, category_id");
+
+                db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_MONTHLY_TOTALS + " (" +
+                        DatabaseHelper.COL_MONTHLY_USER_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_MONTHLY_MONTH + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_MONTHLY_CATEGORY_ID + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_MONTHLY_AMOUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_MONTHLY_COUNT + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_MONTHLY_MIN + " INTEGER NOT NULL, " +
+                        DatabaseHelper.COL_MONTHLY_MAX + " INTEGER NOT NULL, " +
+                        "PRIMARY KEY(" + DatabaseHelper.COL_MONTHLY_USER_ID + ", " + DatabaseHelper.COL_MONTHLY_MONTH + ", " +
+                        DatabaseHelper.COL_MONTHLY_CATEGORY_ID + ")) WITHOUT ROWID");
+                String newMonth = "CAST(strftime('%s', NEW.date_day * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400";
+                String oldMonth = "CAST(strftime('%s', OLD.date_day * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400";
+                String oldNextMonth = "CAST(strftime('%s', OLD.date_day * 86400, 'unixepoch', 'start of month', '+1 month') AS INTEGER) / 86400";
+                String monthlyAdd = "INSERT OR IGNORE INTO monthly_totals(user_id, month, category_id, total, count, min_cents, max_cents) " +
+                        "SELECT NEW.user_id, " + newMonth + ", NEW.category_id, 0, 0, NEW.amount_cents, NEW.amount_cents " +
+                        "WHERE NEW.date_day IS NOT NULL; " +
+                        "UPDATE monthly_totals SET total = total + NEW.amount_cents, count = count + 1, " +
+                        "min_cents = MIN(min_cents, NEW.amount_cents), max_cents = MAX(max_cents, NEW.amount_cents) " +
+                        "WHERE user_id = NEW.user_id AND month = " + newMonth + " AND category_id = NEW.category_id; ";
+                String monthRemaining = "FROM expenses WHERE user_id = OLD.user_id AND category_id = OLD.category_id " +
+                        "AND date_day >= " + oldMonth + " AND date_day < " + oldNextMonth;
+                String monthlyRemove = "UPDATE monthly_totals SET total = total - OLD.amount_cents, count = count - 1, " +
+                        "min_cents = CASE WHEN OLD.amount_cents = min_cents " +
+                        "THEN COALESCE((SELECT MIN(+amount_cents) " + monthRemaining + "), 0) ELSE min_cents END, " +
+                        "max_cents = CASE WHEN OLD.amount_cents = max_cents " +
+                        "THEN COALESCE((SELECT MAX(+amount_cents) " + monthRemaining + "), 0) ELSE max_cents END " +
+                        "WHERE user_id = OLD.user_id AND month = " + oldMonth + " AND category_id = OLD.category_id; " +
+                        "DELETE FROM monthly_totals " +
+                        "WHERE user_id = OLD.user_id AND month = " + oldMonth + " AND category_id = OLD.category_id AND count <= 0; ";
+                db.execSQL("CREATE TRIGGER " + TRIGGER_MONTHLY_TOTALS_INSERT +
+                        " AFTER INSERT ON expenses BEGIN " + monthlyAdd + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_MONTHLY_TOTALS_UPDATE +
+                        " AFTER UPDATE OF user_id, category_id, amount_cents, date_day ON expenses BEGIN " +
+                        monthlyRemove + monthlyAdd + "END");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_MONTHLY_TOTALS_DELETE +
+                        " AFTER DELETE ON expenses BEGIN " + monthlyRemove + "END");
+                // Rolled up from the daily rows just seeded, which hold the same expenses
+                db.execSQL("INSERT INTO monthly_totals(user_id, month, category_id, total, count, min_cents, max_cents) " +
+                        "SELECT user_id, CAST(strftime('%s', day * 86400, 'unixepoch', 'start of month') AS INTEGER) / 86400 AS m, " +
+                        "category_id, SUM(total), SUM(count), MIN(min_cents), MAX(max_cents) " +
+                        "FROM daily_totals GROUP BY user_id, m, category_id");
+            }
+        },
+    };
+
+    private Migrations() {}
+
+    /**
+     * Moves one batch of rows out of a staging table: runs each statement with the highest rowid in
+     * the batch bound to its ?, then deletes the batch from the staging table, which is dropped once
+     * empty. Whatever is still in a staging table has not been converted yet, so an interrupted
+     * backfill resumes where it stopped without tracking its position.
+     *
+     * @param statements Statements reading the staging rows with rowid <= ? into the new table
+     * @return The highest rowid moved, or {@link Migration#DONE} once the staging table is gone
+     */
+    static long moveRows(SQLiteDatabase db, String staging, int batchSize, String... statements) {
+        if (!tableExists(db, staging)) return Migration.DONE;
+        long last = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(r), 0) FROM " +
+                "(SELECT rowid AS r FROM " + staging + " ORDER BY rowid LIMIT " + batchSize + ")", null);
+        if (last == 0) {
+            db.execSQL("DROP TABLE " + staging);
+            return Migration.DONE;
+        }
+        for (String statement : statements) {
+            db.execSQL(statement, new Object[]{last});
+        }
+        db.execSQL("DELETE FROM " + staging + " WHERE rowid <= " + last);
+        return last;
+    }
+
+    /**
+     * @return True if any migration's staging table still exists, i.e. rows may be out of the app's sight
+     */
+    static boolean hasStagingTables(SQLiteDatabase db) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name IN (?, ?, ?, ?)",
+                new String[]{TABLE_EXPENSES_V5, TABLE_BUDGETS_V5, TABLE_EXPENSES_V10, TABLE_BUDGETS_V10}) > 0;
+    }
+
+    private static boolean tableExists(SQLiteDatabase db, String table) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{table}) > 0;
+    }
+
+    // Starts the new table's AUTOINCREMENT ids after the highest one the staged table ever handed out,
+    // so rows created while the backfill runs never take the id of a row still waiting to move
+    private static void continueSequence(SQLiteDatabase db, String staging, String table) {
+        long sequence = DatabaseUtils.longForQuery(db,
+                "SELECT COALESCE(MAX(seq), 0) FROM sqlite_sequence WHERE name = ?", new String[]{staging});
+        if (sequence > 0) {
+            db.execSQL("INSERT INTO sqlite_sequence(name, seq) VALUES(?, ?)", new Object[]{table, sequence});
+        }
+    }
+}
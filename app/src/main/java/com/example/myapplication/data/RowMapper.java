@@ -0,0 +1,60 @@
+package com.example.myapplication.data;
+
+import android.database.Cursor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RowMapper
+ *
+ * Maps Cursor rows straight into model objects.
+ * Column indices of the projection are looked up by name once per cursor (not once per row) and handed to
+ * {@link #mapRow(Cursor, int[])}, so implementations hold no state and a single instance
+ * can be shared across threads.
+ *
+ * @param <T> The model type produced for each row
+ */
+public abstract class RowMapper<T> {
+    private final String[] projection;
+
+    protected RowMapper(String[] projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * @return The columns this mapper reads; pass it as the query projection
+     */
+    public String[] getProjection() {
+        return projection.clone();
+    }
+
+    /**
+     * Builds one model object from the cursor's current row.
+     *
+     * @param columns Cursor index of each projection column, in projection order
+     */
+    protected abstract T mapRow(Cursor cursor, int[] columns);
+
+    private int[] resolveColumns(Cursor cursor) {
+        int[] columns = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            columns[i] = cursor.getColumnIndexOrThrow(projection[i]);
+        }
+        return columns;
+    }
+
+    /**
+     * Maps every remaining row of the cursor. Does not close the cursor.
+     *
+     * @param cursor The query result, positioned before the first row
+     * @return The mapped rows, in cursor order
+     */
+    public List<T> mapAll(Cursor cursor) {
+        List<T> rows = new ArrayList<>(Math.max(cursor.getCount(), 0));
+        int[] columns = resolveColumns(cursor);
+        while (cursor.moveToNext()) {
+            rows.add(mapRow(cursor, columns));
+        }
+        return rows;
+    }
+}
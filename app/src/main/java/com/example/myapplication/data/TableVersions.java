@@ -0,0 +1,84 @@
+package com.example.myapplication.data;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TableVersions
+ *
+ * In-memory change counters for the tables screens display. DatabaseHelper bumps a table's counter
+ * after every successful write to it, so a screen can remember the counters it last loaded at and
+ * skip reloading when it is shown again and nothing it reads has changed. {@link VersionedCache}
+ * keys derived results on the same counters.
+ *
+ * Each bump is also announced to the registered {@link Listener}s, so holders of loaded data can
+ * refresh it as soon as it goes stale instead of checking on every resume.
+ *
+ * Counters start at zero in every process and only ever increase; they are not persisted.
+ */
+public final class TableVersions {
+    public static final int EXPENSES = 0;
+    public static final int BUDGETS = 1;
+    public static final int CATEGORIES = 2;
+    private static final int TABLE_COUNT = 3;
+
+    private static final TableVersions INSTANCE = new TableVersions();
+
+    /**
+     * Told about every write, on the thread that made it (usually an I/O thread).
+     * Must return quickly; hand real work to another thread.
+     */
+    public interface Listener {
+        void onTableChanged(int table, long version);
+    }
+
+    private final AtomicLong[] versions = new AtomicLong[TABLE_COUNT];
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private TableVersions() {
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            versions[i] = new AtomicLong();
+        }
+    }
+
+    public static TableVersions getInstance() {
+        return INSTANCE;
+    }
+
+    public long get(int table) {
+        return versions[table].get();
+    }
+
+    /**
+     * @return A value that changes whenever any of the given tables is written to
+     */
+    public long stamp(int... tables) {
+        long stamp = 0;
+        for (int table : tables) {
+            stamp += versions[table].get(); // Counters only grow, so the sum only grows
+        }
+        return stamp;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void bump(int table) {
+        long version = versions[table].incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.onTableChanged(table, version);
+        }
+    }
+
+    void bumpAll() {
+        for (int table = 0; table < TABLE_COUNT; table++) {
+            bump(table);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.myapplication.data;
+
+import com.example.myapplication.models.User;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * UserSession
+ *
+ * The signed-in user, held in memory for the lifetime of the process. AuthRepository resolves it
+ * from SharedPreferences and the users table once (at startup or login) and afterwards answers
+ * getCurrentUser() from here with no I/O. It is replaced on login, signup and username change and
+ * cleared on logout and database reset.
+ *
+ * Also counts how many user lookups were answered from memory instead of the database, so the
+ * saving can be reported per screen.
+ */
+public final class UserSession {
+    private static final UserSession INSTANCE = new UserSession();
+
+    private volatile boolean resolved;
+    private volatile User user;
+    private final AtomicInteger roundTripsSaved = new AtomicInteger();
+
+    private UserSession() {}
+
+    public static UserSession getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Whether the session has been resolved since process start (the user may still be null)
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * @return The signed-in user, or null if signed out or not yet resolved
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Sets the signed-in user; null records that nobody is signed in.
+     */
+    public synchronized void setUser(User user) {
+        this.user = user;
+        this.resolved = true;
+    }
+
+    /**
+     * Forgets the session so the next lookup resolves it from storage again.
+     */
+    public synchronized void invalidate() {
+        this.user = null;
+        this.resolved = false;
+    }
+
+    public void recordRoundTripSaved() {
+        roundTripsSaved.incrementAndGet();
+    }
+
+    /**
+     * @return Lookups answered from memory since the previous call, resetting the count
+     */
+    public int takeRoundTripsSaved() {
+        return roundTripsSaved.getAndSet(0);
+    }
+}
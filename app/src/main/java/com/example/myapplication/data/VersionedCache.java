@@ -0,0 +1,63 @@
+package com.example.myapplication.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * VersionedCache
+ *
+ * Holds results derived from some tables (a summary, a list of budgets), each stored with the
+ * {@link TableVersions} stamp of those tables at the time it was read. A result is reused for as
+ * long as none of the tables has been written to since; nothing has to invalidate it explicitly.
+ *
+ * Cached values are shared between callers and must not be modified. The least recently used
+ * entries are dropped beyond the configured size. Safe to use from any thread.
+ */
+public final class VersionedCache<K, V> {
+    private static final class Entry<V> {
+        final long stamp;
+        final V value;
+
+        Entry(long stamp, V value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+
+    private final int[] tables;
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * @param maxEntries Number of keys kept, e.g. one per signed-in user or per date range
+     * @param tables The {@link TableVersions} tables the values are read from
+     */
+    public VersionedCache(int maxEntries, int... tables) {
+        this.tables = tables;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the value cached for the key if its tables are unchanged since it was loaded,
+     * otherwise loads it and caches the result. A null result is not cached.
+     */
+    public V get(K key, Supplier<V> loader) {
+        long stamp = TableVersions.getInstance().stamp(tables); // Before loading, so a concurrent write makes the result stale
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.stamp == stamp) return entry.value;
+        }
+        V value = loader.get();
+        if (value != null) {
+            synchronized (entries) {
+                entries.put(key, new Entry<>(stamp, value));
+            }
+        }
+        return value;
+    }
+}
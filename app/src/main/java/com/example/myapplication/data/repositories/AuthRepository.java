@@ -3,6 +3,7 @@ package com.example.myapplication.data.repositories;
 import android.content.Context;
 import android.content.SharedPreferences;
 import com.example.myapplication.data.DatabaseHelper;
+import com.example.myapplication.data.UserSession;
 import com.example.myapplication.models.LoginResult;
 import com.example.myapplication.models.SignupResult;
 import com.example.myapplication.models.User;
@@ -11,11 +12,12 @@ public class AuthRepository {
     private DatabaseHelper dbHelper;
     private SharedPreferences prefs;
     private Context context;
+    private final UserSession session = UserSession.getInstance();
 
     public AuthRepository(Context context) {
         this.context = context;
         this.prefs = context.getSharedPreferences("ExpenseTracker", Context.MODE_PRIVATE);
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
     }
 
     public LoginResult login(String username, String password) {
@@ -25,6 +27,7 @@ public class AuthRepository {
             editor.putInt("userId", user.id);
             editor.putString("username", user.username);
             editor.apply();
+            session.setUser(user);
             return new LoginResult(true, user, null);
         }
         return new LoginResult(false, null, "Invalid username or password");
@@ -38,6 +41,7 @@ public class AuthRepository {
             editor.putString("username", username.trim());
             editor.apply();
             User user = new User((int) userId, username.trim());
+            session.setUser(user);
             return new SignupResult(true, user, null);
         }
         if (userId == -2) {
@@ -48,18 +52,37 @@ public class AuthRepository {
         return new SignupResult(false, null, "Signup failed. Please try again.");
     }
 
+    /**
+     * Returns the signed-in user. Only the first call after process start (or after the session
+     * was invalidated) reads SharedPreferences and checks the users table; later calls are served
+     * from UserSession without I/O.
+     */
     public User getCurrentUser() {
+        if (session.isResolved()) {
+            session.recordRoundTripSaved();
+            return session.getUser();
+        }
+        return resolveCurrentUser();
+    }
+
+    private synchronized User resolveCurrentUser() {
+        if (session.isResolved()) {
+            return session.getUser();
+        }
         int userId = prefs.getInt("userId", -1);
         String username = prefs.getString("username", null);
         
         if (userId > 0 && username != null) {
             if (dbHelper.checkUserExists(userId)) {
-                return new User(userId, username);
+                User user = new User(userId, username);
+                session.setUser(user);
+                return user;
             } else {
                 logout();
                 return null;
             }
         }
+        session.setUser(null);
         return null;
     }
 
@@ -67,6 +90,7 @@ public class AuthRepository {
         SharedPreferences.Editor editor = prefs.edit();
         editor.clear();
         editor.apply();
+        session.setUser(null);
     }
 
     public boolean resetPassword(String username, String pet, String newPassword) {
@@ -74,9 +98,12 @@ public class AuthRepository {
     }
     
     public boolean updateUsername(int userId, String newUsername) {
-        boolean success = dbHelper.updateUsername(userId, newUsername);
+        // Stored trimmed, so the prefs and the cached session must hold the same trimmed name
+        String trimmedUsername = newUsername != null ? newUsername.trim() : null;
+        boolean success = dbHelper.updateUsername(userId, trimmedUsername);
         if (success) {
-             prefs.edit().putString("username", newUsername).apply();
+             prefs.edit().putString("username", trimmedUsername).apply();
+             session.setUser(new User(userId, trimmedUsername));
         }
         return success;
     }
@@ -90,5 +117,6 @@ public class AuthRepository {
         editor.clear();
         editor.apply();
         dbHelper.resetDatabase(context);
+        session.invalidate();
     }
 }
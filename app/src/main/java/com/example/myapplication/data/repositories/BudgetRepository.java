@@ -2,40 +2,32 @@ package com.example.myapplication.data.repositories;
 
 import android.content.Context;
 import com.example.myapplication.data.DatabaseHelper;
+import com.example.myapplication.data.TableVersions;
+import com.example.myapplication.data.VersionedCache;
 import com.example.myapplication.models.Budget;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.util.ArrayList;
 import java.util.List;
 
 public class BudgetRepository {
+    // Shared by every instance; reused until budgets or categories are written to
+    private static final VersionedCache<Integer, List<Budget>> BUDGETS =
+            new VersionedCache<>(4, TableVersions.BUDGETS, TableVersions.CATEGORIES);
+
     private DatabaseHelper dbHelper;
 
     public BudgetRepository(Context context) {
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
     }
 
-    public boolean setBudget(int userId, String category, double limit) {
-        return dbHelper.setBudget(userId, category, limit);
+    public boolean setBudget(int userId, String category, long limitCents) {
+        return dbHelper.setBudget(userId, category, limitCents);
     }
 
     public List<Budget> getBudgets(int userId) {
-        List<Budget> budgets = new ArrayList<>();
-        String json = dbHelper.getBudgets(userId);
-        try {
-            JSONArray jsonArray = new JSONArray(json);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                Budget budget = new Budget(
-                    obj.getString("category"),
-                    obj.getDouble("limit")
-                );
-                budgets.add(budget);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return budgets;
+        return BUDGETS.get(userId, () -> dbHelper.getBudgets(userId));
+    }
+
+    public Budget getBudget(int userId, String category) {
+        return dbHelper.getBudget(userId, category);
     }
 
     public boolean deleteBudget(int userId, String category) {
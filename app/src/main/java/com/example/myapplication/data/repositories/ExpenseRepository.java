@@ -2,58 +2,79 @@ package com.example.myapplication.data.repositories;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.CancellationSignal;
 import com.example.myapplication.data.DatabaseHelper;
+import com.example.myapplication.data.TableVersions;
+import com.example.myapplication.data.VersionedCache;
+import com.example.myapplication.models.Category;
 import com.example.myapplication.models.Expense;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpensePage;
+import com.example.myapplication.models.ExpenseQuery;
+import com.example.myapplication.models.SpendingSummary;
 import java.util.List;
 import java.util.Set;
 
 public class ExpenseRepository {
     private DatabaseHelper dbHelper;
     private SharedPreferences prefs;
-    private static final String KEY_CATEGORIES = "categories_list";
-    private static final Set<String> DEFAULT_CATEGORIES = new HashSet<>(Arrays.asList(
-        "Food", "Transport", "Shopping", "Bills", "Entertainment", "Others"
-    ));
+    // Category names as stored before they moved into the categories table
+    private static final String KEY_CATEGORIES_LEGACY = "categories_list";
+    private static final String KEY_CATEGORIES_IMPORTED = "categories_imported_";
+    // Shared by every instance; reused until expenses or categories are written to
+    private static final VersionedCache<Integer, SpendingSummary> SUMMARIES =
+            new VersionedCache<>(4, TableVersions.EXPENSES, TableVersions.CATEGORIES);
+    private static final VersionedCache<String, SpendingSummary> RANGE_SUMMARIES =
+            new VersionedCache<>(16, TableVersions.EXPENSES, TableVersions.CATEGORIES);
 
     public ExpenseRepository(Context context) {
         this.prefs = context.getSharedPreferences("ExpenseTracker", Context.MODE_PRIVATE);
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
     }
 
-    public long addExpense(int userId, String category, double amount, String note, String date, String imageUri) {
-        return dbHelper.addExpense(userId, category, amount, note, date, imageUri);
+    public long addExpense(int userId, String category, long amountCents, String note, long epochDay, String imageUri) {
+        return dbHelper.addExpense(userId, category, amountCents, note, epochDay, imageUri);
     }
 
     public List<Expense> getExpenses(int userId) {
-        List<Expense> expenses = new ArrayList<>();
-        String json = dbHelper.getExpenses(userId);
-        try {
-            JSONArray jsonArray = new JSONArray(json);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                Expense expense = new Expense(
-                    obj.getInt("id"),
-                    obj.getString("category"),
-                    obj.getDouble("amount"),
-                    obj.optString("note", ""),
-                    obj.optString("date", ""),
-                    obj.optString("imageUri", null)
-                );
-                expenses.add(expense);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return expenses;
+        return dbHelper.getExpenses(userId);
+    }
+
+    public ExpensePage getExpensePage(int userId, ExpenseOrder order, Expense after, int pageSize) {
+        return dbHelper.getExpensePage(userId, order, after, pageSize);
+    }
+
+    public List<Expense> findExpenses(int userId, ExpenseQuery query, int limit, CancellationSignal signal) {
+        return dbHelper.findExpenses(userId, query, limit, signal);
+    }
+
+    public SpendingSummary summarizeExpenses(int userId, ExpenseQuery query, CancellationSignal signal) {
+        return dbHelper.summarizeExpenses(userId, query, signal);
+    }
+
+    public Expense getExpense(int expenseId) {
+        return dbHelper.getExpense(expenseId);
+    }
+
+    public Set<String> getReceiptUris() {
+        return dbHelper.getReceiptUris();
+    }
+
+    public long getCategorySpend(int userId, String category) {
+        return dbHelper.getCategorySpend(userId, category);
     }
 
-    public boolean updateExpense(int expenseId, String category, double amount, String note, String date, String imageUri) {
-         return dbHelper.updateExpense(expenseId, category, amount, note, date, imageUri);
+    public SpendingSummary getSpendingSummary(int userId) {
+        return SUMMARIES.get(userId, () -> dbHelper.getSpendingSummary(userId));
+    }
+
+    public SpendingSummary getSpendingSummaryBetween(int userId, long fromEpochDay, long toEpochDay) {
+        return RANGE_SUMMARIES.get(userId + ":" + fromEpochDay + ":" + toEpochDay,
+                () -> dbHelper.getSpendingSummaryBetween(userId, fromEpochDay, toEpochDay));
+    }
+
+    public boolean updateExpense(int userId, int expenseId, String category, long amountCents, String note, long epochDay, String imageUri) {
+         return dbHelper.updateExpense(userId, expenseId, category, amountCents, note, epochDay, imageUri);
     }
     
     public boolean deleteExpense(int expenseId) {
@@ -65,34 +86,39 @@ public class ExpenseRepository {
     }
 
     // Category Management
-    public List<String> getCategories() {
-        Set<String> categories = prefs.getStringSet(KEY_CATEGORIES, null);
-        if (categories == null) {
-            categories = DEFAULT_CATEGORIES;
-            prefs.edit().putStringSet(KEY_CATEGORIES, categories).apply();
-        }
-        return new ArrayList<>(categories);
+    public List<Category> getCategories(int userId) {
+        importLegacyCategories(userId);
+        return dbHelper.getCategories(userId);
     }
-    
-    public boolean addCategory(String category) {
-        Set<String> oldCategories = prefs.getStringSet(KEY_CATEGORIES, null);
-        Set<String> categories = oldCategories != null ? new HashSet<>(oldCategories) : new HashSet<>(DEFAULT_CATEGORIES);
-        
-        if (categories.add(category)) {
-            prefs.edit().putStringSet(KEY_CATEGORIES, categories).apply();
-            return true;
-        }
-        return false;
+
+    public boolean addCategory(int userId, String category) {
+        return dbHelper.addCategory(userId, category);
+    }
+
+    public boolean deleteCategory(int userId, String category) {
+        return dbHelper.deleteCategory(userId, category);
     }
 
-    public boolean deleteCategory(String category) {
-        Set<String> oldCategories = prefs.getStringSet(KEY_CATEGORIES, null);
-        Set<String> categories = oldCategories != null ? new HashSet<>(oldCategories) : new HashSet<>(DEFAULT_CATEGORIES);
+    public boolean renameCategory(int userId, int categoryId, String newName) {
+        return dbHelper.renameCategory(userId, categoryId, newName);
+    }
 
-        if (categories.remove(category)) {
-            prefs.edit().putStringSet(KEY_CATEGORIES, categories).apply();
-            return true;
+    /**
+     * Categories used to be one name set in SharedPreferences, shared by every user on the device.
+     * The first time each user's categories are read, the pickers are made to match that set.
+     */
+    private void importLegacyCategories(int userId) {
+        Set<String> legacy = prefs.getStringSet(KEY_CATEGORIES_LEGACY, null);
+        String importedKey = KEY_CATEGORIES_IMPORTED + userId;
+        if (legacy == null || prefs.getBoolean(importedKey, false)) return;
+        for (String name : legacy) {
+            dbHelper.addCategory(userId, name);
+        }
+        for (Category category : dbHelper.getCategories(userId)) {
+            if (!legacy.contains(category.name)) {
+                dbHelper.deleteCategory(userId, category.name);
+            }
         }
-        return false;
+        prefs.edit().putBoolean(importedKey, true).apply();
     }
 }
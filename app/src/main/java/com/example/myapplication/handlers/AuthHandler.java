@@ -5,6 +5,9 @@ import com.example.myapplication.models.LoginResult;
 import com.example.myapplication.models.SignupResult;
 import com.example.myapplication.models.User;
 import com.example.myapplication.services.AuthService;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.AsyncRequest;
+import com.example.myapplication.utils.Callback;
 
 /**
  * AuthHandler
@@ -12,9 +15,11 @@ import com.example.myapplication.services.AuthService;
  * Presentation Layer Handler for Authentication.
  * Acts as an intermediary between UI components (Activities/Fragments) and the Service Layer (AuthService).
  * Decouples the UI from business logic and data access.
+ * The ...Async methods run on the I/O pool and deliver on the main thread.
  */
 public class AuthHandler {
     private AuthService authService;
+    private final AppExecutors executors = AppExecutors.getInstance();
 
     public AuthHandler(Context context) {
         this.authService = new AuthService(context);
@@ -24,14 +29,26 @@ public class AuthHandler {
         return authService.login(username, password);
     }
 
+    public AsyncRequest handleLoginAsync(String username, String password, Callback<LoginResult> callback) {
+        return executors.write(() -> handleLogin(username, password), callback);
+    }
+
     public SignupResult handleSignup(String username, String password, String pet) {
         return authService.signup(username, password, pet);
     }
 
+    public AsyncRequest handleSignupAsync(String username, String password, String pet, Callback<SignupResult> callback) {
+        return executors.write(() -> handleSignup(username, password, pet), callback);
+    }
+
     public boolean handleResetPassword(String username, String pet, String newPassword) {
         return authService.resetPassword(username, pet, newPassword);
     }
 
+    public AsyncRequest handleResetPasswordAsync(String username, String pet, String newPassword, Callback<Boolean> callback) {
+        return executors.write(() -> handleResetPassword(username, pet, newPassword), callback);
+    }
+
     public User getCurrentUser() {
         return authService.getCurrentUser();
     }
@@ -3,6 +3,9 @@ package com.example.myapplication.handlers;
 import android.content.Context;
 import com.example.myapplication.models.Budget;
 import com.example.myapplication.services.BudgetService;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.AsyncRequest;
+import com.example.myapplication.utils.Callback;
 import java.util.List;
 
 /**
@@ -10,23 +13,37 @@ import java.util.List;
  * 
  * Presentation Layer Handler for Budget Management.
  * Acts as the bridge between UI (Fragments) and BudgetService.
+ * The ...Async methods run on the I/O pool and deliver on the main thread.
  */
 public class BudgetHandler {
     private BudgetService budgetService;
+    private final AppExecutors executors = AppExecutors.getInstance();
 
     public BudgetHandler(Context context) {
         this.budgetService = new BudgetService(context);
     }
 
-    public boolean handleSetBudget(String category, double limit) {
-        return budgetService.setBudget(category, limit);
+    public boolean handleSetBudget(String category, long limitCents) {
+        return budgetService.setBudget(category, limitCents);
+    }
+
+    public AsyncRequest handleSetBudgetAsync(String category, long limitCents, Callback<Boolean> callback) {
+        return executors.write(() -> handleSetBudget(category, limitCents), callback);
     }
 
     public List<Budget> getBudgets() {
         return budgetService.getBudgets();
     }
 
+    public AsyncRequest getBudgetsAsync(Callback<List<Budget>> callback) {
+        return executors.read(this::getBudgets, callback);
+    }
+
     public boolean handleDeleteBudget(String category) {
         return budgetService.deleteBudget(category);
     }
+
+    public AsyncRequest handleDeleteBudgetAsync(String category, Callback<Boolean> callback) {
+        return executors.write(() -> handleDeleteBudget(category), callback);
+    }
 }
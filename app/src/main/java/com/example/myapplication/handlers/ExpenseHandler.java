@@ -1,9 +1,19 @@
 package com.example.myapplication.handlers;
 
 import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import com.example.myapplication.models.Category;
 import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpensePage;
+import com.example.myapplication.models.ExpenseQuery;
 import com.example.myapplication.models.BudgetCheckResult;
+import com.example.myapplication.models.SpendingSummary;
 import com.example.myapplication.services.ExpenseService;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.AsyncRequest;
+import com.example.myapplication.utils.Callback;
 import java.util.List;
 
 /**
@@ -12,51 +22,164 @@ import java.util.List;
  * Presentation Layer Handler for Expense Management.
  * Acts as the bridge between UI (Fragments) and ExpenseService.
  * Manages UI-related data flow for expenses and categories.
+ *
+ * UI code should use the ...Async methods, which run on the I/O pool and deliver on the main thread;
+ * the blocking variants are for code that is already off the main thread.
  */
 public class ExpenseHandler {
     private ExpenseService expenseService;
+    private final AppExecutors executors = AppExecutors.getInstance();
 
     public ExpenseHandler(Context context) {
         this.expenseService = new ExpenseService(context);
     }
 
-    public long handleAddExpense(String category, double amount, String note, String date, String imageUri) {
-        return expenseService.addExpense(category, amount, note, date, imageUri);
+    public long handleAddExpense(String category, long amountCents, String note, long epochDay, String imageUri) {
+        return expenseService.addExpense(category, amountCents, note, epochDay, imageUri);
+    }
+
+    public AsyncRequest handleAddExpenseAsync(String category, long amountCents, String note, long epochDay, String imageUri,
+                                              Callback<Long> callback) {
+        return executors.write(() -> handleAddExpense(category, amountCents, note, epochDay, imageUri), callback);
+    }
+
+    /**
+     * Imports a picked receipt image off the main thread; the callback receives the local URI to save
+     * with the expense, or null if the image could not be read.
+     */
+    public AsyncRequest importReceiptAsync(Uri source, Callback<String> callback) {
+        return executors.read(() -> expenseService.importReceipt(source), callback);
     }
 
     public List<Expense> getExpenses() {
         return expenseService.getExpenses();
     }
 
-    public boolean handleUpdateExpense(int expenseId, String category, double amount, String note, String date, String imageUri) {
-        return expenseService.updateExpense(expenseId, category, amount, note, date, imageUri);
+    public List<Expense> findExpenses(ExpenseQuery query, int limit) {
+        return expenseService.findExpenses(query, limit, null);
+    }
+
+    /**
+     * Cancelling the returned request also aborts the query if it is already running.
+     */
+    public AsyncRequest findExpensesAsync(ExpenseQuery query, int limit, Callback<List<Expense>> callback) {
+        CancellationSignal signal = new CancellationSignal();
+        AsyncRequest request = executors.read(() -> expenseService.findExpenses(query, limit, signal), callback);
+        request.cancelWith(signal);
+        return request;
+    }
+
+    public SpendingSummary summarizeExpenses(ExpenseQuery query) {
+        return expenseService.summarizeExpenses(query, null);
+    }
+
+    /**
+     * Cancelling the returned request also aborts the query if it is already running.
+     */
+    public AsyncRequest summarizeExpensesAsync(ExpenseQuery query, Callback<SpendingSummary> callback) {
+        CancellationSignal signal = new CancellationSignal();
+        AsyncRequest request = executors.read(() -> expenseService.summarizeExpenses(query, signal), callback);
+        request.cancelWith(signal);
+        return request;
+    }
+
+    public ExpensePage getExpensePage(ExpenseOrder order, Expense after, int pageSize) {
+        return expenseService.getExpensePage(order, after, pageSize);
+    }
+
+    public AsyncRequest getExpensePageAsync(ExpenseOrder order, Expense after, int pageSize,
+                                            Callback<ExpensePage> callback) {
+        return executors.read(() -> getExpensePage(order, after, pageSize), callback);
+    }
+
+    public SpendingSummary getSpendingSummary() {
+        return expenseService.getSpendingSummary();
+    }
+
+    public AsyncRequest getSpendingSummaryAsync(Callback<SpendingSummary> callback) {
+        return executors.read(this::getSpendingSummary, callback);
+    }
+
+    public SpendingSummary getSpendingSummaryBetween(long fromEpochDay, long toEpochDay) {
+        return expenseService.getSpendingSummaryBetween(fromEpochDay, toEpochDay);
+    }
+
+    public AsyncRequest getSpendingSummaryBetweenAsync(long fromEpochDay, long toEpochDay,
+                                                       Callback<SpendingSummary> callback) {
+        return executors.read(() -> getSpendingSummaryBetween(fromEpochDay, toEpochDay), callback);
+    }
+
+    public boolean handleUpdateExpense(int expenseId, String category, long amountCents, String note, long epochDay, String imageUri) {
+        return expenseService.updateExpense(expenseId, category, amountCents, note, epochDay, imageUri);
+    }
+
+    public AsyncRequest handleUpdateExpenseAsync(int expenseId, String category, long amountCents, String note, long epochDay,
+                                                 String imageUri, Callback<Boolean> callback) {
+        return executors.write(() -> handleUpdateExpense(expenseId, category, amountCents, note, epochDay, imageUri), callback);
     }
 
     public boolean handleDeleteExpense(int expenseId) {
         return expenseService.deleteExpense(expenseId);
     }
 
+    public AsyncRequest handleDeleteExpenseAsync(int expenseId, Callback<Boolean> callback) {
+        return executors.write(() -> handleDeleteExpense(expenseId), callback);
+    }
+
     public boolean handleClearExpenses() {
         return expenseService.clearExpenses();
     }
 
-    public List<String> getCategories() {
+    public AsyncRequest handleClearExpensesAsync(Callback<Boolean> callback) {
+        return executors.write(this::handleClearExpenses, callback);
+    }
+
+    public List<Category> getCategories() {
         return expenseService.getCategories();
     }
 
+    public AsyncRequest getCategoriesAsync(Callback<List<Category>> callback) {
+        return executors.read(this::getCategories, callback);
+    }
+
     public boolean handleAddCategory(String category) {
         return expenseService.addCategory(category);
     }
 
+    public AsyncRequest handleAddCategoryAsync(String category, Callback<Boolean> callback) {
+        return executors.write(() -> handleAddCategory(category), callback);
+    }
+
     public boolean handleDeleteCategory(String category) {
         return expenseService.deleteCategory(category);
     }
 
-    public BudgetCheckResult checkBudget(String category, double amount) {
-        return expenseService.checkBudget(category, amount);
+    public AsyncRequest handleDeleteCategoryAsync(String category, Callback<Boolean> callback) {
+        return executors.write(() -> handleDeleteCategory(category), callback);
+    }
+
+    public boolean handleRenameCategory(int categoryId, String newName) {
+        return expenseService.renameCategory(categoryId, newName);
+    }
+
+    public AsyncRequest handleRenameCategoryAsync(int categoryId, String newName, Callback<Boolean> callback) {
+        return executors.write(() -> handleRenameCategory(categoryId, newName), callback);
+    }
+
+    public BudgetCheckResult checkBudget(String category, long amountCents) {
+        return expenseService.checkBudget(category, amountCents);
+    }
+
+    public AsyncRequest checkBudgetAsync(String category, long amountCents, Callback<BudgetCheckResult> callback) {
+        return executors.read(() -> checkBudget(category, amountCents), callback);
+    }
+
+    public BudgetCheckResult checkBudgetOnUpdate(String category, long newAmountCents, int expenseId) {
+        return expenseService.checkBudgetOnUpdate(category, newAmountCents, expenseId);
     }
 
-    public BudgetCheckResult checkBudgetOnUpdate(String category, double newAmount, int expenseId) {
-        return expenseService.checkBudgetOnUpdate(category, newAmount, expenseId);
+    public AsyncRequest checkBudgetOnUpdateAsync(String category, long newAmountCents, int expenseId,
+                                                 Callback<BudgetCheckResult> callback) {
+        return executors.read(() -> checkBudgetOnUpdate(category, newAmountCents, expenseId), callback);
     }
 }
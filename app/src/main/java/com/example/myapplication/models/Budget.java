@@ -1,11 +1,13 @@
 package com.example.myapplication.models;
 
 public class Budget {
-    public String category;
-    public double limit;
+    public int categoryId;
+    public String category; // Name of categoryId, see CategoryCache
+    public long limitCents; // Minor units, see Money
 
-    public Budget(String category, double limit) {
+    public Budget(int categoryId, String category, long limitCents) {
+        this.categoryId = categoryId;
         this.category = category;
-        this.limit = limit;
+        this.limitCents = limitCents;
     }
 }
@@ -2,14 +2,15 @@ package com.example.myapplication.models;
 
 public class BudgetCheckResult {
     public boolean exceedsBudget;
-    public double budgetLimit;
-    public double currentSpent;
-    public double newTotal;
+    // Minor units, see Money
+    public long budgetLimitCents;
+    public long currentSpentCents;
+    public long newTotalCents;
 
-    public BudgetCheckResult(boolean exceedsBudget, double budgetLimit, double currentSpent, double newTotal) {
+    public BudgetCheckResult(boolean exceedsBudget, long budgetLimitCents, long currentSpentCents, long newTotalCents) {
         this.exceedsBudget = exceedsBudget;
-        this.budgetLimit = budgetLimit;
-        this.currentSpent = currentSpent;
-        this.newTotal = newTotal;
+        this.budgetLimitCents = budgetLimitCents;
+        this.currentSpentCents = currentSpentCents;
+        this.newTotalCents = newTotalCents;
     }
 }
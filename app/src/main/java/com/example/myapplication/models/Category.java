@@ -0,0 +1,23 @@
+package com.example.myapplication.models;
+
+public class Category {
+    // For categories the user created rather than one of the defaults
+    public static final String DEFAULT_ICON = "📦";
+    public static final int DEFAULT_COLOR = 0xFF8D6E63;
+
+    public int id;
+    public int userId;
+    public String name;
+    public String icon; // Emoji shown next to the name
+    public int color; // ARGB
+    public boolean hidden; // Deleted from the picker but still used by expenses or budgets
+
+    public Category(int id, int userId, String name, String icon, int color, boolean hidden) {
+        this.id = id;
+        this.userId = userId;
+        this.name = name;
+        this.icon = icon;
+        this.color = color;
+        this.hidden = hidden;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.myapplication.models;
+
+public class CategoryTotal {
+    public int categoryId;
+    public String category; // Name of categoryId, see CategoryCache
+    public long amountCents; // Minor units, see Money
+    public int count;
+    public long minCents; // Smallest single expense
+    public long maxCents; // Largest single expense
+
+    public CategoryTotal(int categoryId, String category, long amountCents, int count, long minCents, long maxCents) {
+        this.categoryId = categoryId;
+        this.category = category;
+        this.amountCents = amountCents;
+        this.count = count;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+}
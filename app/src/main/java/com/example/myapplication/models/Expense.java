@@ -2,18 +2,20 @@ package com.example.myapplication.models;
 
 public class Expense {
     public int id;
-    public String category;
-    public double amount;
+    public int categoryId;
+    public String category; // Name of categoryId, see CategoryCache
+    public long amountCents; // Minor units, see Money
     public String note;
-    public String date;
+    public long epochDay; // Days since 1970-01-01, see DateUtils
     public String imageUri;
 
-    public Expense(int id, String category, double amount, String note, String date, String imageUri) {
+    public Expense(int id, int categoryId, String category, long amountCents, String note, long epochDay, String imageUri) {
         this.id = id;
+        this.categoryId = categoryId;
         this.category = category;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.note = note;
-        this.date = date;
+        this.epochDay = epochDay;
         this.imageUri = imageUri;
     }
 }
@@ -0,0 +1,18 @@
+package com.example.myapplication.models;
+
+/**
+ * The orders the expense feed can be read in, each served by an index so any page is an index range read
+ * (see DatabaseHelper#getExpensePage).
+ *
+ * Rows with the same amount follow the direction of the amount: newest first when highest first, oldest
+ * first when lowest first. Within a category, expenses are always newest first. Category names compare
+ * ignoring case.
+ */
+public enum ExpenseOrder {
+    NEWEST_FIRST,
+    OLDEST_FIRST,
+    HIGHEST_FIRST,
+    LOWEST_FIRST,
+    CATEGORY_A_Z,
+    CATEGORY_Z_A
+}
@@ -0,0 +1,17 @@
+package com.example.myapplication.models;
+
+import java.util.List;
+
+/**
+ * One page of the expense feed, in one of the {@link ExpenseOrder} orders. Pass the last expense of
+ * a page as the "after" key to fetch the next one.
+ */
+public class ExpensePage {
+    public List<Expense> expenses;
+    public boolean hasMore;
+
+    public ExpensePage(List<Expense> expenses, boolean hasMore) {
+        this.expenses = expenses;
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.myapplication.models;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * A filter over a user's expenses plus the order to return them in, e.g.
+ * {@code ExpenseQuery.all().between(from, to).matching("coffee").orderBy(ExpenseOrder.HIGHEST_FIRST)}.
+ * Each method returns a new query with that condition set; conditions left unset match everything.
+ *
+ * DatabaseHelper compiles a query into one SQL statement, so every condition is applied by SQLite.
+ * Immutable and safe to share.
+ */
+public final class ExpenseQuery {
+    private static final ExpenseQuery ALL = new ExpenseQuery(null, null, null, null, null, null, null, null);
+
+    public final Long fromEpochDay;  // First day included, or null
+    public final Long toEpochDay;    // Last day included, or null
+    public final Long minCents;      // Smallest amount included, or null
+    public final Long maxCents;      // Largest amount included, or null
+    public final int[] categoryIds;  // Sorted, distinct; null for any category
+    public final String text;        // Word prefixes to match in note or category (see SearchText), or null
+    public final Boolean hasReceipt; // null for either
+    public final ExpenseOrder order; // null: best match first when matching text, otherwise newest first
+
+    private ExpenseQuery(Long fromEpochDay, Long toEpochDay, Long minCents, Long maxCents, int[] categoryIds,
+                         String text, Boolean hasReceipt, ExpenseOrder order) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = toEpochDay;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+        this.categoryIds = categoryIds;
+        this.text = text;
+        this.hasReceipt = hasReceipt;
+        this.order = order;
+    }
+
+    public static ExpenseQuery all() {
+        return ALL;
+    }
+
+    /**
+     * @param fromEpochDay First day included, or null for no lower bound
+     * @param toEpochDay   Last day included, or null for no upper bound
+     */
+    public ExpenseQuery between(Long fromEpochDay, Long toEpochDay) {
+        return new ExpenseQuery(fromEpochDay, toEpochDay, minCents, maxCents, categoryIds, text, hasReceipt, order);
+    }
+
+    /**
+     * @param minCents Smallest amount included, or null for no lower bound
+     * @param maxCents Largest amount included, or null for no upper bound
+     */
+    public ExpenseQuery amountBetween(Long minCents, Long maxCents) {
+        return new ExpenseQuery(fromEpochDay, toEpochDay, minCents, maxCents, categoryIds, text, hasReceipt, order);
+    }
+
+    /**
+     * @param ids Category ids to include, or null for any category. An empty set matches nothing.
+     */
+    public ExpenseQuery inCategories(Collection<Integer> ids) {
+        int[] sorted = null;
+        if (ids != null) {
+            TreeSet<Integer> distinct = new TreeSet<>(ids);
+            sorted = new int[distinct.size()];
+            int i = 0;
+            for (int id : distinct) {
+                sorted[i++] = id;
+            }
+        }
+        return new ExpenseQuery(fromEpochDay, toEpochDay, minCents, maxCents, sorted, text, hasReceipt, order);
+    }
+
+    /**
+     * @param text What the user typed; null or blank for no text condition
+     */
+    public ExpenseQuery matching(String text) {
+        String trimmed = text != null && !text.trim().isEmpty() ? text.trim() : null;
+        return new ExpenseQuery(fromEpochDay, toEpochDay, minCents, maxCents, categoryIds, trimmed, hasReceipt, order);
+    }
+
+    /**
+     * @param hasReceipt true for expenses with a receipt image, false for those without, null for either
+     */
+    public ExpenseQuery withReceipt(Boolean hasReceipt) {
+        return new ExpenseQuery(fromEpochDay, toEpochDay, minCents, maxCents, categoryIds, text, hasReceipt, order);
+    }
+
+    /**
+     * @param order The order to return expenses in; null for best match first (or newest first without text)
+     */
+    public ExpenseQuery orderBy(ExpenseOrder order) {
+        return new ExpenseQuery(fromEpochDay, toEpochDay, minCents, maxCents, categoryIds, text, hasReceipt, order);
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseQuery{days=" + fromEpochDay + ".." + toEpochDay + ", cents=" + minCents + ".." + maxCents +
+                ", categories=" + Arrays.toString(categoryIds) + ", text=" + text + ", hasReceipt=" + hasReceipt +
+                ", order=" + order + "}";
+    }
+}
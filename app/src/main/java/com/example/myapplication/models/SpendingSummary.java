@@ -0,0 +1,15 @@
+package com.example.myapplication.models;
+
+import java.util.List;
+
+public class SpendingSummary {
+    public long totalCents; // Minor units, see Money
+    public int count;
+    public List<CategoryTotal> categories;
+
+    public SpendingSummary(long totalCents, int count, List<CategoryTotal> categories) {
+        this.totalCents = totalCents;
+        this.count = count;
+        this.categories = categories;
+    }
+}
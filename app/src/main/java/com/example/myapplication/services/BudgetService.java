@@ -24,10 +24,10 @@ public class BudgetService {
         this.authRepository = new AuthRepository(context);
     }
 
-    public boolean setBudget(String category, double limit) {
+    public boolean setBudget(String category, long limitCents) {
         User currentUser = authRepository.getCurrentUser();
         if (currentUser == null) return false;
-        return budgetRepository.setBudget(currentUser.id, category, limit);
+        return budgetRepository.setBudget(currentUser.id, category, limitCents);
     }
 
     public List<Budget> getBudgets() {
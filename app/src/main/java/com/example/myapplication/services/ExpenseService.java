@@ -1,30 +1,52 @@
 package com.example.myapplication.services;
 
 import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.util.Log;
 import com.example.myapplication.data.repositories.AuthRepository;
 import com.example.myapplication.data.repositories.BudgetRepository;
 import com.example.myapplication.data.repositories.ExpenseRepository;
+import com.example.myapplication.models.Budget;
+import com.example.myapplication.models.Category;
 import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpensePage;
+import com.example.myapplication.models.ExpenseQuery;
 import com.example.myapplication.models.BudgetCheckResult;
+import com.example.myapplication.models.SpendingSummary;
 import com.example.myapplication.models.User;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.ReceiptStore;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Objects;
 
 public class ExpenseService {
     private ExpenseRepository expenseRepository;
     private AuthRepository authRepository;
     private BudgetRepository budgetRepository;
+    private ReceiptStore receiptStore;
 
     public ExpenseService(Context context) {
         this.expenseRepository = new ExpenseRepository(context);
         this.authRepository = new AuthRepository(context);
         this.budgetRepository = new BudgetRepository(context);
+        this.receiptStore = ReceiptStore.getInstance(context);
     }
 
-    public long addExpense(String category, double amount, String note, String date, String imageUri) {
+    public long addExpense(String category, long amountCents, String note, long epochDay, String imageUri) {
         User currentUser = authRepository.getCurrentUser();
         if (currentUser == null) return -1;
-        return expenseRepository.addExpense(currentUser.id, category, amount, note, date, imageUri);
+        return expenseRepository.addExpense(currentUser.id, category, amountCents, note, epochDay, imageUri);
+    }
+
+    /**
+     * Copies a picked receipt image into app-private storage.
+     * @return URI string to save as the expense's imageUri, or null if the image could not be imported
+     */
+    public String importReceipt(Uri source) {
+        return receiptStore.importReceipt(source);
     }
 
     public List<Expense> getExpenses() {
@@ -33,97 +55,146 @@ public class ExpenseService {
         return expenseRepository.getExpenses(currentUser.id);
     }
 
-    public boolean updateExpense(int expenseId, String category, double amount, String note, String date, String imageUri) {
-        return expenseRepository.updateExpense(expenseId, category, amount, note, date, imageUri);
+    public List<Expense> findExpenses(ExpenseQuery query, int limit, CancellationSignal signal) {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return new ArrayList<>();
+        return expenseRepository.findExpenses(currentUser.id, query, limit, signal);
+    }
+
+    public SpendingSummary summarizeExpenses(ExpenseQuery query, CancellationSignal signal) {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return new SpendingSummary(0, 0, new ArrayList<>());
+        return expenseRepository.summarizeExpenses(currentUser.id, query, signal);
+    }
+
+    public ExpensePage getExpensePage(ExpenseOrder order, Expense after, int pageSize) {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return new ExpensePage(new ArrayList<>(), false);
+        return expenseRepository.getExpensePage(currentUser.id, order, after, pageSize);
+    }
+
+    public SpendingSummary getSpendingSummary() {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return new SpendingSummary(0, 0, new ArrayList<>());
+        return expenseRepository.getSpendingSummary(currentUser.id);
+    }
+
+    public SpendingSummary getSpendingSummaryBetween(long fromEpochDay, long toEpochDay) {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return new SpendingSummary(0, 0, new ArrayList<>());
+        return expenseRepository.getSpendingSummaryBetween(currentUser.id, fromEpochDay, toEpochDay);
+    }
+
+    public boolean updateExpense(int expenseId, String category, long amountCents, String note, long epochDay, String imageUri) {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return false;
+        Expense existing = expenseRepository.getExpense(expenseId);
+        boolean updated = expenseRepository.updateExpense(currentUser.id, expenseId, category, amountCents, note, epochDay, imageUri);
+        if (updated && existing != null && existing.imageUri != null && !Objects.equals(existing.imageUri, imageUri)) {
+            deleteUnreferencedReceipts();
+        }
+        return updated;
     }
 
     public boolean deleteExpense(int expenseId) {
-        return expenseRepository.deleteExpense(expenseId);
+        boolean deleted = expenseRepository.deleteExpense(expenseId);
+        if (deleted) deleteUnreferencedReceipts();
+        return deleted;
     }
 
     public boolean clearExpenses() {
         User currentUser = authRepository.getCurrentUser();
         if (currentUser == null) return false;
-        return expenseRepository.clearExpenses(currentUser.id);
+        boolean cleared = expenseRepository.clearExpenses(currentUser.id);
+        if (cleared) deleteUnreferencedReceipts();
+        return cleared;
     }
 
-    public List<String> getCategories() {
-        return expenseRepository.getCategories();
+    /**
+     * Removes stored receipts no expense refers to any more, on the I/O pool so the write that
+     * orphaned them can report back first. The references are read inside the task, after that write.
+     */
+    private void deleteUnreferencedReceipts() {
+        AppExecutors.getInstance().io().execute(() -> {
+            try {
+                receiptStore.deleteUnreferenced(expenseRepository.getReceiptUris());
+            } catch (RuntimeException e) {
+                Log.e("ExpenseService", "Receipt sweep failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public List<Category> getCategories() {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return new ArrayList<>();
+        return expenseRepository.getCategories(currentUser.id);
     }
 
     public boolean addCategory(String category) {
-        return expenseRepository.addCategory(category);
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return false;
+        return expenseRepository.addCategory(currentUser.id, category);
     }
 
     public boolean deleteCategory(String category) {
-        return expenseRepository.deleteCategory(category);
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return false;
+        return expenseRepository.deleteCategory(currentUser.id, category);
+    }
+
+    public boolean renameCategory(int categoryId, String newName) {
+        User currentUser = authRepository.getCurrentUser();
+        if (currentUser == null) return false;
+        return expenseRepository.renameCategory(currentUser.id, categoryId, newName);
     }
 
-    public BudgetCheckResult checkBudget(String category, double amount) {
+    /**
+     * Checks whether adding {@code amountCents} to {@code category} reaches its budget.
+     * Both the budget and the amount already spent are single primary-key lookups.
+     */
+    public BudgetCheckResult checkBudget(String category, long amountCents) {
         User currentUser = authRepository.getCurrentUser();
         if (currentUser == null) {
              return new BudgetCheckResult(false, 0, 0, 0);
         }
         
-        List<com.example.myapplication.models.Budget> budgets = budgetRepository.getBudgets(currentUser.id);
-        
-        com.example.myapplication.models.Budget budget = null;
-        for (com.example.myapplication.models.Budget b : budgets) {
-            if (b.category.equals(category)) {
-                budget = b;
-                break;
-            }
-        }
-        
+        Budget budget = budgetRepository.getBudget(currentUser.id, category);
         if (budget == null) {
             return new BudgetCheckResult(false, 0, 0, 0);
         }
         
-        List<Expense> expenses = expenseRepository.getExpenses(currentUser.id);
-        double totalSpent = 0;
-        for (Expense expense : expenses) {
-            if (expense.category.equals(category)) {
-                totalSpent += expense.amount;
-            }
-        }
+        long totalSpent = expenseRepository.getCategorySpend(currentUser.id, category);
         
-        double newTotal = totalSpent + amount;
-        boolean exceedsBudget = newTotal >= budget.limit;
+        long newTotal = totalSpent + amountCents;
+        boolean exceedsBudget = newTotal >= budget.limitCents;
         
-        return new BudgetCheckResult(exceedsBudget, budget.limit, totalSpent, newTotal);
+        return new BudgetCheckResult(exceedsBudget, budget.limitCents, totalSpent, newTotal);
     }
 
-    public BudgetCheckResult checkBudgetOnUpdate(String category, double newAmount, int expenseId) {
+    /**
+     * Same as {@link #checkBudget(String, long)} for an edit: the expense being edited is left out
+     * of the amount already spent, since {@code newAmountCents} replaces it.
+     */
+    public BudgetCheckResult checkBudgetOnUpdate(String category, long newAmountCents, int expenseId) {
         User currentUser = authRepository.getCurrentUser();
         if (currentUser == null) {
              return new BudgetCheckResult(false, 0, 0, 0);
         }
         
-        List<com.example.myapplication.models.Budget> budgets = budgetRepository.getBudgets(currentUser.id);
-        
-        com.example.myapplication.models.Budget budget = null;
-        for (com.example.myapplication.models.Budget b : budgets) {
-            if (b.category.equals(category)) {
-                budget = b;
-                break;
-            }
-        }
-        
+        Budget budget = budgetRepository.getBudget(currentUser.id, category);
         if (budget == null) {
             return new BudgetCheckResult(false, 0, 0, 0);
         }
         
-        List<Expense> expenses = expenseRepository.getExpenses(currentUser.id);
-        double totalSpent = 0;
-        for (Expense expense : expenses) {
-            if (expense.category.equals(category) && expense.id != expenseId) {
-                totalSpent += expense.amount;
-            }
+        long totalSpent = expenseRepository.getCategorySpend(currentUser.id, category);
+        Expense existing = expenseRepository.getExpense(expenseId);
+        if (existing != null && existing.categoryId == budget.categoryId) {
+            totalSpent -= existing.amountCents;
         }
         
-        double newTotal = totalSpent + newAmount;
-        boolean exceedsBudget = newTotal >= budget.limit;
+        long newTotal = totalSpent + newAmountCents;
+        boolean exceedsBudget = newTotal >= budget.limitCents;
         
-        return new BudgetCheckResult(exceedsBudget, budget.limit, totalSpent, newTotal);
+        return new BudgetCheckResult(exceedsBudget, budget.limitCents, totalSpent, newTotal);
     }
 }
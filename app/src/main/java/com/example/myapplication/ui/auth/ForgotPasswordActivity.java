@@ -11,6 +11,7 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.example.myapplication.R;
 import com.example.myapplication.handlers.AuthHandler;
+import com.example.myapplication.utils.RequestScope;
 
 /**
  * ForgotPasswordActivity
@@ -30,6 +31,7 @@ public class ForgotPasswordActivity extends AppCompatActivity {
     
     // Database access
     private AuthHandler authHandler;
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled on destroy
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -73,14 +75,17 @@ public class ForgotPasswordActivity extends AppCompatActivity {
             return;
         }
 
-        // Delegate logic to DataManager -> DatabaseHelper
-        boolean success = authHandler.handleResetPassword(username, pet, newPassword);
-        if (success) {
-            Toast.makeText(this, "Password reset successful. Please log in.", Toast.LENGTH_LONG).show();
-            finish(); // Close activity on success
-        } else {
-            showError("Invalid username or security answer");
-        }
+        // Delegate logic to DataManager -> DatabaseHelper, off the main thread
+        btnReset.setEnabled(false);
+        requests.track("reset", authHandler.handleResetPasswordAsync(username, pet, newPassword, success -> {
+            btnReset.setEnabled(true);
+            if (Boolean.TRUE.equals(success)) {
+                Toast.makeText(this, "Password reset successful. Please log in.", Toast.LENGTH_LONG).show();
+                finish(); // Close activity on success
+            } else {
+                showError("Invalid username or security answer");
+            }
+        }));
     }
 
     private void showError(String message) {
@@ -88,5 +93,9 @@ public class ForgotPasswordActivity extends AppCompatActivity {
         tvError.setVisibility(View.VISIBLE);
     }
 
-    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        requests.cancelAll();
+    }
 }
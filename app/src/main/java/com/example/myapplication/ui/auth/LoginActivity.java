@@ -12,7 +12,7 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.example.myapplication.R;
 import com.example.myapplication.handlers.AuthHandler;
-import com.example.myapplication.models.LoginResult;
+import com.example.myapplication.utils.RequestScope;
 import com.example.myapplication.models.User;
 import com.example.myapplication.ui.main.MainActivity;
 
@@ -30,6 +30,7 @@ public class LoginActivity extends AppCompatActivity {
     private TextView tvError;
     private MaterialButton btnLogin;
     private AuthHandler authHandler;
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled on destroy
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -110,20 +111,31 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        // Attempt login via DataManager
-        LoginResult result = authHandler.handleLogin(username, password);
-        if (result.success) {
-            // Navigate to main app
-            startActivity(new Intent(this, MainActivity.class));
-            finish();
-        } else {
-            // Show error message
-            showError(result.error);
-        }
+        // Attempt login via DataManager (password hashing and lookup run off the main thread)
+        btnLogin.setEnabled(false);
+        requests.track("login", authHandler.handleLoginAsync(username, password, result -> {
+            btnLogin.setEnabled(true);
+            if (result == null) {
+                showError("Something went wrong, please try again");
+            } else if (result.success) {
+                // Navigate to main app
+                startActivity(new Intent(this, MainActivity.class));
+                finish();
+            } else {
+                // Show error message
+                showError(result.error);
+            }
+        }));
     }
 
     private void showError(String message) {
         tvError.setText(message);
         tvError.setVisibility(View.VISIBLE);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        requests.cancelAll();
+    }
 }
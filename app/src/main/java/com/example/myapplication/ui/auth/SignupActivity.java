@@ -11,7 +11,7 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.example.myapplication.R;
 import com.example.myapplication.handlers.AuthHandler;
-import com.example.myapplication.models.SignupResult;
+import com.example.myapplication.utils.RequestScope;
 import com.example.myapplication.ui.main.MainActivity;
 
 public class SignupActivity extends AppCompatActivity {
@@ -19,6 +19,7 @@ public class SignupActivity extends AppCompatActivity {
     private TextView tvError;
     private MaterialButton btnSignup;
     private AuthHandler authHandler;
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled on destroy
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,18 +57,28 @@ public class SignupActivity extends AppCompatActivity {
             return;
         }
 
-        SignupResult result = authHandler.handleSignup(username, password, pet);
-
-        if (result.success) {
-            startActivity(new Intent(this, MainActivity.class));
-            finish();
-        } else {
-            showError(result.error);
-        }
+        btnSignup.setEnabled(false);
+        requests.track("signup", authHandler.handleSignupAsync(username, password, pet, result -> {
+            btnSignup.setEnabled(true);
+            if (result == null) {
+                showError("Something went wrong, please try again");
+            } else if (result.success) {
+                startActivity(new Intent(this, MainActivity.class));
+                finish();
+            } else {
+                showError(result.error);
+            }
+        }));
     }
 
     private void showError(String message) {
         tvError.setText(message);
         tvError.setVisibility(View.VISIBLE);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        requests.cancelAll();
+    }
 }
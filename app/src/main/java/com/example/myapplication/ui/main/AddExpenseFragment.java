@@ -2,7 +2,6 @@ package com.example.myapplication.ui.main;
 
 import android.app.AlertDialog;
 import android.app.DatePickerDialog;
-import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
@@ -24,10 +23,13 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.example.myapplication.R;
 import com.example.myapplication.handlers.ExpenseHandler;
 import com.example.myapplication.models.BudgetCheckResult;
-import java.text.SimpleDateFormat;
+import com.example.myapplication.models.Category;
+import com.example.myapplication.utils.DateUtils;
+import com.example.myapplication.utils.Money;
+import com.example.myapplication.utils.RequestScope;
+import com.example.myapplication.utils.ThumbnailCache;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -41,12 +43,17 @@ public class AddExpenseFragment extends Fragment {
     private ImageView ivExpenseImage;
     private TextView tvAddImage;
     private MaterialCardView cardImage;
-    private Uri selectedImageUri;
+    private String selectedImageUri; // Local copy made by ReceiptStore, saved as the expense's imageUri
+    private boolean receiptImporting; // A picked image is still being copied; Save waits for it
+    private static final int PREVIEW_HEIGHT_DP = 200; // ivExpenseImage in fragment_add_expense.xml
     private ActivityResultLauncher<String> imagePickerLauncher;
     private String selectedCategory = "Food";
+    private long selectedEpochDay = DateUtils.today();
     private String customCategoryName = ""; // Store custom category name
     private TextView othersCategoryLabel; // Reference to "Others" category label
     private ExpenseHandler expenseHandler;
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled with the view
+    private boolean saveInFlight; // Ignores repeated Save taps while the budget check or insert is running
     private List<String> categoryList = new ArrayList<>();
     private final Map<String, String> iconMap = new HashMap<>();
 
@@ -55,19 +62,39 @@ public class AddExpenseFragment extends Fragment {
         super.onCreate(savedInstanceState);
         imagePickerLauncher = registerForActivityResult(new ActivityResultContracts.GetContent(), uri -> {
             if (uri != null) {
-                try {
-                    requireContext().getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                selectedImageUri = uri;
-                ivExpenseImage.setImageURI(uri);
-                ivExpenseImage.setVisibility(View.VISIBLE);
-                tvAddImage.setVisibility(View.GONE);
+                importReceipt(uri);
             }
         });
     }
 
+    /**
+     * Copies the picked image into app storage in the background (the picker's read grant is
+     * temporary and the source app may delete the file), then previews the copy.
+     */
+    private void importReceipt(Uri picked) {
+        receiptImporting = true;
+        requests.track("receipt", expenseHandler.importReceiptAsync(picked, localUri -> {
+            receiptImporting = false;
+            if (localUri == null) {
+                Toast.makeText(requireContext(), "Could not read that image", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            selectedImageUri = localUri;
+            showReceiptPreview(localUri);
+        }));
+    }
+
+    private void showReceiptPreview(String imageUri) {
+        float density = requireContext().getResources().getDisplayMetrics().density;
+        int sizePx = Math.max(cardImage.getWidth(), Math.round(PREVIEW_HEIGHT_DP * density)); // Preview is centre-cropped
+        requests.track("preview", ThumbnailCache.getInstance(requireContext()).load(imageUri, sizePx, bitmap -> {
+            if (bitmap == null) return;
+            ivExpenseImage.setImageBitmap(bitmap);
+            ivExpenseImage.setVisibility(View.VISIBLE);
+            tvAddImage.setVisibility(View.GONE);
+        }));
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -92,17 +119,8 @@ public class AddExpenseFragment extends Fragment {
 
         cardImage.setOnClickListener(v -> imagePickerLauncher.launch("image/*"));
 
-        // Initialize icons
-        iconMap.put("Food", "🍔");
-        iconMap.put("Transport", "🚗");
-        iconMap.put("Shopping", "🛍️");
-        iconMap.put("Bills", "📜");
-        iconMap.put("Entertainment", "🍿");
-        iconMap.put("Others", "✨");
-
         // Set default date
-        SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
-        etDate.setText(sdf.format(new Date()));
+        etDate.setText(DateUtils.format(selectedEpochDay));
 
         // Set up date picker
         etDate.setOnClickListener(v -> showDatePicker());
@@ -126,14 +144,22 @@ public class AddExpenseFragment extends Fragment {
     }
 
     private void loadCategories() {
-        categoryList = expenseHandler.getCategories();
-        // Ensure selectedCategory is valid
-        if (!categoryList.contains(selectedCategory)) {
-            if (!categoryList.isEmpty()) {
-                selectedCategory = categoryList.get(0);
+        requests.track("categories", expenseHandler.getCategoriesAsync(categories -> {
+            if (categories == null) return;
+            categoryList = new ArrayList<>();
+            iconMap.clear();
+            for (Category category : categories) {
+                categoryList.add(category.name);
+                iconMap.put(category.name, category.icon);
             }
-        }
-        setupCategoryGrid();
+            // Ensure selectedCategory is valid
+            if (!categoryList.contains(selectedCategory)) {
+                if (!categoryList.isEmpty()) {
+                    selectedCategory = categoryList.get(0);
+                }
+            }
+            setupCategoryGrid();
+        }));
     }
 
     private void setupCategoryGrid() {
@@ -152,7 +178,7 @@ public class AddExpenseFragment extends Fragment {
             card.setCardElevation(2);
 
             TextView tvIcon = new TextView(requireContext());
-            String icon = iconMap.getOrDefault(category, "🏷️"); // Default icon for custom categories
+            String icon = iconMap.getOrDefault(category, Category.DEFAULT_ICON);
             tvIcon.setText(icon);
             tvIcon.setTextSize(24);
             tvIcon.setPadding(24, 24, 24, 8);
@@ -257,15 +283,18 @@ public class AddExpenseFragment extends Fragment {
             .setPositiveButton("Add", (dialog, which) -> {
                 String name = etName.getText().toString().trim();
                 if (!name.isEmpty()) {
-                    if (expenseHandler.handleAddCategory(name)) {
-                        Toast.makeText(requireContext(), "Category added", Toast.LENGTH_SHORT).show();
-                        loadCategories(); // Refresh grid
-                        // Select the new category
-                        selectedCategory = name;
-                        updateCategorySelection();
-                    } else {
-                        Toast.makeText(requireContext(), "Category already exists", Toast.LENGTH_SHORT).show();
-                    }
+                    requests.track("category", expenseHandler.handleAddCategoryAsync(name, added -> {
+                        if (added == null) {
+                            Toast.makeText(requireContext(), "Failed to add category", Toast.LENGTH_SHORT).show();
+                        } else if (added) {
+                            Toast.makeText(requireContext(), "Category added", Toast.LENGTH_SHORT).show();
+                            // Select the new category once the grid is refreshed
+                            selectedCategory = name;
+                            loadCategories();
+                        } else {
+                            Toast.makeText(requireContext(), "Category already exists", Toast.LENGTH_SHORT).show();
+                        }
+                    }));
                 }
             })
             .setNegativeButton("Cancel", null)
@@ -358,18 +387,7 @@ public class AddExpenseFragment extends Fragment {
     }
 
     private void showDatePicker() {
-        Calendar calendar = Calendar.getInstance();
-        
-        String currentDate = etDate.getText().toString().trim();
-        if (!currentDate.isEmpty()) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
-                Date date = sdf.parse(currentDate);
-                if (date != null) {
-                    calendar.setTime(date);
-                }
-            } catch (Exception e) {}
-        }
+        Calendar calendar = DateUtils.toCalendar(selectedEpochDay);
         
         int year = calendar.get(Calendar.YEAR);
         int month = calendar.get(Calendar.MONTH);
@@ -378,10 +396,8 @@ public class AddExpenseFragment extends Fragment {
         DatePickerDialog datePickerDialog = new DatePickerDialog(
             requireContext(),
             (view, selectedYear, selectedMonth, selectedDay) -> {
-                Calendar selectedCalendar = Calendar.getInstance();
-                selectedCalendar.set(selectedYear, selectedMonth, selectedDay);
-                SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
-                etDate.setText(sdf.format(selectedCalendar.getTime()));
+                selectedEpochDay = DateUtils.toEpochDay(selectedYear, selectedMonth + 1, selectedDay);
+                etDate.setText(DateUtils.format(selectedEpochDay));
             },
             year, month, day
         );
@@ -389,41 +405,47 @@ public class AddExpenseFragment extends Fragment {
         datePickerDialog.show();
     }
 
-    private void showBudgetExceededAlert(String category, BudgetCheckResult budgetCheck, double amount, String note, String date) {
+    private void showBudgetExceededAlert(String category, BudgetCheckResult budgetCheck, long amountCents, String note, long epochDay) {
         String message = String.format(Locale.getDefault(),
             "Budget Limit Reached!\n\n" +
             "Category: %s\n" +
-            "Budget Limit: $%.2f\n" +
-            "Current Spent: $%.2f\n" +
-            "This Expense: $%.2f\n" +
-            "New Total: $%.2f\n\n" +
+            "Budget Limit: %s\n" +
+            "Current Spent: %s\n" +
+            "This Expense: %s\n" +
+            "New Total: %s\n\n" +
             "This expense will exceed your budget limit. Do you still want to proceed?",
             category,
-            budgetCheck.budgetLimit,
-            budgetCheck.currentSpent,
-            amount,
-            budgetCheck.newTotal
+            Money.format(budgetCheck.budgetLimitCents),
+            Money.format(budgetCheck.currentSpentCents),
+            Money.format(amountCents),
+            Money.format(budgetCheck.newTotalCents)
         );
 
         new AlertDialog.Builder(requireContext())
             .setTitle("⚠️ Budget Limit Exceeded")
             .setMessage(message)
             .setPositiveButton("Save Anyway", (dialog, which) -> {
-                performSave(category, amount, note, date);
+                performSave(category, amountCents, note, epochDay);
             })
             .setNegativeButton("Cancel", null)
             .setIcon(android.R.drawable.ic_dialog_alert)
             .show();
     }
     
-    private void performSave(String category, double amount, String note, String date) {
-        long id = expenseHandler.handleAddExpense(category, amount, note.isEmpty() ? "No note" : note, date.isEmpty() ? "Today" : date, selectedImageUri != null ? selectedImageUri.toString() : null);
-        if (id > 0) {
+    private void performSave(String category, long amountCents, String note, long epochDay) {
+        saveInFlight = true;
+        requests.track("save", expenseHandler.handleAddExpenseAsync(category, amountCents, note.isEmpty() ? "No note" : note, epochDay,
+                selectedImageUri, this::onExpenseSaved));
+    }
+
+    private void onExpenseSaved(Long id) {
+        saveInFlight = false;
+        if (id != null && id > 0) {
             Toast.makeText(requireContext(), "Expense saved", Toast.LENGTH_SHORT).show();
             etAmount.setText("");
             etNote.setText("");
-            SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
-            etDate.setText(sdf.format(new Date()));
+            selectedEpochDay = DateUtils.today();
+            etDate.setText(DateUtils.format(selectedEpochDay));
             selectedCategory = categoryList.get(0); 
             customCategoryName = ""; 
             etCustomCategory.setText(""); 
@@ -431,7 +453,7 @@ public class AddExpenseFragment extends Fragment {
             
             // Reset image selection
             selectedImageUri = null;
-            ivExpenseImage.setImageURI(null);
+            ivExpenseImage.setImageDrawable(null);
             ivExpenseImage.setVisibility(View.GONE);
             tvAddImage.setVisibility(View.VISIBLE);
             
@@ -449,22 +471,28 @@ public class AddExpenseFragment extends Fragment {
         new AlertDialog.Builder(requireContext())
             .setTitle("Delete Category")
             .setMessage("Are you sure you want to delete '" + category + "'?")
-            .setPositiveButton("Delete", (dialog, which) -> {
-                if (expenseHandler.handleDeleteCategory(category)) {
-                    Toast.makeText(requireContext(), "Category deleted", Toast.LENGTH_SHORT).show();
-                    loadCategories(); // This will also reset selectedCategory if needed
-                } else {
-                    Toast.makeText(requireContext(), "Failed to delete category", Toast.LENGTH_SHORT).show();
-                }
-            })
+            .setPositiveButton("Delete", (dialog, which) ->
+                requests.track("category", expenseHandler.handleDeleteCategoryAsync(category, deleted -> {
+                    if (Boolean.TRUE.equals(deleted)) {
+                        Toast.makeText(requireContext(), "Category deleted", Toast.LENGTH_SHORT).show();
+                        loadCategories(); // This will also reset selectedCategory if needed
+                    } else {
+                        Toast.makeText(requireContext(), "Failed to delete category", Toast.LENGTH_SHORT).show();
+                    }
+                })))
             .setNegativeButton("Cancel", null)
             .show();
     }
 
     private void saveExpense() {
+        if (saveInFlight) return;
+        if (receiptImporting) {
+            Toast.makeText(requireContext(), "Still preparing the receipt image", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
         String amountStr = etAmount.getText().toString().trim();
         String note = etNote.getText().toString().trim();
-        String date = etDate.getText().toString().trim();
 
         if (amountStr.isEmpty()) {
             Toast.makeText(requireContext(), "Please enter an amount", Toast.LENGTH_SHORT).show();
@@ -478,23 +506,36 @@ public class AddExpenseFragment extends Fragment {
         }
 
         try {
-            double amount = Double.parseDouble(amountStr);
-            if (amount <= 0) {
+            long amountCents = Money.parse(amountStr);
+            if (amountCents <= 0) {
                 Toast.makeText(requireContext(), "Amount must be greater than 0", Toast.LENGTH_SHORT).show();
                 return;
             }
 
             String categoryToSave = selectedCategory.equals("Others") ? customCategoryName : selectedCategory;
             
-            BudgetCheckResult budgetCheck = expenseHandler.checkBudget(categoryToSave, amount);
-            if (budgetCheck.exceedsBudget) {
-                showBudgetExceededAlert(categoryToSave, budgetCheck, amount, note, date);
-                return;
-            }
-            
-            performSave(categoryToSave, amount, note, date);
+            long epochDay = selectedEpochDay;
+            saveInFlight = true;
+            requests.track("budgetCheck", expenseHandler.checkBudgetAsync(categoryToSave, amountCents, budgetCheck -> {
+                if (budgetCheck == null) {
+                    saveInFlight = false;
+                    Toast.makeText(requireContext(), "Failed to save expense", Toast.LENGTH_SHORT).show();
+                } else if (budgetCheck.exceedsBudget) {
+                    saveInFlight = false;
+                    showBudgetExceededAlert(categoryToSave, budgetCheck, amountCents, note, epochDay);
+                } else {
+                    performSave(categoryToSave, amountCents, note, epochDay);
+                }
+            }));
         } catch (NumberFormatException e) {
             Toast.makeText(requireContext(), "Invalid amount", Toast.LENGTH_SHORT).show();
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        requests.cancelAll();
+        saveInFlight = false;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.myapplication.ui.main;
 
+import android.app.DatePickerDialog;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -18,36 +19,69 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.example.myapplication.R;
 import com.example.myapplication.handlers.ExpenseHandler;
-import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.CategoryTotal;
+import com.example.myapplication.models.ExpenseQuery;
+import com.example.myapplication.models.SpendingSummary;
 import com.example.myapplication.adapters.CategoryBreakdownAdapter;
+import com.example.myapplication.utils.DateUtils;
+import com.example.myapplication.utils.Money;
+import com.example.myapplication.utils.RequestScope;
+import com.example.myapplication.utils.SearchPipeline;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 /**
  * AnalyticsFragment
  * 
  * This fragment is responsible for displaying financial analytics to the user.
- * It shows the total expenses, transaction count, and a breakdown of expenses by category.
- * Users can search/filter expenses and sort them by different criteria (amount, name, percentage).
+ * It shows the total expenses, transaction count, and a breakdown of expenses by category, for all
+ * time or for a period (this week, this month, the last 30 days or a custom range).
+ * Users can narrow the breakdown to expenses matching a search and sort it by different criteria
+ * (amount, name, percentage).
  * 
  * Key features:
  * - Total expense calculation
+ * - Period selection, summed from the daily and monthly totals tables so switching costs one small query
  * - Category-wise breakdown with percentages
  * - Search functionality
  * - Multi-criteria sorting
  */
 public class AnalyticsFragment extends Fragment {
+    /**
+     * The stretch of time the analytics cover.
+     */
+    private enum Period {
+        ALL_TIME("All time"),
+        THIS_WEEK("This week"),
+        THIS_MONTH("This month"),
+        LAST_30_DAYS("Last 30 days"),
+        CUSTOM("Custom range");
+
+        final String label;
+
+        Period(String label) {
+            this.label = label;
+        }
+    }
+
     private RecyclerView rvCategoryBreakdown;
-    private TextView tvTotalExpenses, tvTransactionCount;
+    private TextView tvTotalExpenses, tvTransactionCount, tvPeriodRange;
     private TextInputEditText etSearch;
-    private MaterialButton btnSort;
-    private ExpenseHandler expenseHandler;
+    private MaterialButton btnSort, btnPeriod;
+    private ExpenseStore store; // All-time summary shared with the other tabs
+    private ExpenseHandler expenseHandler; // Summaries of a period, or of the expenses matching a search
+    private final RequestScope requests = new RequestScope();
     private CategoryBreakdownAdapter adapter;
+    private Period period = Period.ALL_TIME;
+    private long fromEpochDay, toEpochDay; // Days the period covers, inclusive; unused for ALL_TIME
+    private long totalCents; // Total of the period the percentages are relative to
     private List<CategoryBreakdownAdapter.CategoryBreakdown> allBreakdowns;
+    private List<CategoryBreakdownAdapter.CategoryBreakdown> shownBreakdowns; // allBreakdowns, or those of the search matches
+    // Each search is a query, so wait for a real pause in typing
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private SearchPipeline<CategoryBreakdownAdapter.CategoryBreakdown> searchPipeline;
     private String currentSortType = "amount_desc"; // Default: highest amount first
     private String searchQuery = "";
 
@@ -69,8 +103,16 @@ public class AnalyticsFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        // Initialize DataManager to access database
         expenseHandler = new ExpenseHandler(requireContext());
+        // Totals of a longer query cannot be derived from a shorter one's, so there is no matcher to narrow with
+        searchPipeline = new SearchPipeline<>(SEARCH_DEBOUNCE_MS, Integer.MAX_VALUE,
+                (query, callback) -> expenseHandler.summarizeExpensesAsync(searchFor(query),
+                        summary -> callback.onResult(summary == null ? null : toBreakdowns(summary))),
+                null,
+                results -> {
+                    shownBreakdowns = results;
+                    displayBreakdowns();
+                });
         
         // Bind UI components
         rvCategoryBreakdown = view.findViewById(R.id.rvCategoryBreakdown);
@@ -78,6 +120,8 @@ public class AnalyticsFragment extends Fragment {
         tvTransactionCount = view.findViewById(R.id.tvTransactionCount);
         etSearch = view.findViewById(R.id.etSearchAnalytics);
         btnSort = view.findViewById(R.id.btnSortAnalytics);
+        btnPeriod = view.findViewById(R.id.btnPeriodAnalytics);
+        tvPeriodRange = view.findViewById(R.id.tvPeriodRange);
 
         // Setup search functionality
         // We add a text watcher to filter the list in real-time as the user types
@@ -87,9 +131,11 @@ public class AnalyticsFragment extends Fragment {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                // Update query and reload list whenever text changes
+                // Update query; the matching expenses are summed once typing pauses
                 searchQuery = s.toString().toLowerCase().trim();
-                loadAnalytics();
+                if (allBreakdowns != null) {
+                    showBreakdowns(true);
+                }
             }
 
             @Override
@@ -98,56 +144,147 @@ public class AnalyticsFragment extends Fragment {
 
         // Setup sort button to show a popup menu with sorting options
         btnSort.setOnClickListener(v -> showSortMenu());
+        btnPeriod.setOnClickListener(v -> showPeriodMenu());
+        showPeriod();
+
+        // Initial data load; the store pushes a new summary whenever expenses change
+        store = ExpenseStore.of(this);
+        store.getSummary().observe(getViewLifecycleOwner(), this::onExpensesChanged);
+    }
+
+    /**
+     * Shows the store's all-time summary, or sums the selected period again since its expenses may
+     * have changed as well.
+     */
+    private void onExpensesChanged(SpendingSummary allTime) {
+        if (period == Period.ALL_TIME) {
+            showAnalytics(allTime);
+        } else {
+            loadPeriod();
+        }
+    }
+
+    private void selectPeriod(Period selected) {
+        period = selected;
+        showPeriod();
+        if (period == Period.ALL_TIME) {
+            requests.cancel("period");
+            SpendingSummary allTime = store.getSummary().getValue();
+            if (allTime != null) showAnalytics(allTime); // Otherwise the store delivers it when loaded
+        } else {
+            loadPeriod();
+        }
+    }
+
+    /**
+     * Sums the selected period. Totals come per month and category from the monthly totals table,
+     * plus per day for the days outside whole months, and repeated ranges are served from the
+     * repository's cache until expenses change.
+     */
+    private void loadPeriod() {
+        showPeriod(); // Relative periods move with today
+        requests.track("period", expenseHandler.getSpendingSummaryBetweenAsync(fromEpochDay, toEpochDay, summary -> {
+            if (summary != null) showAnalytics(summary);
+        }));
+    }
+
+    /**
+     * Works out the days of a relative period from today and shows the period's name and dates.
+     */
+    private void showPeriod() {
+        long today = DateUtils.today();
+        switch (period) {
+            case THIS_WEEK:
+                fromEpochDay = DateUtils.firstDayOfWeek(today);
+                toEpochDay = fromEpochDay + 6;
+                break;
+            case THIS_MONTH:
+                fromEpochDay = DateUtils.firstDayOfMonth(today);
+                toEpochDay = DateUtils.firstDayOfNextMonth(today) - 1;
+                break;
+            case LAST_30_DAYS:
+                fromEpochDay = today - 29;
+                toEpochDay = today;
+                break;
+            default:
+                break; // ALL_TIME has no days; CUSTOM keeps the picked ones
+        }
+        btnPeriod.setText(period.label);
+        tvPeriodRange.setText(period == Period.ALL_TIME ? "All expenses"
+                : DateUtils.format(fromEpochDay) + " – " + DateUtils.format(toEpochDay));
+    }
 
-        // Initial data load
-        loadAnalytics();
+    /**
+     * @return The search for the expenses matching the text within the selected period
+     */
+    private ExpenseQuery searchFor(String text) {
+        ExpenseQuery query = ExpenseQuery.all().matching(text);
+        return period == Period.ALL_TIME ? query : query.between(fromEpochDay, toEpochDay);
     }
 
     /**
-     * Loads, processes, and displays the analytics data.
+     * Processes and displays the analytics data.
      * This method acts as the pipeline for data transformation:
-     * 1. Fetch raw expenses from DataManager
-     * 2. Calculate totals and aggregation by category
+     * 1. Receive per-category totals: all time from the {@link ExpenseStore}, or of the selected
+     *    period (see {@link #loadPeriod()}); summed in SQL, on a background thread
+     * 2. Show the overall total and transaction count
      * 3. Convert to breakdown objects
-     * 4. Filter based on search query
+     * 4. With a search query, replace them with the totals of the matching expenses (also summed in SQL)
      * 5. Sort based on selected criteria
      * 6. Update the UI
+     *
+     * Step 4 goes through the search pipeline and steps 5-6 live in {@link #displayBreakdowns()},
+     * so sort changes skip the reload.
      */
-    private void loadAnalytics() {
-        // Step 1: Fetch raw data
-        List<Expense> expenses = expenseHandler.getExpenses();
+    private void showAnalytics(SpendingSummary summary) {
+        // Step 1 happened in the store: one row per category
+        // Step 2: Totals
+        totalCents = summary.totalCents;
+        tvTotalExpenses.setText(Money.format(totalCents));
+        tvTransactionCount.setText(summary.count + " transactions");
 
-        
-        // Step 2: Aggregate data
-        double total = 0;
-        Map<String, Double> categoryTotals = new HashMap<>();
-        
-        // Loop through all expenses to sum up amount and group by category
-        for (Expense expense : expenses) {
-            total += expense.amount;
-            // Add amount to existing category total or initialize if new category
-            categoryTotals.put(expense.category, 
-                categoryTotals.getOrDefault(expense.category, 0.0) + expense.amount);
-        }
+        // Step 3: Create breakdown objects
+        allBreakdowns = toBreakdowns(summary);
+
+        // Step 4: Search again, as the expenses changed
+        showBreakdowns(false);
+    }
 
-        tvTotalExpenses.setText(String.format(Locale.getDefault(), "$%.2f", total));
-        tvTransactionCount.setText(expenses.size() + " transactions");
+    /**
+     * Shows every category when there is no search; otherwise sums the matching expenses, right
+     * away or once typing pauses.
+     */
+    private void showBreakdowns(boolean queryChanged) {
+        if (searchQuery.isEmpty()) {
+            searchPipeline.cancel();
+            shownBreakdowns = allBreakdowns;
+            displayBreakdowns();
+        } else if (queryChanged) {
+            searchPipeline.setQuery(searchQuery);
+        } else {
+            searchPipeline.searchNow(searchQuery);
+        }
+    }
 
-        // Step 3: Create breakdown objects
-        // We convert the map entries into a list of CategoryBreakdown objects for the adapter
-        allBreakdowns = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : categoryTotals.entrySet()) {
-            double percentage = total > 0 ? (entry.getValue() / total) * 100 : 0;
-            allBreakdowns.add(new CategoryBreakdownAdapter.CategoryBreakdown(entry.getKey(), entry.getValue(), percentage));
+    /**
+     * Converts category totals into CategoryBreakdown objects for the adapter, with percentages
+     * of the period's spending.
+     */
+    private List<CategoryBreakdownAdapter.CategoryBreakdown> toBreakdowns(SpendingSummary summary) {
+        List<CategoryBreakdownAdapter.CategoryBreakdown> breakdowns = new ArrayList<>();
+        for (CategoryTotal category : summary.categories) {
+            double percentage = totalCents > 0 ? category.amountCents * 100.0 / totalCents : 0;
+            breakdowns.add(new CategoryBreakdownAdapter.CategoryBreakdown(category.categoryId, category.category, category.amountCents, percentage));
         }
+        return breakdowns;
+    }
+
+    private void displayBreakdowns() {
+        if (shownBreakdowns == null) return; // First load still in flight
 
-        // Step 4: Filter
-        // Apply search query to filter the list
-        List<CategoryBreakdownAdapter.CategoryBreakdown> filteredBreakdowns = filterBreakdowns(allBreakdowns);
-        
         // Step 5: Sort
         // Order the list based on the current sort criteria
-        List<CategoryBreakdownAdapter.CategoryBreakdown> sortedBreakdowns = sortBreakdowns(filteredBreakdowns);
+        List<CategoryBreakdownAdapter.CategoryBreakdown> sortedBreakdowns = sortBreakdowns(shownBreakdowns);
 
         // Step 6: Update UI
         // Initialize or update the RecyclerView adapter
@@ -162,37 +299,6 @@ public class AnalyticsFragment extends Fragment {
         }
     }
 
-    /**
-     * Filters the list of breakdowns based on the user's search query.
-     * Matches against category name, amount, or percentage.
-     * 
-     * @param breakdowns The original list of breakdowns
-     * @return A new list containing only the matching items
-     */
-    private List<CategoryBreakdownAdapter.CategoryBreakdown> filterBreakdowns(List<CategoryBreakdownAdapter.CategoryBreakdown> breakdowns) {
-        // If search is empty, return all items
-        if (searchQuery.isEmpty()) {
-            return new ArrayList<>(breakdowns);
-        }
-
-        List<CategoryBreakdownAdapter.CategoryBreakdown> filtered = new ArrayList<>();
-        for (CategoryBreakdownAdapter.CategoryBreakdown breakdown : breakdowns) {
-            // Check if query matches category name (case-insensitive)
-            if (breakdown.category != null && breakdown.category.toLowerCase().contains(searchQuery)) {
-                filtered.add(breakdown);
-            } 
-            // Check if query matches the formatted amount string
-            else if (String.format(Locale.getDefault(), "%.2f", breakdown.amount).contains(searchQuery)) {
-                filtered.add(breakdown);
-            } 
-            // Check if query matches the formatted percentage string
-            else if (String.format(Locale.getDefault(), "%.1f", breakdown.percentage).contains(searchQuery)) {
-                filtered.add(breakdown);
-            }
-        }
-        return filtered;
-    }
-
     /**
      * Sorts the list of breakdowns based on the `currentSortType`.
      * 
@@ -205,11 +311,11 @@ public class AnalyticsFragment extends Fragment {
         switch (currentSortType) {
             case "amount_desc":
                 // Compare amounts: B - A for descending (Highest first)
-                Collections.sort(sorted, (a, b) -> Double.compare(b.amount, a.amount));
+                Collections.sort(sorted, (a, b) -> Long.compare(b.amountCents, a.amountCents));
                 break;
             case "amount_asc":
                 // Compare amounts: A - B for ascending (Lowest first)
-                Collections.sort(sorted, (a, b) -> Double.compare(a.amount, b.amount));
+                Collections.sort(sorted, (a, b) -> Long.compare(a.amountCents, b.amountCents));
                 break;
             case "name_asc":
                 // Compare strings alphabetically
@@ -238,6 +344,59 @@ public class AnalyticsFragment extends Fragment {
         return sorted;
     }
 
+    private void showPeriodMenu() {
+        PopupMenu popupMenu = new PopupMenu(requireContext(), btnPeriod);
+        for (Period option : Period.values()) {
+            popupMenu.getMenu().add(option.label);
+        }
+
+        popupMenu.setOnMenuItemClickListener(item -> {
+            String title = item.getTitle().toString();
+            for (Period option : Period.values()) {
+                if (!option.label.equals(title)) continue;
+                if (option == Period.CUSTOM) {
+                    showCustomRangePicker();
+                } else {
+                    selectPeriod(option);
+                }
+            }
+            return true;
+        });
+
+        popupMenu.show();
+    }
+
+    /**
+     * Asks for the first and then the last day of a custom period. Picking the days the wrong way
+     * round selects the same range.
+     */
+    private void showCustomRangePicker() {
+        long today = DateUtils.today();
+        long initialFrom = period == Period.ALL_TIME ? DateUtils.firstDayOfMonth(today) : fromEpochDay;
+        long initialTo = period == Period.ALL_TIME ? today : toEpochDay;
+        showDatePicker("From", initialFrom, from ->
+                showDatePicker("To", Math.max(from, initialTo), to -> {
+                    fromEpochDay = Math.min(from, to);
+                    toEpochDay = Math.max(from, to);
+                    selectPeriod(Period.CUSTOM);
+                }));
+    }
+
+    private interface DayCallback {
+        void onDay(long epochDay);
+    }
+
+    private void showDatePicker(String title, long initialDay, DayCallback callback) {
+        Calendar calendar = DateUtils.toCalendar(initialDay);
+        DatePickerDialog datePickerDialog = new DatePickerDialog(
+            requireContext(),
+            (view, year, month, dayOfMonth) -> callback.onDay(DateUtils.toEpochDay(year, month + 1, dayOfMonth)),
+            calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH)
+        );
+        datePickerDialog.setTitle(title);
+        datePickerDialog.show();
+    }
+
     private void showSortMenu() {
         PopupMenu popupMenu = new PopupMenu(requireContext(), btnSort);
         popupMenu.getMenu().add("Amount (High to Low)");
@@ -264,7 +423,7 @@ public class AnalyticsFragment extends Fragment {
                 } else if (title.equals("Percentage (Low to High)")) {
                     currentSortType = "percentage_asc";
                 }
-                loadAnalytics();
+                displayBreakdowns();
                 return true;
             }
         });
@@ -273,8 +432,9 @@ public class AnalyticsFragment extends Fragment {
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        loadAnalytics();
+    public void onDestroyView() {
+        super.onDestroyView();
+        searchPipeline.cancel();
+        requests.cancelAll();
     }
 }
@@ -22,12 +22,15 @@ import com.example.myapplication.R;
 import com.example.myapplication.handlers.BudgetHandler;
 import com.example.myapplication.handlers.ExpenseHandler;
 import com.example.myapplication.models.Budget;
-import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.Category;
+import com.example.myapplication.models.CategoryTotal;
+import com.example.myapplication.models.SpendingSummary;
 import com.example.myapplication.adapters.BudgetAdapter;
+import com.example.myapplication.utils.Money;
+import com.example.myapplication.utils.RequestScope;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -53,6 +56,8 @@ public class BudgetFragment extends Fragment {
     private ExpenseHandler expenseHandler;
     private BudgetAdapter adapter; // Adapter to bind data to RecyclerView
     private List<BudgetAdapter.BudgetItem> budgetItems; // List of data objects to display
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled with the view
+    private ExpenseStore store; // Budgets and spending summary shared with the other tabs
 
     @Nullable
     @Override
@@ -87,7 +92,7 @@ public class BudgetFragment extends Fragment {
         
         // Initialize the list and adapter
         budgetItems = new ArrayList<>();
-        adapter = new BudgetAdapter(budgetItems, new BudgetAdapter.OnBudgetClickListener() {
+        adapter = new BudgetAdapter(new ArrayList<>(), new BudgetAdapter.OnBudgetClickListener() {
             // Implement interface callbacks for item interactions
             @Override
             public void onEditClick(Budget budget) {
@@ -104,41 +109,47 @@ public class BudgetFragment extends Fragment {
         // Click listener for "Add Budget" button
         btnAddBudget.setOnClickListener(v -> showAddBudgetDialog());
 
-        // Initial data fetch
-        loadBudgets();
+        // Initial data fetch; the store pushes new budgets or totals whenever either changes
+        store = ExpenseStore.of(this);
+        store.getBudgets().observe(getViewLifecycleOwner(), budgets -> showLatest());
+        store.getSummary().observe(getViewLifecycleOwner(), summary -> showLatest());
     }
 
     /**
-     * Fetches budget data and expense data to calculate progress.
+     * Shows budget data and per-category spending once the {@link ExpenseStore} has both.
+     * Both are read in the background; the rest happens in {@link #showBudgets(List, SpendingSummary)}.
      * 
      * Logic:
-     * 1. Get all budgets and all expenses.
-     * 2. Aggregate expenses by category into a Map (Category -> Total Spent).
+     * 1. Get all budgets and the spending summary (summed per category in SQL).
+     * 2. Index the category totals into a Map (Category -> Total Spent).
      * 3. Merge budget info with spent info into `BudgetItem` objects.
      * 4. Update the adapter to refresh the UI.
      * 5. Toggle empty state visibility.
      */
-    private void loadBudgets() {
-        List<Budget> budgets = budgetHandler.getBudgets();
-        List<Expense> expenses = expenseHandler.getExpenses();
-        
-        // Step 1: Calculate spent amounts per category
+    private void showLatest() {
+        List<Budget> budgets = store.getBudgets().getValue();
+        SpendingSummary summary = store.getSummary().getValue();
+        if (budgets == null || summary == null) return; // First load still in flight
+        showBudgets(budgets, summary);
+    }
+
+    private void showBudgets(List<Budget> budgets, SpendingSummary summary) {
+        // Step 1: Look up spent amounts per category
         // We use a HashMap for O(1) lookups during the merge step
-        Map<String, Double> categoryTotals = new HashMap<>();
-        for (Expense expense : expenses) {
-            double currentTotal = categoryTotals.getOrDefault(expense.category, 0.0);
-            categoryTotals.put(expense.category, currentTotal + expense.amount);
+        Map<Integer, Long> categoryTotals = new HashMap<>();
+        for (CategoryTotal category : summary.categories) {
+            categoryTotals.put(category.categoryId, category.amountCents);
         }
         
         // Step 2: Create display items merging Budget limit + Spent amount
         budgetItems.clear();
         for (Budget budget : budgets) {
-            double spent = categoryTotals.getOrDefault(budget.category, 0.0);
+            long spent = categoryTotals.getOrDefault(budget.categoryId, 0L);
             budgetItems.add(new BudgetAdapter.BudgetItem(budget, spent));
         }
         
         // Step 3: Update adapter
-        adapter.updateBudgets(budgetItems);
+        adapter.updateBudgets(new ArrayList<>(budgetItems)); // The adapter diffs against its own copy
         
         // Step 4: Handle empty state UI
         if (budgets.isEmpty()) {
@@ -155,11 +166,15 @@ public class BudgetFragment extends Fragment {
     }
 
     private void showAddBudgetDialog() {
-        showBudgetDialog(null);
+        requests.track("categories", expenseHandler.getCategoriesAsync(categories -> {
+            if (categories != null) showBudgetDialog(null, categories);
+        }));
     }
 
     private void showEditBudgetDialog(Budget budget) {
-        showBudgetDialog(budget);
+        requests.track("categories", expenseHandler.getCategoriesAsync(categories -> {
+            if (categories != null) showBudgetDialog(budget, categories);
+        }));
     }
 
     /**
@@ -172,8 +187,9 @@ public class BudgetFragment extends Fragment {
      * - Input validation before saving
      * 
      * @param existingBudget The budget object if editing, or null if adding new.
+     * @param categoryList The current user's categories shown in the grid.
      */
-    private void showBudgetDialog(Budget existingBudget) {
+    private void showBudgetDialog(Budget existingBudget, List<Category> categoryList) {
         View dialogView = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_add_budget, null);
         
         TextInputEditText etAmount = dialogView.findViewById(R.id.etBudgetAmount);
@@ -181,17 +197,12 @@ public class BudgetFragment extends Fragment {
         com.google.android.material.textfield.TextInputLayout tilCustomCategory = dialogView.findViewById(R.id.tilCustomCategoryBudget);
         GridLayout gridCategories = dialogView.findViewById(R.id.gridBudgetCategories);
         
-        List<String> categoryList = expenseHandler.getCategories();
-        String[] categories = categoryList.toArray(new String[0]);
-        
-        // Setup icon map with defaults
-        Map<String, String> iconMap = new HashMap<>();
-        iconMap.put("Food", "🍔");
-        iconMap.put("Transport", "🚗");
-        iconMap.put("Shopping", "🛍️");
-        iconMap.put("Bills", "📜");
-        iconMap.put("Entertainment", "🍿");
-        iconMap.put("Others", "✨");
+        String[] categories = new String[categoryList.size()];
+        String[] icons = new String[categoryList.size()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = categoryList.get(i).name;
+            icons[i] = categoryList.get(i).icon;
+        }
         
         String[] selectedCategory = {existingBudget != null ? existingBudget.category : categories[0]};
         String[] customCategoryName = {""};
@@ -199,7 +210,7 @@ public class BudgetFragment extends Fragment {
         
         // Pre-fill amount if editing
         if (existingBudget != null) {
-            etAmount.setText(String.format(Locale.getDefault(), "%.2f", existingBudget.limit));
+            etAmount.setText(Money.toInput(existingBudget.limitCents));
         }
         
         // Create category cards dynamically in a Grid
@@ -217,9 +228,7 @@ public class BudgetFragment extends Fragment {
             card.setCardElevation(2);
 
             TextView tvIcon = new TextView(requireContext());
-            // Use default icon for unknown categories
-            String icon = iconMap.getOrDefault(categories[i], "🏷️");
-            tvIcon.setText(icon);
+            tvIcon.setText(icons[i]);
             tvIcon.setTextSize(24);
             tvIcon.setPadding(24, 24, 24, 8);
             tvIcon.setGravity(android.view.Gravity.CENTER);
@@ -343,8 +352,8 @@ public class BudgetFragment extends Fragment {
                 }
 
                 try {
-                    double amount = Double.parseDouble(amountStr);
-                    if (amount <= 0) {
+                    long limitCents = Money.parse(amountStr);
+                    if (limitCents <= 0) {
                         Toast.makeText(requireContext(), "Budget amount must be greater than 0", Toast.LENGTH_SHORT).show();
                         return;
                     }
@@ -359,14 +368,16 @@ public class BudgetFragment extends Fragment {
                     // Use custom category name if "Others" is selected, otherwise use selected category
                     String categoryToSave = selectedCategory[0].equals("Others") ? customCategoryName[0] : selectedCategory[0];
                     
-                    if (budgetHandler.handleSetBudget(categoryToSave, amount)) {
-                        loadBudgets();
-                        String message = existingBudget != null ? "Budget updated successfully" : "Budget set successfully";
-                        Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
-                    } else {
-                        String message = existingBudget != null ? "Failed to update budget" : "Failed to set budget";
-                        Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
-                    }
+                    requests.track("save", budgetHandler.handleSetBudgetAsync(categoryToSave, limitCents, saved -> {
+                        if (Boolean.TRUE.equals(saved)) {
+                            // The store reloads budgets on its own once the write is announced
+                            String message = existingBudget != null ? "Budget updated successfully" : "Budget set successfully";
+                            Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                        } else {
+                            String message = existingBudget != null ? "Failed to update budget" : "Failed to set budget";
+                            Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                        }
+                    }));
                 } catch (NumberFormatException e) {
                     Toast.makeText(requireContext(), "Invalid amount", Toast.LENGTH_SHORT).show();
                 }
@@ -481,20 +492,21 @@ public class BudgetFragment extends Fragment {
             .setTitle("Delete Budget")
             .setMessage("Are you sure you want to delete the budget for " + budget.category + "?")
             .setPositiveButton("Delete", (dialog, which) -> {
-                if (budgetHandler.handleDeleteBudget(budget.category)) {
-                    loadBudgets();
-                    Toast.makeText(requireContext(), "Budget deleted", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(requireContext(), "Failed to delete budget", Toast.LENGTH_SHORT).show();
-                }
+                requests.track("delete", budgetHandler.handleDeleteBudgetAsync(budget.category, deleted -> {
+                    if (Boolean.TRUE.equals(deleted)) {
+                        Toast.makeText(requireContext(), "Budget deleted", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(requireContext(), "Failed to delete budget", Toast.LENGTH_SHORT).show();
+                    }
+                }));
             })
             .setNegativeButton("Cancel", null)
             .show();
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        loadBudgets();
+    public void onDestroyView() {
+        super.onDestroyView();
+        requests.cancelAll();
     }
 }
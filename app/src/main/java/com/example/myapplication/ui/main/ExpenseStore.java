@@ -0,0 +1,128 @@
+package com.example.myapplication.ui.main;
+
+import android.app.Application;
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModelProvider;
+import com.example.myapplication.data.TableVersions;
+import com.example.myapplication.handlers.BudgetHandler;
+import com.example.myapplication.handlers.ExpenseHandler;
+import com.example.myapplication.models.Budget;
+import com.example.myapplication.models.SpendingSummary;
+import com.example.myapplication.utils.AppExecutors;
+import com.example.myapplication.utils.RequestScope;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ExpenseStore
+ *
+ * The data MainActivity's tabs have in common, loaded once and shared: the spending summary
+ * (Home's total, the Analytics breakdown, Budget progress) and the budgets. Fragments observe it with their view lifecycle
+ * instead of querying the database themselves, so switching tabs costs no reads.
+ *
+ * Each data set is loaded the first time it is asked for and afterwards reloaded only when a
+ * table it is read from has been written to since (see {@link TableVersions}). The store listens
+ * for those writes and refreshes itself, so screens never reload on resume or after their own
+ * writes; they just receive the new values.
+ *
+ * Scoped to the activity (see {@link #of(Fragment)}), so it also survives rotation.
+ * Main thread only; values are published through LiveData.
+ */
+public class ExpenseStore extends AndroidViewModel {
+    private static final int[] SUMMARY_TABLES = {TableVersions.EXPENSES, TableVersions.CATEGORIES};
+    private static final int[] BUDGET_TABLES = {TableVersions.BUDGETS, TableVersions.CATEGORIES};
+    private static final long NOT_LOADED = -1;
+
+    private final ExpenseHandler expenseHandler;
+    private final BudgetHandler budgetHandler;
+    private final RequestScope requests = new RequestScope();
+    private final TableVersions.Listener tableListener = (table, version) -> scheduleRefresh();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private final MutableLiveData<SpendingSummary> summary = new MutableLiveData<>();
+    private final MutableLiveData<List<Budget>> budgets = new MutableLiveData<>();
+
+    // Table versions each data set was last loaded at; NOT_LOADED until something asks for it
+    private long summaryStamp = NOT_LOADED;
+    private long budgetsStamp = NOT_LOADED;
+
+    public ExpenseStore(@NonNull Application application) {
+        super(application);
+        expenseHandler = new ExpenseHandler(application);
+        budgetHandler = new BudgetHandler(application);
+        TableVersions.getInstance().addListener(tableListener);
+    }
+
+    /**
+     * @return The store shared by every fragment of the fragment's activity
+     */
+    public static ExpenseStore of(Fragment fragment) {
+        return new ViewModelProvider(fragment.requireActivity()).get(ExpenseStore.class);
+    }
+
+    /**
+     * The current user's spending summary; loaded on the first call.
+     */
+    public LiveData<SpendingSummary> getSummary() {
+        if (summaryStamp == NOT_LOADED) loadSummary();
+        return summary;
+    }
+
+    /**
+     * The current user's budgets; loaded on the first call.
+     */
+    public LiveData<List<Budget>> getBudgets() {
+        if (budgetsStamp == NOT_LOADED) loadBudgets();
+        return budgets;
+    }
+
+    // Called on the writing thread; a burst of writes (e.g. an expense and its new category) refreshes once
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            AppExecutors.getInstance().mainThread().execute(() -> {
+                refreshScheduled.set(false);
+                refresh();
+            });
+        }
+    }
+
+    /**
+     * Reloads every data set that has been loaded and whose tables changed since.
+     */
+    private void refresh() {
+        if (summaryStamp != NOT_LOADED && isStale(summaryStamp, SUMMARY_TABLES)) loadSummary();
+        if (budgetsStamp != NOT_LOADED && isStale(budgetsStamp, BUDGET_TABLES)) loadBudgets();
+    }
+
+    private void loadSummary() {
+        summaryStamp = stamp(SUMMARY_TABLES);
+        requests.track("summary", expenseHandler.getSpendingSummaryAsync(result -> {
+            if (result != null) summary.setValue(result); // On failure keep showing the last summary
+        }));
+    }
+
+    private void loadBudgets() {
+        budgetsStamp = stamp(BUDGET_TABLES);
+        requests.track("budgets", budgetHandler.getBudgetsAsync(result -> {
+            if (result != null) budgets.setValue(result);
+        }));
+    }
+
+    private static boolean isStale(long loadedStamp, int[] tables) {
+        return loadedStamp == NOT_LOADED || loadedStamp != stamp(tables);
+    }
+
+    private static long stamp(int[] tables) {
+        return TableVersions.getInstance().stamp(tables);
+    }
+
+    @Override
+    protected void onCleared() {
+        TableVersions.getInstance().removeListener(tableListener);
+        requests.cancelAll();
+    }
+}
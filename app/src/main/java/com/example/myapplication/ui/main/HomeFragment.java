@@ -21,18 +21,25 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import com.example.myapplication.R;
+import com.example.myapplication.data.TableVersions;
 import com.example.myapplication.handlers.ExpenseHandler;
+import com.example.myapplication.models.Category;
 import com.example.myapplication.models.Expense;
+import com.example.myapplication.models.ExpenseOrder;
+import com.example.myapplication.models.ExpenseQuery;
+import com.example.myapplication.models.SpendingSummary;
 import com.example.myapplication.models.BudgetCheckResult;
 import com.example.myapplication.adapters.ExpenseAdapter;
+import com.example.myapplication.utils.Callback;
+import com.example.myapplication.utils.DateUtils;
+import com.example.myapplication.utils.Money;
+import com.example.myapplication.utils.RequestScope;
+import com.example.myapplication.utils.SearchPipeline;
+import com.example.myapplication.utils.SearchText;
 import java.util.ArrayList;
 
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -43,7 +50,7 @@ import java.util.Locale;
  * Responsibilities:
  * 1. Loads expenses from DataManager.
  * 2. Provides search/filtering functionality.
- * 3. Provides sorting options (Date, Amount, Category).
+ * 3. Provides sorting options (Date, Amount, Category, and Best Match while searching).
  * 4. Handles clicks to edit or delete expenses.
  */
 public class HomeFragment extends Fragment {
@@ -56,10 +63,25 @@ public class HomeFragment extends Fragment {
     // Data & Adapters
     private ExpenseAdapter adapter;    // Custom adapter to bind data to RecyclerView
     private ExpenseHandler expenseHandler;   // Access to expense logic
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled with the view
+    private ExpenseStore store; // Summary shared with the other tabs
+    // Tables this screen displays, and their versions when it last loaded them
+    private static final int[] SHOWN_TABLES = {TableVersions.EXPENSES, TableVersions.CATEGORIES};
+    private long loadedStamp = -1;
     
+    // Paged feed, used for every order when there is no search (see isPagedView())
+    private static final int PAGE_SIZE = 50;         // Expenses fetched per page
+    private static final int PREFETCH_DISTANCE = 15; // Fetch the next page when this close to the end
+    private static final int SEARCH_LIMIT = 500;     // Best matches shown for a search
+    private static final long SEARCH_DEBOUNCE_MS = 250; // Typing pause before the search runs
+    private SearchPipeline<Expense> searchPipeline;
+    private final List<Expense> pagedExpenses = new ArrayList<>(); // Pages loaded so far
+    private boolean hasMorePages;
+    private boolean pageLoading;
+
     // State
-    private List<Expense> allExpenses; // Source of truth for expenses
-    private String currentSortType = "date_desc"; // Default sorting: newest first
+    private ExpenseOrder currentOrder = ExpenseOrder.NEWEST_FIRST; // Default sorting: newest first
+    private boolean bestMatchFirst = true; // A search shows its best matches first until an order is picked
     private String searchQuery = "";   // Current filter query
 
     @Nullable
@@ -74,6 +96,10 @@ public class HomeFragment extends Fragment {
 
         // Initialize DataManager with context
         expenseHandler = new ExpenseHandler(requireContext());
+        searchPipeline = new SearchPipeline<>(SEARCH_DEBOUNCE_MS, SEARCH_LIMIT,
+                (query, callback) -> expenseHandler.findExpensesAsync(searchFor(query), SEARCH_LIMIT, callback),
+                (expense, query) -> SearchText.matchesAllPrefixes(query, expense.note, expense.category),
+                this::displayExpenses);
         
         // Setup Views
         rvExpenses = view.findViewById(R.id.rvExpenses);
@@ -89,7 +115,8 @@ public class HomeFragment extends Fragment {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 searchQuery = s.toString().toLowerCase().trim();
-                loadExpenses(); // Reload list with new filter
+                updateSortLabel();
+                refreshView(true); // Re-run the search
             }
 
             @Override
@@ -103,7 +130,9 @@ public class HomeFragment extends Fragment {
         adapter = new ExpenseAdapter(new ArrayList<>(), new ExpenseAdapter.OnExpenseClickListener() {
             @Override
             public void onEditClick(Expense expense) {
-                showEditDialog(expense);
+                requests.track("categories", expenseHandler.getCategoriesAsync(categories -> {
+                    if (categories != null) showEditDialog(expense, categories);
+                }));
             }
 
             @Override
@@ -113,179 +142,199 @@ public class HomeFragment extends Fragment {
                     .setTitle("Delete Expense")
                     .setMessage("Are you sure to delete it?")
                     .setPositiveButton("Delete", (dialog, which) -> {
-                        if (expenseHandler.handleDeleteExpense(expense.id)) {
-                            loadExpenses(); // Refresh list after delete
-                            Toast.makeText(requireContext(), "Expense deleted", Toast.LENGTH_SHORT).show();
-                        }
+                        requests.track("delete", expenseHandler.handleDeleteExpenseAsync(expense.id, deleted -> {
+                            if (Boolean.TRUE.equals(deleted)) {
+                                loadExpenses(); // Refresh list after delete
+                                Toast.makeText(requireContext(), "Expense deleted", Toast.LENGTH_SHORT).show();
+                            }
+                        }));
                     })
                     .setNegativeButton("Cancel", null)
                     .show();
             }
         });
 
-        rvExpenses.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        rvExpenses.setLayoutManager(layoutManager);
         rvExpenses.setAdapter(adapter);
 
+        // Prefetch the next page of the feed before the user reaches the end of what is loaded
+        rvExpenses.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // The store publishes the total for the paged view
+        store = ExpenseStore.of(this);
+        store.getSummary().observe(getViewLifecycleOwner(), summary -> {
+            if (isPagedView()) tvTotalAmount.setText(Money.format(summary.totalCents));
+        });
+
         // Initial load of data
         loadExpenses();
     }
 
     /**
      * Data Processing Pipeline:
-     * 1. Fetch raw data from Database (via DataManager).
-     * 2. Apply Filtering (Search query).
-     * 3. Apply Sorting (Date/Amount/Category).
-     * 4. Update UI (RecyclerView & Total Amount).
+     * 1. Fetch data from Database (via DataManager), on a background thread. With a search query
+     *    only the matches come back, from the full-text index, already in the chosen order
+     *    (see {@link #searchFor(String)}).
+     * 2. Update UI (RecyclerView & Total Amount).
      * 
-     * This method orchestrates the entire display logic.
+     * Step 2 runs in {@link #displayExpenses(List)} once the data arrives. A newer load
+     * supersedes one still in flight.
+     *
+     * Without a search all of that is skipped: the feed reads one page at a time, already in the
+     * chosen order, and the total comes from an aggregate query.
      */
     private void loadExpenses() {
+        loadedStamp = TableVersions.getInstance().stamp(SHOWN_TABLES); // Before reading, so a concurrent write still counts as a change
+        if (isPagedView()) {
+            searchPipeline.cancel();
+            requests.cancel("searchTotal");
+            loadFirstPage();
+            return;
+        }
         // Step 1: Fetch
-        allExpenses = expenseHandler.getExpenses();
-        
-        // Step 2: Filter
-        List<Expense> filteredExpenses = filterExpenses(allExpenses);
-        
-        // Step 3: Sort
-        List<Expense> sortedExpenses = sortExpenses(filteredExpenses);
-        
-        // Step 4: Display
-        adapter.updateExpenses(sortedExpenses);
+        requests.cancel("load");
+        searchPipeline.searchNow(searchQuery); // Data may have changed: query again, no narrowing
+    }
 
-        // Calculate and display total from the *filtered* list
-        double total = 0;
-        for (Expense expense : sortedExpenses) {
-            total += expense.amount;
-        }
-        tvTotalAmount.setText(String.format(Locale.getDefault(), "$%.2f", total));
+    /**
+     * Whether the current view can be served by the paged feed: every order can, as long as the
+     * list is unfiltered. A search is one query for its best matches instead.
+     */
+    private boolean isPagedView() {
+        return searchQuery.isEmpty();
     }
 
     /**
-     * Filters expenses based on the search query.
-     * Matches against: Note, Category, Amount, or Date.
-     * 
-     * @param expenses The list to filter
-     * @return A new list containing only matching expenses
+     * Applies a changed search query or sort order: restarts the feed in paged mode, hands a new
+     * query to the search pipeline (debounced), otherwise runs the search again in the new order.
      */
-    private List<Expense> filterExpenses(List<Expense> expenses) {
-        if (searchQuery.isEmpty()) {
-            return new ArrayList<>(expenses);
+    private void refreshView(boolean queryChanged) {
+        if (isPagedView()) {
+            pagedExpenses.clear(); // New order: start again from a single page
+            loadExpenses();
+        } else if (queryChanged) {
+            requests.cancel("load"); // A feed load still in flight must not overwrite the results
+            searchPipeline.setQuery(searchQuery);
+        } else {
+            loadExpenses();
         }
+    }
 
-        List<Expense> filtered = new ArrayList<>();
-        for (Expense expense : expenses) {
-            // Check if any field contains the query substring
-            if (expense.note != null && expense.note.toLowerCase().contains(searchQuery)) {
-                filtered.add(expense);
-            } else if (expense.category != null && expense.category.toLowerCase().contains(searchQuery)) {
-                filtered.add(expense);
-            } else if (String.format(Locale.getDefault(), "%.2f", expense.amount).contains(searchQuery)) {
-                filtered.add(expense);
-            } else if (expense.date != null && expense.date.toLowerCase().contains(searchQuery)) {
-                filtered.add(expense);
-            }
-        }
-        return filtered;
+    /**
+     * (Re)starts the paged feed. After an edit or delete as many rows as were already shown are
+     * fetched again, so the list does not collapse back to one page.
+     */
+    private void loadFirstPage() {
+        int rows = Math.max(PAGE_SIZE, pagedExpenses.size());
+        pageLoading = true;
+        requests.track("load", expenseHandler.getExpensePageAsync(currentOrder, null, rows, page -> {
+            pageLoading = false;
+            if (page == null) return;
+            pagedExpenses.clear();
+            pagedExpenses.addAll(page.expenses);
+            hasMorePages = page.hasMore;
+            adapter.updateExpenses(new ArrayList<>(pagedExpenses));
+        }));
+        // The total comes from the store's summary; this shows it again after a search or sort replaced it
+        SpendingSummary summary = store.getSummary().getValue();
+        if (summary != null) tvTotalAmount.setText(Money.format(summary.totalCents));
     }
 
-    private List<Expense> sortExpenses(List<Expense> expenses) {
-        List<Expense> sorted = new ArrayList<>(expenses);
-        
-        switch (currentSortType) {
-            case "date_desc":
-                Collections.sort(sorted, (e1, e2) -> {
-                    Date d1 = parseDate(e1.date);
-                    Date d2 = parseDate(e2.date);
-                    if (d1 == null && d2 == null) return 0;
-                    if (d1 == null) return 1;
-                    if (d2 == null) return -1;
-                    return d2.compareTo(d1); // Newest first
-                });
-                break;
-            case "date_asc":
-                Collections.sort(sorted, (e1, e2) -> {
-                    Date d1 = parseDate(e1.date);
-                    Date d2 = parseDate(e2.date);
-                    if (d1 == null && d2 == null) return 0;
-                    if (d1 == null) return 1;
-                    if (d2 == null) return -1;
-                    return d1.compareTo(d2); // Oldest first
-                });
-                break;
-            case "amount_desc":
-                Collections.sort(sorted, (e1, e2) -> Double.compare(e2.amount, e1.amount)); // Highest first
-                break;
-            case "amount_asc":
-                Collections.sort(sorted, (e1, e2) -> Double.compare(e1.amount, e2.amount)); // Lowest first
-                break;
-            case "category_asc":
-                Collections.sort(sorted, (e1, e2) -> {
-                    String c1 = e1.category != null ? e1.category : "";
-                    String c2 = e2.category != null ? e2.category : "";
-                    return c1.compareToIgnoreCase(c2);
-                });
-                break;
-            case "category_desc":
-                Collections.sort(sorted, (e1, e2) -> {
-                    String c1 = e1.category != null ? e1.category : "";
-                    String c2 = e2.category != null ? e2.category : "";
-                    return c2.compareToIgnoreCase(c1);
-                });
-                break;
-        }
-        
-        return sorted;
+    private void loadNextPage() {
+        if (!isPagedView() || pageLoading || !hasMorePages || pagedExpenses.isEmpty()) return;
+        Expense last = pagedExpenses.get(pagedExpenses.size() - 1);
+        pageLoading = true;
+        requests.track("load", expenseHandler.getExpensePageAsync(currentOrder, last, PAGE_SIZE, page -> {
+            pageLoading = false;
+            if (page == null) return;
+            pagedExpenses.addAll(page.expenses);
+            hasMorePages = page.hasMore;
+            adapter.updateExpenses(new ArrayList<>(pagedExpenses));
+        }));
     }
 
-    private Date parseDate(String dateStr) {
-        if (dateStr == null || dateStr.isEmpty() || dateStr.equals("Today")) {
-            return new Date(); // Return current date for "Today"
-        }
-        
-        SimpleDateFormat[] formats = {
-            new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault()),
-            new SimpleDateFormat("MMM d, yyyy", Locale.getDefault()),
-            new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()),
-            new SimpleDateFormat("MM/dd/yyyy", Locale.getDefault())
-        };
-        
-        for (SimpleDateFormat format : formats) {
-            try {
-                return format.parse(dateStr);
-            } catch (ParseException e) {
-                // Try next format
+    /**
+     * Shows search results, already in the chosen order.
+     */
+    private void displayExpenses(List<Expense> expenses) {
+        // Step 2: Display
+        adapter.updateExpenses(new ArrayList<>(expenses)); // The pipeline keeps the results for narrowing
+
+        // Fewer results than the limit are every match, so their sum is the total. A full list holds
+        // only the best matches; the total of all of them comes from an aggregate query
+        if (expenses.size() < SEARCH_LIMIT) {
+            requests.cancel("searchTotal");
+            long total = 0;
+            for (Expense expense : expenses) {
+                total += expense.amountCents;
             }
+            tvTotalAmount.setText(Money.format(total));
+            return;
         }
-        return null;
+        requests.track("searchTotal", expenseHandler.summarizeExpensesAsync(searchFor(searchQuery), summary -> {
+            if (summary != null && !isPagedView()) tvTotalAmount.setText(Money.format(summary.totalCents));
+        }));
+    }
+
+    /**
+     * The search as an engine query. Until the user picks an order it shows the best matches first,
+     * as a search should; an order picked from the menu applies to all the matches.
+     */
+    private ExpenseQuery searchFor(String text) {
+        return ExpenseQuery.all().matching(text).orderBy(bestMatchFirst ? null : currentOrder);
+    }
+
+    // The sort button names the order a search is shown in while it is not one of the menu's orders
+    private void updateSortLabel() {
+        btnSort.setText(!isPagedView() && bestMatchFirst ? "Sort: Best Match" : "Sort");
     }
 
     private void showSortMenu() {
         PopupMenu popupMenu = new PopupMenu(requireContext(), btnSort);
+        if (!isPagedView()) popupMenu.getMenu().add("Best Match");
         popupMenu.getMenu().add("Date (Newest First)");
         popupMenu.getMenu().add("Date (Oldest First)");
         popupMenu.getMenu().add("Amount (High to Low)");
         popupMenu.getMenu().add("Amount (Low to High)");
         popupMenu.getMenu().add("Category (A-Z)");
         popupMenu.getMenu().add("Category (Z-A)");
+        // Tick the order currently shown
+        String shown = !isPagedView() && bestMatchFirst ? "Best Match" : titleOf(currentOrder);
+        for (int i = 0; i < popupMenu.getMenu().size(); i++) {
+            MenuItem item = popupMenu.getMenu().getItem(i);
+            item.setCheckable(true);
+            item.setChecked(item.getTitle().toString().equals(shown));
+        }
         
         popupMenu.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener() {
             @Override
             public boolean onMenuItemClick(MenuItem item) {
                 String title = item.getTitle().toString();
+                // Best Match leaves currentOrder alone; the feed goes back to it once the search is cleared
+                bestMatchFirst = title.equals("Best Match");
                 if (title.equals("Date (Newest First)")) {
-                    currentSortType = "date_desc";
+                    currentOrder = ExpenseOrder.NEWEST_FIRST;
                 } else if (title.equals("Date (Oldest First)")) {
-                    currentSortType = "date_asc";
+                    currentOrder = ExpenseOrder.OLDEST_FIRST;
                 } else if (title.equals("Amount (High to Low)")) {
-                    currentSortType = "amount_desc";
+                    currentOrder = ExpenseOrder.HIGHEST_FIRST;
                 } else if (title.equals("Amount (Low to High)")) {
-                    currentSortType = "amount_asc";
+                    currentOrder = ExpenseOrder.LOWEST_FIRST;
                 } else if (title.equals("Category (A-Z)")) {
-                    currentSortType = "category_asc";
+                    currentOrder = ExpenseOrder.CATEGORY_A_Z;
                 } else if (title.equals("Category (Z-A)")) {
-                    currentSortType = "category_desc";
+                    currentOrder = ExpenseOrder.CATEGORY_Z_A;
                 }
-                loadExpenses();
+                updateSortLabel();
+                refreshView(false);
                 return true;
             }
         });
@@ -293,13 +342,44 @@ public class HomeFragment extends Fragment {
         popupMenu.show();
     }
 
+    private static String titleOf(ExpenseOrder order) {
+        switch (order) {
+            case OLDEST_FIRST: return "Date (Oldest First)";
+            case HIGHEST_FIRST: return "Amount (High to Low)";
+            case LOWEST_FIRST: return "Amount (Low to High)";
+            case CATEGORY_A_Z: return "Category (A-Z)";
+            case CATEGORY_Z_A: return "Category (Z-A)";
+            default: return "Date (Newest First)";
+        }
+    }
+
     @Override
     public void onResume() {
         super.onResume();
-        loadExpenses();
+        if (!isHidden()) reloadIfChanged(); // Hidden tabs also resume with the activity
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden) reloadIfChanged();
+    }
+
+    // The fragment is kept while other tabs are shown; reload only if something it shows was written meanwhile
+    private void reloadIfChanged() {
+        if (TableVersions.getInstance().stamp(SHOWN_TABLES) != loadedStamp) {
+            loadExpenses();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        requests.cancelAll();
+        searchPipeline.cancel();
     }
 
-    private void showEditDialog(Expense expense) {
+    private void showEditDialog(Expense expense, List<Category> categoryList) {
         View dialogView = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_edit_expense, null);
         
         TextInputEditText etAmount = dialogView.findViewById(R.id.etAmount);
@@ -308,15 +388,20 @@ public class HomeFragment extends Fragment {
         GridLayout gridCategories = dialogView.findViewById(R.id.gridCategories);
         
         // Pre-fill with existing values
-        etAmount.setText(String.valueOf(expense.amount));
+        etAmount.setText(Money.toInput(expense.amountCents));
         etNote.setText(expense.note);
-        etDate.setText(expense.date);
+        long[] selectedDay = {expense.epochDay};
+        etDate.setText(DateUtils.format(selectedDay[0]));
         
         // Set up date picker
-        etDate.setOnClickListener(v -> showDatePickerDialog(etDate, expense.date));
+        etDate.setOnClickListener(v -> showDatePickerDialog(etDate, selectedDay));
         
-        String[] categories = {"Food", "Transport", "Shopping", "Bills", "Entertainment", "Others"};
-        String[] categoryIcons = {"🍔", "🚗", "🛍️", "📜", "🍿", "✨"};
+        String[] categories = new String[categoryList.size()];
+        String[] categoryIcons = new String[categoryList.size()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = categoryList.get(i).name;
+            categoryIcons[i] = categoryList.get(i).icon;
+        }
         String[] selectedCategory = {expense.category};
         
         // Setup category grid
@@ -366,7 +451,6 @@ public class HomeFragment extends Fragment {
             .setPositiveButton("Save", (d, w) -> {
                 String amountStr = etAmount.getText().toString().trim();
                 String note = etNote.getText().toString().trim();
-                String date = etDate.getText().toString().trim();
 
                 if (amountStr.isEmpty()) {
                     Toast.makeText(requireContext(), "Please enter an amount", Toast.LENGTH_SHORT).show();
@@ -374,36 +458,34 @@ public class HomeFragment extends Fragment {
                 }
 
                 try {
-                    double amount = Double.parseDouble(amountStr);
-                    if (amount <= 0) {
+                    long amountCents = Money.parse(amountStr);
+                    if (amountCents <= 0) {
                         Toast.makeText(requireContext(), "Amount must be greater than 0", Toast.LENGTH_SHORT).show();
                         return;
                     }
 
                     // Check budget before updating (only if category changed or amount changed)
-                    if (!selectedCategory[0].equals(expense.category) || amount != expense.amount) {
-                        BudgetCheckResult budgetCheck;
+                    if (!selectedCategory[0].equals(expense.category) || amountCents != expense.amountCents) {
+                        Callback<BudgetCheckResult> onChecked = budgetCheck -> {
+                            if (budgetCheck == null) {
+                                Toast.makeText(requireContext(), "Failed to update expense", Toast.LENGTH_SHORT).show();
+                            } else if (budgetCheck.exceedsBudget) {
+                                showBudgetExceededAlert(selectedCategory[0], budgetCheck, amountCents, expense, note, selectedDay[0]);
+                            } else {
+                                updateExpense(expense, selectedCategory[0], amountCents, note, selectedDay[0]);
+                            }
+                        };
                         if (!selectedCategory[0].equals(expense.category)) {
                             // Category changed, check new category budget
-                            budgetCheck = expenseHandler.checkBudget(selectedCategory[0], amount);
+                            requests.track("budgetCheck", expenseHandler.checkBudgetAsync(selectedCategory[0], amountCents, onChecked));
                         } else {
                             // Same category, check with expense ID to exclude it from calculation
-                            budgetCheck = expenseHandler.checkBudgetOnUpdate(selectedCategory[0], amount, expense.id);
-                        }
-                        
-                        if (budgetCheck.exceedsBudget) {
-                            showBudgetExceededAlert(selectedCategory[0], budgetCheck, amount, expense, note, date);
-                            return;
+                            requests.track("budgetCheck", expenseHandler.checkBudgetOnUpdateAsync(selectedCategory[0], amountCents, expense.id, onChecked));
                         }
+                        return;
                     }
 
-                    if (expenseHandler.handleUpdateExpense(expense.id, selectedCategory[0], amount, 
-                            note.isEmpty() ? "No note" : note, date.isEmpty() ? "Today" : date, expense.imageUri)) {
-                        loadExpenses();
-                        Toast.makeText(requireContext(), "Expense updated", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(requireContext(), "Failed to update expense", Toast.LENGTH_SHORT).show();
-                    }
+                    updateExpense(expense, selectedCategory[0], amountCents, note, selectedDay[0]);
                 } catch (NumberFormatException e) {
                     Toast.makeText(requireContext(), "Invalid amount", Toast.LENGTH_SHORT).show();
                 }
@@ -414,21 +496,11 @@ public class HomeFragment extends Fragment {
         dialog.show();
     }
 
-    private void showDatePickerDialog(TextInputEditText etDate, String currentDateStr) {
-        Calendar calendar = Calendar.getInstance();
-        
-        // Try to parse existing date if available
-        if (currentDateStr != null && !currentDateStr.isEmpty()) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
-                Date date = sdf.parse(currentDateStr);
-                if (date != null) {
-                    calendar.setTime(date);
-                }
-            } catch (Exception e) {
-                // If parsing fails, use current date
-            }
-        }
+    /**
+     * Shows a date picker starting at selectedDay[0] and writes the picked date back to it.
+     */
+    private void showDatePickerDialog(TextInputEditText etDate, long[] selectedDay) {
+        Calendar calendar = DateUtils.toCalendar(selectedDay[0]);
         
         int year = calendar.get(Calendar.YEAR);
         int month = calendar.get(Calendar.MONTH);
@@ -436,11 +508,9 @@ public class HomeFragment extends Fragment {
         
         DatePickerDialog datePickerDialog = new DatePickerDialog(
             requireContext(),
-            (view, selectedYear, selectedMonth, selectedDay) -> {
-                Calendar selectedCalendar = Calendar.getInstance();
-                selectedCalendar.set(selectedYear, selectedMonth, selectedDay);
-                SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
-                etDate.setText(sdf.format(selectedCalendar.getTime()));
+            (view, selectedYear, selectedMonth, selectedDayOfMonth) -> {
+                selectedDay[0] = DateUtils.toEpochDay(selectedYear, selectedMonth + 1, selectedDayOfMonth);
+                etDate.setText(DateUtils.format(selectedDay[0]));
             },
             year, month, day
         );
@@ -448,20 +518,20 @@ public class HomeFragment extends Fragment {
         datePickerDialog.show();
     }
 
-    private void showBudgetExceededAlert(String category, BudgetCheckResult budgetCheck, double amount, Expense expense, String note, String date) {
+    private void showBudgetExceededAlert(String category, BudgetCheckResult budgetCheck, long amountCents, Expense expense, String note, long epochDay) {
         String message = String.format(Locale.getDefault(),
             "Budget Limit Reached!\n\n" +
             "Category: %s\n" +
-            "Budget Limit: $%.2f\n" +
-            "Current Spent: $%.2f\n" +
-            "This Expense: $%.2f\n" +
-            "New Total: $%.2f\n\n" +
+            "Budget Limit: %s\n" +
+            "Current Spent: %s\n" +
+            "This Expense: %s\n" +
+            "New Total: %s\n\n" +
             "This expense will exceed your budget limit. Do you still want to proceed?",
             category,
-            budgetCheck.budgetLimit,
-            budgetCheck.currentSpent,
-            amount,
-            budgetCheck.newTotal
+            Money.format(budgetCheck.budgetLimitCents),
+            Money.format(budgetCheck.currentSpentCents),
+            Money.format(amountCents),
+            Money.format(budgetCheck.newTotalCents)
         );
 
         new AlertDialog.Builder(requireContext())
@@ -469,19 +539,25 @@ public class HomeFragment extends Fragment {
             .setMessage(message)
             .setPositiveButton("Update Anyway", (dialog, which) -> {
                 // User chose to update despite exceeding budget
-                if (expenseHandler.handleUpdateExpense(expense.id, category, amount, 
-                        note.isEmpty() ? "No note" : note, date.isEmpty() ? "Today" : date, expense.imageUri)) {
-                    loadExpenses();
-                    Toast.makeText(requireContext(), "Expense updated", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(requireContext(), "Failed to update expense", Toast.LENGTH_SHORT).show();
-                }
+                updateExpense(expense, category, amountCents, note, epochDay);
             })
             .setNegativeButton("Cancel", null)
             .setIcon(android.R.drawable.ic_dialog_alert)
             .show();
     }
 
+    private void updateExpense(Expense expense, String category, long amountCents, String note, long epochDay) {
+        requests.track("update", expenseHandler.handleUpdateExpenseAsync(expense.id, category, amountCents,
+                note.isEmpty() ? "No note" : note, epochDay, expense.imageUri, updated -> {
+            if (Boolean.TRUE.equals(updated)) {
+                loadExpenses();
+                Toast.makeText(requireContext(), "Expense updated", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(requireContext(), "Failed to update expense", Toast.LENGTH_SHORT).show();
+            }
+        }));
+    }
+
     private void updateCategorySelection(GridLayout gridCategories, String[] categories, String selected) {
         for (int i = 0; i < gridCategories.getChildCount(); i++) {
             MaterialCardView card = (MaterialCardView) gridCategories.getChildAt(i);
@@ -6,15 +6,20 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 // Import the Bundle class to handle data passed between components or saved instance states.
 import android.os.Bundle;
+// Import Log to report how many user lookups the in-memory session saved on each screen.
+import android.util.Log;
 // Import AppCompatActivity to provide compatibility support for newer Android features on older devices.
 import androidx.appcompat.app.AppCompatActivity;
 // Import AppCompatDelegate to manage global app configuration, such as day/night modes.
 import androidx.appcompat.app.AppCompatDelegate;
 // Import Fragment class to allow modular UI sections within this activity.
 import androidx.fragment.app.Fragment;
+// Import FragmentTransaction to hide and show the retained tab fragments.
+import androidx.fragment.app.FragmentTransaction;
 // Import BottomNavigationView to provide the bottom navigation bar UI component.
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.example.myapplication.R;
+import com.example.myapplication.data.UserSession;
 import com.example.myapplication.handlers.AuthHandler;
 import com.example.myapplication.ui.auth.LoginActivity;
 
@@ -26,6 +31,10 @@ import com.example.myapplication.ui.auth.LoginActivity;
  * 1. Validates session (redirects to LoginActivity if not logged in).
  * 2. Sets up the bottom navigation menu.
  * 3. Handles switching between Home, Analytics, Add, Budget, and Settings fragments.
+ *
+ * Each tab's fragment is created on its first visit and afterwards only hidden and shown, so
+ * switching tabs keeps its views, loaded data and scroll position. Fragments reload on being
+ * shown again only if a table they display was written to meanwhile (see TableVersions).
  */
 // Define the MainActivity class, extending AppCompatActivity to inherit standard Android lifecycle and UI behavior.
 public class MainActivity extends AppCompatActivity {
@@ -33,6 +42,10 @@ public class MainActivity extends AppCompatActivity {
     public BottomNavigationView bottomNavigation;
     // Declare a private DataManager instance to handle user session and database interactions.
     private AuthHandler authHandler;
+    // Title of the screen currently shown, used to attribute the session cache counter.
+    private CharSequence currentScreen;
+    // Prefix of the tags tab fragments are kept under; the menu item ID is appended.
+    private static final String TAB_TAG_PREFIX = "tab_";
 
     // The onCreate method is the entry point where the activity initializes its UI and variables.
     @Override
@@ -68,41 +81,45 @@ public class MainActivity extends AppCompatActivity {
         
         // Set a listener to handle events when an item in the bottom navigation menu is selected.
         bottomNavigation.setOnItemSelectedListener(item -> {
-            // Initialize a variable to hold the fragment we want to display.
-            Fragment selectedFragment = null;
-            // Get the unique ID of the selected menu item.
+            // Get the unique ID of the selected menu item and the tag its fragment is kept under.
             int itemId = item.getItemId();
-            
-            // Check if the selected item is the Home button.
-            if (itemId == R.id.nav_home) {
-                // Instantiate the HomeFragment to show the main dashboard.
-                selectedFragment = new HomeFragment();
-            // Check if the selected item is the Analytics button.
-            } else if (itemId == R.id.nav_analytics) {
-                // Instantiate the AnalyticsFragment to show charts and stats.
-                selectedFragment = new AnalyticsFragment();
-            // Check if the selected item is the Add Expense button.
-            } else if (itemId == R.id.nav_add) {
-                // Instantiate the AddExpenseFragment to allow entering new transactions.
-                selectedFragment = new AddExpenseFragment();
-            // Check if the selected item is the Budget button.
-            } else if (itemId == R.id.nav_budget) {
-                // Instantiate the BudgetFragment to show budget tracking.
-                selectedFragment = new BudgetFragment();
-            // Check if the selected item is the Settings button.
-            } else if (itemId == R.id.nav_settings) {
-                // Instantiate the SettingsFragment to allow configuration changes.
-                selectedFragment = new SettingsFragment();
+            String tag = TAB_TAG_PREFIX + itemId;
+            // Find the tab currently on screen, if any.
+            Fragment current = visibleTab();
+            // Reselecting the visible tab keeps it as it is.
+            if (current != null && tag.equals(current.getTag())) {
+                return true;
             }
 
-            // If a valid fragment was selected (i.e., not null), perform the replacement transaction.
+            // Reuse the fragment created on an earlier visit, with its views, loaded data and scroll position.
+            Fragment selectedFragment = getSupportFragmentManager().findFragmentByTag(tag);
+            // Remember whether the fragment still has to be added to the container.
+            boolean isNew = selectedFragment == null;
+            if (isNew) {
+                // First visit to this tab: create its fragment.
+                selectedFragment = createTab(itemId);
+            }
+
+            // If a valid fragment was selected (i.e., not null), perform the switch.
             if (selectedFragment != null) {
-                // Begin a FragmentTransaction using the FragmentManager.
-                getSupportFragmentManager().beginTransaction()
-                    // Replace the content of the container view (ID: fragmentContainer) with the new selectedFragment.
-                    .replace(R.id.fragmentContainer, selectedFragment)
-                    // Commit the transaction to apply the changes immediately.
-                    .commit();
+                // Report the user lookups served from memory while the previous screen was shown, then start counting for the new one.
+                logRoundTripsSaved();
+                currentScreen = item.getTitle();
+                // Begin a FragmentTransaction; reordering lets the hide and show run as one change.
+                FragmentTransaction transaction = getSupportFragmentManager().beginTransaction()
+                    .setReorderingAllowed(true);
+                // Hide (not destroy) the tab being left so its state survives until the user comes back.
+                if (current != null) {
+                    transaction.hide(current);
+                }
+                // Add the fragment on its first visit, otherwise just show it again.
+                if (isNew) {
+                    transaction.add(R.id.fragmentContainer, selectedFragment, tag);
+                } else {
+                    transaction.show(selectedFragment);
+                }
+                // Commit the transaction to apply the changes.
+                transaction.commit();
                 // Return true to indicate the item selection event was handled successfully.
                 return true;
             }
@@ -110,10 +127,58 @@ public class MainActivity extends AppCompatActivity {
             return false;
         });
 
-        // initial loading check: Only load the default fragment if this is the first creation (not a rotation/recreation).
+        // initial loading check: Only load the default fragment if this is the first creation.
+        // After a rotation/recreation the FragmentManager restores every tab along with which ones were hidden.
         if (savedInstanceState == null) {
             // Programmatically select the 'nav_home' item to trigger the listener and load the HomeFragment by default.
             bottomNavigation.setSelectedItemId(R.id.nav_home);
         }
     }
-}
\ No newline at end of file
+
+    // Creates the fragment for a bottom navigation item, or returns null for an unknown item.
+    private Fragment createTab(int itemId) {
+        if (itemId == R.id.nav_home) {
+            // The main dashboard.
+            return new HomeFragment();
+        } else if (itemId == R.id.nav_analytics) {
+            // Charts and stats.
+            return new AnalyticsFragment();
+        } else if (itemId == R.id.nav_add) {
+            // Entering new transactions.
+            return new AddExpenseFragment();
+        } else if (itemId == R.id.nav_budget) {
+            // Budget tracking.
+            return new BudgetFragment();
+        } else if (itemId == R.id.nav_settings) {
+            // Configuration changes.
+            return new SettingsFragment();
+        }
+        return null;
+    }
+
+    // Returns the tab fragment that is currently shown, or null before the first tab is added.
+    private Fragment visibleTab() {
+        for (Fragment fragment : getSupportFragmentManager().getFragments()) {
+            String tag = fragment.getTag();
+            if (tag != null && tag.startsWith(TAB_TAG_PREFIX) && !fragment.isHidden()) {
+                return fragment;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Flush the counter for the last screen before the activity goes away.
+        logRoundTripsSaved();
+        super.onDestroy();
+    }
+
+    // Logs and resets the number of DB round-trips the UserSession cache avoided for the current screen.
+    private void logRoundTripsSaved() {
+        int saved = UserSession.getInstance().takeRoundTripsSaved();
+        if (currentScreen != null) {
+            Log.d("MainActivity", currentScreen + ": " + saved + " user lookup DB round-trips saved by session cache");
+        }
+    }
+}
@@ -26,6 +26,7 @@ import com.example.myapplication.models.User;
 import com.example.myapplication.ui.auth.LoginActivity;
 import com.example.myapplication.handlers.AuthHandler;
 import com.example.myapplication.handlers.ExpenseHandler; 
+import com.example.myapplication.utils.RequestScope;
 
 public class SettingsFragment extends Fragment {
     private TextView tvUsername, tvUserInitial;
@@ -34,6 +35,7 @@ public class SettingsFragment extends Fragment {
     private SwitchMaterial switchDarkMode;
     private AuthHandler authHandler;
     private ExpenseHandler expenseHandler;
+    private final RequestScope requests = new RequestScope(); // Pending background calls, cancelled with the view
     private SharedPreferences prefs;
     private static final String PREFS_NAME = "AppSettings";
     private static final String KEY_DARK_MODE = "dark_mode";
@@ -91,9 +93,11 @@ public class SettingsFragment extends Fragment {
                 .setTitle("Clear Data")
                 .setMessage("Clear all expenses? This cannot be undone.")
                 .setPositiveButton("Clear", (dialog, which) -> {
-                    if (expenseHandler.handleClearExpenses()) {
-                        Toast.makeText(requireContext(), "All expenses cleared", Toast.LENGTH_SHORT).show();
-                    }
+                    requests.track("clear", expenseHandler.handleClearExpensesAsync(cleared -> {
+                        if (Boolean.TRUE.equals(cleared)) {
+                            Toast.makeText(requireContext(), "All expenses cleared", Toast.LENGTH_SHORT).show();
+                        }
+                    }));
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -227,6 +231,7 @@ public class SettingsFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        requests.cancelAll();
         if (debounceRunnable != null) {
             debounceHandler.removeCallbacks(debounceRunnable);
         }
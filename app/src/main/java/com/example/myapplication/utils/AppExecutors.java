@@ -0,0 +1,114 @@
+package com.example.myapplication.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AppExecutors
+ *
+ * Process-wide threads for data access. Database and file work runs on a small, fixed-size I/O pool;
+ * results are handed back on the main thread. The pool is bounded so a burst of requests
+ * (e.g. one load per keystroke) queues up instead of spawning threads; with WAL enabled its
+ * threads can read concurrently.
+ */
+public final class AppExecutors {
+    private static final int IO_THREADS = 3;
+
+    private static volatile AppExecutors instance;
+
+    private final ExecutorService io;
+    private final Handler mainThread;
+
+    private AppExecutors() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "app-io-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        io = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        ((ThreadPoolExecutor) io).allowCoreThreadTimeOut(true);
+        mainThread = new Handler(Looper.getMainLooper());
+    }
+
+    public static AppExecutors getInstance() {
+        AppExecutors local = instance;
+        if (local == null) {
+            synchronized (AppExecutors.class) {
+                local = instance;
+                if (local == null) {
+                    local = new AppExecutors();
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return The bounded I/O pool, for fire-and-forget background work
+     */
+    public ExecutorService io() {
+        return io;
+    }
+
+    /**
+     * @return Runs tasks on the main thread, e.g. to react to an event raised on a background thread
+     */
+    public Executor mainThread() {
+        return mainThread::post;
+    }
+
+    /**
+     * Runs a read on the I/O pool and delivers its result on the main thread, or null if it failed.
+     * Cancelling the returned request skips the read if it has not started yet and
+     * always suppresses the callback.
+     */
+    public <T> AsyncRequest read(Callable<T> work, Callback<T> callback) {
+        return submit(work, callback, true);
+    }
+
+    /**
+     * Runs a write on the I/O pool and delivers its result on the main thread, or null if it failed.
+     * A write always runs to completion once submitted, even if the screen that asked for it
+     * goes away; cancelling the returned request only suppresses the callback.
+     */
+    public <T> AsyncRequest write(Callable<T> work, Callback<T> callback) {
+        return submit(work, callback, false);
+    }
+
+    private <T> AsyncRequest submit(Callable<T> work, Callback<T> callback, boolean skipIfCancelled) {
+        AsyncRequest request = new AsyncRequest(skipIfCancelled);
+        request.setFuture(io.submit(() -> {
+            if (skipIfCancelled && request.isCancelled()) return;
+            T result;
+            try {
+                result = work.call();
+            } catch (OperationCanceledException e) {
+                return; // Aborted through AsyncRequest.cancelWith(); nobody is waiting for it
+            } catch (Exception e) {
+                // Still answer, so the caller can report the failure and re-enable whatever it disabled
+                Log.e("AppExecutors", "Background request failed: " + e.getMessage(), e);
+                result = null;
+            }
+            T delivered = result;
+            mainThread.post(() -> {
+                if (!request.isCancelled() && callback != null) {
+                    callback.onResult(delivered);
+                }
+            });
+        }));
+        return request;
+    }
+}
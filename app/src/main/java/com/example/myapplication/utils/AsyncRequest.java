@@ -0,0 +1,57 @@
+package com.example.myapplication.utils;
+
+import android.os.CancellationSignal;
+import java.util.concurrent.Future;
+
+/**
+ * A pending call submitted through {@link AppExecutors}. Cancel it when its result is no longer
+ * wanted, e.g. when the screen that asked for it is destroyed or a newer request supersedes it.
+ */
+public final class AsyncRequest {
+    private final boolean interruptible;
+    private volatile boolean cancelled;
+    private volatile Future<?> future;
+    private volatile CancellationSignal signal;
+
+    AsyncRequest(boolean interruptible) {
+        this.interruptible = interruptible;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+        if (cancelled && interruptible) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Ties a CancellationSignal to this request, so cancelling it also aborts a query that is
+     * already running (SQLite checks the signal while stepping through rows).
+     */
+    public void cancelWith(CancellationSignal signal) {
+        this.signal = signal;
+        if (cancelled) {
+            signal.cancel();
+        }
+    }
+
+    /**
+     * Guarantees the callback will not be delivered. Reads that have not started are also dropped
+     * from the queue; writes still run (see {@link AppExecutors#write}).
+     */
+    public void cancel() {
+        cancelled = true;
+        CancellationSignal localSignal = signal;
+        if (localSignal != null) {
+            localSignal.cancel();
+        }
+        Future<?> local = future;
+        if (local != null && interruptible) {
+            local.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.myapplication.utils;
+
+/**
+ * Receives the result of an asynchronous handler call. Always invoked on the main thread,
+ * with null if the call failed.
+ *
+ * @param <T> The result type
+ */
+public interface Callback<T> {
+    void onResult(T result);
+}
@@ -0,0 +1,119 @@
+package com.example.myapplication.utils;
+
+import com.example.myapplication.models.Category;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CategoryCache
+ *
+ * In-memory copy of the categories table, keyed by category id. Expenses, budgets and totals only
+ * store the id; names, icons and colours are looked up here when rows are mapped and bound, so no
+ * query joins categories and no adapter keeps its own name-to-icon table.
+ *
+ * The contents are an immutable snapshot swapped in whole by the data layer whenever the table
+ * changes, so lookups need no locking and are safe on any thread (including while binding views).
+ * There is exactly one instance per process (see {@link #getInstance()}).
+ */
+public final class CategoryCache {
+    private static final CategoryCache INSTANCE = new CategoryCache();
+
+    private static final class Snapshot {
+        final Map<Integer, Category> byId;
+        final Map<String, Category> byUserAndName;
+
+        Snapshot(Map<Integer, Category> byId, Map<String, Category> byUserAndName) {
+            this.byId = byId;
+            this.byUserAndName = byUserAndName;
+        }
+    }
+
+    private volatile Snapshot snapshot; // null until the data layer loads it
+
+    private CategoryCache() {}
+
+    public static CategoryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Whether the cache holds the table; the data layer loads it before the first lookup
+     */
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Replaces the contents with every row of the categories table.
+     */
+    public void replaceAll(Collection<Category> categories) {
+        Map<Integer, Category> byId = new HashMap<>();
+        Map<String, Category> byUserAndName = new HashMap<>();
+        for (Category category : categories) {
+            byId.put(category.id, category);
+            byUserAndName.put(key(category.userId, category.name), category);
+        }
+        snapshot = new Snapshot(byId, byUserAndName);
+    }
+
+    /**
+     * Drops the contents, e.g. after the database was reset; the next lookup through the data layer reloads it.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * @return The category, or null if the id is unknown or the cache is not loaded
+     */
+    public Category get(int categoryId) {
+        Snapshot local = snapshot;
+        return local != null ? local.byId.get(categoryId) : null;
+    }
+
+    /**
+     * @return The category's name, or "" if unknown
+     */
+    public String nameOf(int categoryId) {
+        Category category = get(categoryId);
+        return category != null ? category.name : "";
+    }
+
+    /**
+     * @return The category's icon, or {@link Category#DEFAULT_ICON} if unknown
+     */
+    public String iconOf(int categoryId) {
+        Category category = get(categoryId);
+        return category != null ? category.icon : Category.DEFAULT_ICON;
+    }
+
+    /**
+     * @return The user's category with this exact name (hidden ones included), or null
+     */
+    public Category find(int userId, String name) {
+        Snapshot local = snapshot;
+        return local != null && name != null ? local.byUserAndName.get(key(userId, name)) : null;
+    }
+
+    /**
+     * @return The user's categories offered in pickers (not hidden), in creation order
+     */
+    public List<Category> visibleFor(int userId) {
+        List<Category> categories = new ArrayList<>();
+        Snapshot local = snapshot;
+        if (local == null) return categories;
+        for (Category category : local.byId.values()) {
+            if (category.userId == userId && !category.hidden) categories.add(category);
+        }
+        Collections.sort(categories, (a, b) -> Integer.compare(a.id, b.id));
+        return categories;
+    }
+
+    private static String key(int userId, String name) {
+        return userId + "\u0000" + name;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.myapplication.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * DateUtils
+ *
+ * Expense dates are stored as an epoch day: the number of days since 1970-01-01 as a plain
+ * calendar date, with no time zone attached. Sorting and range checks are integer comparisons;
+ * text is produced only when a date is displayed.
+ */
+public final class DateUtils {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // Display format used throughout the UI, e.g. "March 3, 2025"
+    private static final ThreadLocal<SimpleDateFormat> DISPLAY_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return utcFormat("MMMM d, yyyy");
+        }
+    };
+
+    // Formats older app versions stored as free text, tried in order
+    private static final ThreadLocal<SimpleDateFormat[]> LEGACY_FORMATS = new ThreadLocal<SimpleDateFormat[]>() {
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            return new SimpleDateFormat[] {
+                utcFormat("MMMM d, yyyy"),
+                utcFormat("MMM d, yyyy"),
+                utcFormat("yyyy-MM-dd"),
+                utcFormat("MM/dd/yyyy")
+            };
+        }
+    };
+
+    private DateUtils() {}
+
+    private static SimpleDateFormat utcFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.getDefault());
+        format.setTimeZone(UTC);
+        format.setLenient(false);
+        return format;
+    }
+
+    /**
+     * Converts a calendar date to an epoch day.
+     *
+     * @param year  Full year, e.g. 2025
+     * @param month 1-12
+     * @param day   1-31
+     */
+    public static long toEpochDay(int year, int month, int day) {
+        // Days-from-civil (proleptic Gregorian), pure integer arithmetic
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return Today's date in the device's time zone, as an epoch day
+     */
+    public static long today() {
+        return fromCalendar(Calendar.getInstance());
+    }
+
+    /**
+     * @return The calendar date of the given Calendar (in its own time zone), as an epoch day
+     */
+    public static long fromCalendar(Calendar calendar) {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * @return A Calendar in the device's time zone set to midnight of the given epoch day
+     */
+    public static Calendar toCalendar(long epochDay) {
+        Calendar utc = Calendar.getInstance(UTC);
+        utc.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+        Calendar local = Calendar.getInstance();
+        local.clear();
+        local.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        return local;
+    }
+
+    /**
+     * @return The first day of the month the given epoch day falls in, as an epoch day
+     */
+    public static long firstDayOfMonth(long epochDay) {
+        return epochDay - (toCalendar(epochDay).get(Calendar.DAY_OF_MONTH) - 1);
+    }
+
+    /**
+     * @return The first day of the month after the one the given epoch day falls in, as an epoch day
+     */
+    public static long firstDayOfNextMonth(long epochDay) {
+        return firstDayOfMonth(firstDayOfMonth(epochDay) + 31); // 31 days on is always within the next month
+    }
+
+    /**
+     * @return The first day of the week the given epoch day falls in, as an epoch day; weeks start
+     * on the locale's first day of the week
+     */
+    public static long firstDayOfWeek(long epochDay) {
+        Calendar calendar = toCalendar(epochDay);
+        return epochDay - (calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek() + 7) % 7;
+    }
+
+    /**
+     * Formats an epoch day for display, e.g. "March 3, 2025".
+     */
+    public static String format(long epochDay) {
+        return DISPLAY_FORMAT.get().format(new Date(epochDay * MILLIS_PER_DAY));
+    }
+
+    /**
+     * Parses a date stored as free text by older versions of the app.
+     * Only used by the one-time migration to epoch days.
+     *
+     * @param text The stored text, e.g. "March 3, 2025" or "Today"
+     * @return The epoch day, or null if the text is empty, "Today", or not in a known format
+     */
+    public static Long parseLegacy(String text) {
+        if (text == null) return null;
+        String trimmed = text.trim();
+        if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("Today")) return null;
+        for (SimpleDateFormat format : LEGACY_FORMATS.get()) {
+            try {
+                Date date = format.parse(trimmed);
+                if (date != null) {
+                    return Math.floorDiv(date.getTime(), MILLIS_PER_DAY);
+                }
+            } catch (ParseException e) {
+                // Try next format
+            }
+        }
+        return null;
+    }
+}
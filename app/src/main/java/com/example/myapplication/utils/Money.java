@@ -0,0 +1,52 @@
+package com.example.myapplication.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Money
+ *
+ * Amounts are held as a long count of minor units (cents) everywhere below the view layer: in the
+ * database, in models and in every total and budget comparison, so sums are exact. Text is produced
+ * only when an amount is displayed, and user input is converted to cents as soon as it is read.
+ */
+public final class Money {
+    private static final int SCALE = 2; // Minor units per major unit, as a power of ten
+
+    private Money() {}
+
+    /**
+     * @return The amount for display, e.g. "$1234.50" (decimal separator of the default locale)
+     */
+    public static String format(long cents) {
+        return "$" + formatNumber(cents);
+    }
+
+    /**
+     * @return The amount without currency sign, e.g. "1234.50" (decimal separator of the default locale)
+     */
+    public static String formatNumber(long cents) {
+        return String.format(Locale.getDefault(), "%.2f", BigDecimal.valueOf(cents, SCALE));
+    }
+
+    /**
+     * @return The amount as {@link #parse(String)} accepts it, e.g. "1234.50", for pre-filling input fields
+     */
+    public static String toInput(long cents) {
+        return BigDecimal.valueOf(cents, SCALE).toPlainString();
+    }
+
+    /**
+     * Converts user input in major units ("12", "12.5", "12.345") to cents, rounding half up.
+     *
+     * @throws NumberFormatException If the text is not a number or does not fit in a long
+     */
+    public static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+}
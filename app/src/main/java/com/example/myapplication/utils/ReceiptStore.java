@@ -0,0 +1,271 @@
+package com.example.myapplication.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * ReceiptStore
+ *
+ * App-private copies of receipt photos. Importing a picked image:
+ *   1. Hashes the source bytes (SHA-256); the hash names the stored files, so picking the same
+ *      photo twice stores it once and the second import does no decoding at all.
+ *   2. Decodes it sampled down, applies its EXIF rotation and scales it so the longer side is at
+ *      most {@link #MAX_DIMENSION} px, then writes it as a JPEG (receipts/&lt;hash&gt;.jpg).
+ *   3. Writes a {@link #THUMBNAIL_SIZE} px thumbnail next to it (receipts/&lt;hash&gt;_thumb.jpg),
+ *      which {@link ThumbnailCache} decodes instead of the full copy for small views.
+ * Expenses store the file:// URI of the copy, so they keep their receipt when the app it was
+ * picked from deletes or revokes the original. Once no expense refers to a copy any more,
+ * {@link #deleteUnreferenced(Set)} removes it together with its thumbnail.
+ *
+ * All methods do file I/O; call them off the main thread.
+ */
+public final class ReceiptStore {
+    private static final String TAG = "ReceiptStore";
+    private static final String DIR = "receipts";
+    private static final String EXTENSION = ".jpg";
+    private static final String THUMBNAIL_SUFFIX = "_thumb" + EXTENSION;
+    public static final int MAX_DIMENSION = 2000; // Longer side of the stored copy; receipt text stays legible
+    public static final int THUMBNAIL_SIZE = 256; // Shorter side of the stored thumbnail
+    private static final int JPEG_QUALITY = 85;
+
+    private static volatile ReceiptStore instance;
+
+    private final ContentResolver resolver;
+    private final File dir;
+    // Hashes handed out by importReceipt() in this process; an expense being edited may hold one unsaved
+    private final Set<String> importedHashes = new HashSet<>();
+
+    private ReceiptStore(Context context) {
+        resolver = context.getContentResolver();
+        dir = new File(context.getFilesDir(), DIR);
+    }
+
+    public static ReceiptStore getInstance(Context context) {
+        ReceiptStore local = instance;
+        if (local == null) {
+            synchronized (ReceiptStore.class) {
+                local = instance;
+                if (local == null) {
+                    local = new ReceiptStore(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Copies a picked image into app-private storage (see class comment).
+     * @param source Content URI returned by the image picker
+     * @return URI string of the stored copy, or null if the image could not be read or written
+     */
+    public synchronized String importReceipt(Uri source) {
+        String hash = hashOf(source);
+        if (hash == null) return null;
+        importedHashes.add(hash);
+
+        File original = new File(dir, hash + EXTENSION);
+        File thumbnail = new File(dir, hash + THUMBNAIL_SUFFIX);
+        if (original.isFile() && thumbnail.isFile()) {
+            Log.d(TAG, "Receipt " + hash + " already stored");
+            return Uri.fromFile(original).toString();
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return null;
+        }
+
+        Bitmap bitmap = decodeBounded(source, MAX_DIMENSION);
+        if (bitmap == null) return null;
+        try {
+            Bitmap small = scaleShorterSide(bitmap, THUMBNAIL_SIZE);
+            boolean written = write(thumbnail, small);
+            if (small != bitmap) small.recycle();
+            // The copy is written last: its presence marks a complete import (see the check above)
+            if (!written || !write(original, bitmap)) return null;
+        } finally {
+            bitmap.recycle();
+        }
+        return Uri.fromFile(original).toString();
+    }
+
+    /**
+     * @return URI string of the stored thumbnail for an imported receipt if it is at least minSizePx on
+     *         its shorter side, otherwise null (e.g. for receipts that predate the store)
+     */
+    public String thumbnailFor(String imageUri, int minSizePx) {
+        if (minSizePx > THUMBNAIL_SIZE || imageUri == null) return null;
+        String prefix = Uri.fromFile(dir).toString() + "/";
+        if (!imageUri.startsWith(prefix) || !imageUri.endsWith(EXTENSION)) return null;
+        String hash = imageUri.substring(prefix.length(), imageUri.length() - EXTENSION.length());
+        File thumbnail = new File(dir, hash + THUMBNAIL_SUFFIX);
+        return thumbnail.isFile() ? Uri.fromFile(thumbnail).toString() : null;
+    }
+
+    /**
+     * Deletes the stored copy and thumbnail of every receipt whose URI is not in referencedUris,
+     * except receipts imported since the process started, which a screen may not have saved yet.
+     * @param referencedUris URIs still saved with an expense, read after the change that may have orphaned one
+     * @return Number of receipts deleted
+     */
+    public synchronized int deleteUnreferenced(Set<String> referencedUris) {
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        int deleted = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(EXTENSION) || name.endsWith(THUMBNAIL_SUFFIX)) continue;
+            String hash = name.substring(0, name.length() - EXTENSION.length());
+            if (importedHashes.contains(hash) || referencedUris.contains(Uri.fromFile(file).toString())) continue;
+            // The copy goes last, as importReceipt() treats it as the mark of a complete import
+            new File(dir, hash + THUMBNAIL_SUFFIX).delete();
+            if (file.delete()) {
+                deleted++;
+            } else {
+                Log.w(TAG, "Cannot delete " + file);
+            }
+        }
+        if (deleted > 0) Log.d(TAG, "Deleted " + deleted + " unreferenced receipts");
+        return deleted;
+    }
+
+    private String hashOf(Uri source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            Log.e(TAG, "SHA-256 unavailable", e);
+            return null;
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = resolver.openInputStream(source)) {
+            if (in == null) return null;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Cannot read " + source + ": " + e.getMessage());
+            return null;
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Decodes at the largest power-of-two sample size that keeps the longer side at or above
+     * maxDimension, so a 12MP photo is never fully decoded, then rotates and scales it down to fit.
+     */
+    private Bitmap decodeBounded(Uri source, int maxDimension) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        int orientation = ExifInterface.ORIENTATION_NORMAL;
+        try (InputStream in = resolver.openInputStream(source)) {
+            if (in == null) return null;
+            BitmapFactory.decodeStream(in, null, bounds);
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Cannot read " + source + ": " + e.getMessage());
+            return null;
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            Log.e(TAG, source + " is not a supported image");
+            return null;
+        }
+        try (InputStream in = resolver.openInputStream(source)) {
+            if (in != null) {
+                orientation = new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                        ExifInterface.ORIENTATION_NORMAL);
+            }
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "No EXIF orientation for " + source + ": " + e.getMessage());
+        }
+
+        int longerSide = Math.max(bounds.outWidth, bounds.outHeight);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (longerSide / (options.inSampleSize * 2) >= maxDimension) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap sampled;
+        try (InputStream in = resolver.openInputStream(source)) {
+            if (in == null) return null;
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException | SecurityException | OutOfMemoryError e) {
+            Log.e(TAG, "Cannot decode " + source + ": " + e);
+            return null;
+        }
+        if (sampled == null) return null;
+
+        Matrix matrix = new Matrix();
+        int sampledLonger = Math.max(sampled.getWidth(), sampled.getHeight());
+        boolean needsScale = sampledLonger > maxDimension;
+        if (needsScale) {
+            float scale = (float) maxDimension / sampledLonger;
+            matrix.postScale(scale, scale);
+        }
+        int degrees = rotationOf(orientation);
+        if (degrees != 0) {
+            matrix.postRotate(degrees);
+        }
+        if (!needsScale && degrees == 0) return sampled;
+        Bitmap result = Bitmap.createBitmap(sampled, 0, 0, sampled.getWidth(), sampled.getHeight(), matrix, true);
+        if (result != sampled) sampled.recycle();
+        return result;
+    }
+
+    private static int rotationOf(int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90: return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180: return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270: return 270;
+            default: return 0;
+        }
+    }
+
+    private static Bitmap scaleShorterSide(Bitmap bitmap, int sizePx) {
+        int shorter = Math.min(bitmap.getWidth(), bitmap.getHeight());
+        if (shorter <= sizePx) return bitmap;
+        float scale = (float) sizePx / shorter;
+        return Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+    }
+
+    // Writes through a temp file so a crash never leaves a truncated file under the final name
+    private static boolean write(File file, Bitmap bitmap) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                throw new IOException("JPEG encoder failed");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + file + ": " + e.getMessage());
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Cannot move " + temp + " to " + file);
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+}
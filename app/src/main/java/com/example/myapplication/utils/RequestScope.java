@@ -0,0 +1,47 @@
+package com.example.myapplication.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RequestScope
+ *
+ * Tracks the asynchronous requests issued by one screen. Each request is registered under a key;
+ * registering a new request under a key cancels the previous one, so only the latest load of a
+ * kind can deliver its result. Call {@link #cancelAll()} when the screen's views are destroyed.
+ *
+ * Main thread only.
+ */
+public final class RequestScope {
+    private final Map<String, AsyncRequest> requests = new HashMap<>();
+
+    /**
+     * Registers a request, cancelling any earlier request with the same key.
+     *
+     * @return The request passed in
+     */
+    public AsyncRequest track(String key, AsyncRequest request) {
+        AsyncRequest previous = requests.put(key, request);
+        if (previous != null && previous != request) {
+            previous.cancel();
+        }
+        return request;
+    }
+
+    /**
+     * Cancels the request registered under a key, if any.
+     */
+    public void cancel(String key) {
+        AsyncRequest request = requests.remove(key);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    public void cancelAll() {
+        for (AsyncRequest request : requests.values()) {
+            request.cancel();
+        }
+        requests.clear();
+    }
+}
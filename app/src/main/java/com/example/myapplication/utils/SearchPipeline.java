@@ -0,0 +1,145 @@
+package com.example.myapplication.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SearchPipeline
+ *
+ * The stage between a search box and the query behind it:
+ * - Keystrokes are coalesced: the search runs once typing pauses for the debounce delay.
+ * - Starting a search cancels the one still in flight, so results never arrive out of order.
+ * - If the new query only extends the previous one ("lun" -> "lunch"), its results are a subset of
+ *   the previous ones, which are filtered in memory instead of querying again. This is skipped
+ *   when the previous result set was cut off at the result limit, or when there is no Matcher.
+ *
+ * The time from the last keystroke to the first frame drawn with its results is logged under
+ * "SearchPipeline".
+ *
+ * Main thread only.
+ *
+ * @param <T> The result item type
+ */
+public final class SearchPipeline<T> {
+    private static final String TAG = "SearchPipeline";
+
+    /**
+     * Runs a search in the background and delivers the matches on the main thread.
+     */
+    public interface Source<T> {
+        AsyncRequest search(String query, Callback<List<T>> callback);
+    }
+
+    /**
+     * Decides in memory whether an item matches a query, with the same semantics as the Source.
+     */
+    public interface Matcher<T> {
+        boolean matches(T item, String query);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long debounceMs;
+    private final int resultLimit;
+    private final Source<T> source;
+    private final Matcher<T> matcher;
+    private final Callback<List<T>> onResults;
+
+    private Runnable pending;
+    private AsyncRequest inFlight;
+    private String lastQuery;     // Query behind lastResults, null if there is nothing to narrow
+    private List<T> lastResults;
+    private long keystrokeNanos;
+
+    /**
+     * @param debounceMs  Quiet time after a keystroke before the search runs
+     * @param resultLimit The most results the Source returns; a full result set is never narrowed
+     * @param source      The search itself
+     * @param matcher     In-memory equivalent of the Source, used for narrowing; null to always query the Source
+     * @param onResults   Receives the results of the latest query
+     */
+    public SearchPipeline(long debounceMs, int resultLimit, Source<T> source, Matcher<T> matcher,
+                          Callback<List<T>> onResults) {
+        this.debounceMs = debounceMs;
+        this.resultLimit = resultLimit;
+        this.source = source;
+        this.matcher = matcher;
+        this.onResults = onResults;
+    }
+
+    /**
+     * Records a keystroke. The search runs once no further keystroke arrives within the debounce delay.
+     */
+    public void setQuery(String query) {
+        keystrokeNanos = System.nanoTime();
+        if (pending != null) handler.removeCallbacks(pending);
+        pending = () -> {
+            pending = null;
+            run(query);
+        };
+        handler.postDelayed(pending, debounceMs);
+    }
+
+    /**
+     * Runs a query right away against the data source, e.g. after the data changed.
+     * Earlier results are discarded rather than narrowed.
+     */
+    public void searchNow(String query) {
+        keystrokeNanos = System.nanoTime();
+        if (pending != null) handler.removeCallbacks(pending);
+        pending = null;
+        lastQuery = null;
+        lastResults = null;
+        run(query);
+    }
+
+    /**
+     * Drops pending and in-flight searches, whose results will not be delivered, and forgets the
+     * previous results so the next query goes to the Source.
+     */
+    public void cancel() {
+        if (pending != null) handler.removeCallbacks(pending);
+        pending = null;
+        if (inFlight != null) inFlight.cancel();
+        inFlight = null;
+        lastQuery = null;
+        lastResults = null;
+    }
+
+    private void run(String query) {
+        if (inFlight != null) inFlight.cancel();
+        inFlight = null;
+
+        if (matcher != null && lastQuery != null && lastResults.size() < resultLimit && query.startsWith(lastQuery)) {
+            List<T> narrowed = new ArrayList<>();
+            for (T item : lastResults) {
+                if (matcher.matches(item, query)) narrowed.add(item);
+            }
+            deliver(query, narrowed, "narrowed");
+            return;
+        }
+        inFlight = source.search(query, results -> {
+            inFlight = null;
+            if (results == null) {
+                // Failed; keep showing the previous results, and query the Source again next time
+                lastQuery = null;
+                lastResults = null;
+                return;
+            }
+            deliver(query, results, "queried");
+        });
+    }
+
+    private void deliver(String query, List<T> results, String how) {
+        lastQuery = query;
+        lastResults = results;
+        onResults.onResult(results);
+        long startNanos = keystrokeNanos;
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                Log.d(TAG, "\"" + query + "\" " + how + ", " + results.size() + " results, keystroke to frame " +
+                        (System.nanoTime() - startNanos) / 1_000_000 + " ms"));
+    }
+}
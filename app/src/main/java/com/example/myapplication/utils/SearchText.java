@@ -0,0 +1,60 @@
+package com.example.myapplication.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * SearchText
+ *
+ * The word-prefix matching used by the search bar, in one place for both sides: the terms sent
+ * to the full-text index, and the in-memory check used to narrow an earlier result set.
+ * Words are folded the way the index's unicode61 tokenizer folds them (lower case, accents removed),
+ * so "cafe" finds "Café" in either path.
+ */
+public final class SearchText {
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchText() {}
+
+    /**
+     * Splits text into folded words; punctuation and FTS operators are dropped.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) return terms;
+        for (String term : SEPARATORS.split(fold(text))) {
+            if (!term.isEmpty()) terms.add(term);
+        }
+        return terms;
+    }
+
+    /**
+     * @return Whether every word of the query is the start of some word in one of the texts
+     */
+    public static boolean matchesAllPrefixes(String query, String... texts) {
+        List<String> words = new ArrayList<>();
+        for (String text : texts) {
+            words.addAll(terms(text));
+        }
+        for (String term : terms(query)) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.myapplication.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ThumbnailCache
+ *
+ * Small, square-ish thumbnails of receipt photos for list rows, so binding a row never decodes a
+ * full-resolution image on the main thread. Two levels:
+ *   1. Memory: an LRU of decoded bitmaps, bounded by their byte size (1/8 of the heap).
+ *   2. Disk: downsampled JPEGs under cacheDir/thumbnails, bounded by total file size; the least
+ *      recently used files are deleted first.
+ * Misses on both levels decode the image through the ContentResolver, sampling it down while
+ * decoding; for receipts imported through {@link ReceiptStore} its stored thumbnail is decoded
+ * instead of the full copy when it is large enough. All disk and decode work runs on the
+ * AppExecutors I/O pool; only memory lookups happen on the caller's thread.
+ *
+ * There is exactly one instance per process (see {@link #getInstance(Context)}).
+ */
+public final class ThumbnailCache {
+    private static final String TAG = "ThumbnailCache";
+    private static final String DISK_DIR = "thumbnails";
+    private static final long DISK_MAX_BYTES = 16L * 1024 * 1024;
+    private static final int JPEG_QUALITY = 85;
+
+    private static volatile ThumbnailCache instance;
+
+    private final ContentResolver resolver;
+    private final ReceiptStore receipts;
+    private final File diskDir;
+    private final LruCache<String, Bitmap> memory;
+    private final Object diskLock = new Object();
+    private long diskBytes = -1; // Sum of the files in diskDir, counted on first disk access
+
+    private final AtomicInteger diskHits = new AtomicInteger();
+    private final AtomicInteger diskMisses = new AtomicInteger();
+    private final AtomicInteger diskEvictions = new AtomicInteger();
+    private final AtomicInteger decodeFailures = new AtomicInteger();
+
+    /**
+     * Snapshot of the cache counters since process start.
+     */
+    public static class Stats {
+        public final int memoryHits;
+        public final int memoryMisses;
+        public final int memoryEvictions;
+        public final int diskHits;
+        public final int diskMisses;
+        public final int diskEvictions;
+        public final int decodeFailures;
+
+        public Stats(int memoryHits, int memoryMisses, int memoryEvictions,
+                     int diskHits, int diskMisses, int diskEvictions, int decodeFailures) {
+            this.memoryHits = memoryHits;
+            this.memoryMisses = memoryMisses;
+            this.memoryEvictions = memoryEvictions;
+            this.diskHits = diskHits;
+            this.diskMisses = diskMisses;
+            this.diskEvictions = diskEvictions;
+            this.decodeFailures = decodeFailures;
+        }
+
+        @Override
+        public String toString() {
+            return "memory " + memoryHits + " hits / " + memoryMisses + " misses / " + memoryEvictions + " evictions, "
+                    + "disk " + diskHits + " hits / " + diskMisses + " misses / " + diskEvictions + " evictions, "
+                    + decodeFailures + " decode failures";
+        }
+    }
+
+    private ThumbnailCache(Context context) {
+        resolver = context.getContentResolver();
+        receipts = ReceiptStore.getInstance(context);
+        diskDir = new File(context.getCacheDir(), DISK_DIR);
+        int memoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+        memory = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    public static ThumbnailCache getInstance(Context context) {
+        ThumbnailCache local = instance;
+        if (local == null) {
+            synchronized (ThumbnailCache.class) {
+                local = instance;
+                if (local == null) {
+                    local = new ThumbnailCache(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Releases memory in response to ComponentCallbacks2.onTrimMemory. Thumbnails on disk are kept.
+     * Does nothing if the cache was never used in this process.
+     */
+    public static void trimInstance(int level) {
+        ThumbnailCache local = instance;
+        if (local == null) return;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            local.memory.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            local.memory.trimToSize(local.memory.maxSize() / 2);
+        }
+        Log.d(TAG, "Trimmed at level " + level + ": " + local.getStats());
+    }
+
+    /**
+     * Looks up a thumbnail in memory only. Cheap enough to call while binding a row.
+     * @param sizePx Length of the shorter side the thumbnail is shown at
+     * @return The thumbnail, or null if it has to be loaded with {@link #load}
+     */
+    public Bitmap getFromMemory(String imageUri, int sizePx) {
+        return memory.get(key(imageUri, sizePx));
+    }
+
+    /**
+     * Loads a thumbnail from disk, or decodes and caches it, on the I/O pool.
+     * Cancel the returned request when the target view is recycled or rebound.
+     * @param callback Receives the thumbnail on the main thread, or null if the image can't be read
+     */
+    public AsyncRequest load(String imageUri, int sizePx, Callback<Bitmap> callback) {
+        return AppExecutors.getInstance().read(() -> loadBlocking(imageUri, sizePx), callback);
+    }
+
+    public Stats getStats() {
+        return new Stats(memory.hitCount(), memory.missCount(), memory.evictionCount(),
+                diskHits.get(), diskMisses.get(), diskEvictions.get(), decodeFailures.get());
+    }
+
+    private Bitmap loadBlocking(String imageUri, int sizePx) {
+        String key = key(imageUri, sizePx);
+        File file = new File(diskDir, fileName(key));
+
+        Bitmap bitmap = readFromDisk(file);
+        if (bitmap != null) {
+            diskHits.incrementAndGet();
+            memory.put(key, bitmap);
+            return bitmap;
+        }
+        diskMisses.incrementAndGet();
+
+        String thumbnail = receipts.thumbnailFor(imageUri, sizePx);
+        bitmap = decodeSampled(thumbnail != null ? thumbnail : imageUri, sizePx);
+        if (bitmap == null) {
+            decodeFailures.incrementAndGet();
+            return null;
+        }
+        memory.put(key, bitmap);
+        writeToDisk(file, bitmap);
+        return bitmap;
+    }
+
+    private Bitmap readFromDisk(File file) {
+        if (!file.isFile()) return null;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        if (bitmap == null) {
+            // Truncated or corrupt entry; drop it so the next load writes a fresh one
+            deleteFromDisk(file);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis()); // Recency for disk eviction
+        return bitmap;
+    }
+
+    /**
+     * Decodes the original image at the smallest power-of-two sample size that still covers
+     * sizePx, then scales it so its shorter side is exactly sizePx.
+     */
+    private Bitmap decodeSampled(String imageUri, int sizePx) {
+        Uri uri = Uri.parse(imageUri);
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return null;
+            BitmapFactory.decodeStream(in, null, bounds);
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Cannot open receipt image " + imageUri + ": " + e.getMessage());
+            return null;
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+        int shorterSide = Math.min(bounds.outWidth, bounds.outHeight);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (shorterSide / (options.inSampleSize * 2) >= sizePx) {
+            options.inSampleSize *= 2;
+        }
+
+        Bitmap sampled;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return null;
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Cannot decode receipt image " + imageUri + ": " + e.getMessage());
+            return null;
+        }
+        if (sampled == null) return null;
+
+        int sampledShorter = Math.min(sampled.getWidth(), sampled.getHeight());
+        if (sampledShorter <= sizePx) return sampled;
+        float scale = (float) sizePx / sampledShorter;
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled,
+                Math.max(1, Math.round(sampled.getWidth() * scale)),
+                Math.max(1, Math.round(sampled.getHeight() * scale)), true);
+        if (scaled != sampled) sampled.recycle();
+        return scaled;
+    }
+
+    private void writeToDisk(File file, Bitmap bitmap) {
+        synchronized (diskLock) {
+            if (!diskDir.isDirectory() && !diskDir.mkdirs()) {
+                Log.w(TAG, "Cannot create " + diskDir);
+                return;
+            }
+            File temp = new File(diskDir, file.getName() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot write thumbnail: " + e.getMessage());
+                temp.delete();
+                return;
+            }
+            long previous = file.length(); // 0 if absent (another thread may have raced us)
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+            diskBytes = currentDiskBytes() - previous + file.length();
+            if (diskBytes > DISK_MAX_BYTES) trimDisk();
+        }
+    }
+
+    private void deleteFromDisk(File file) {
+        synchronized (diskLock) {
+            long length = file.length();
+            if (file.delete() && diskBytes >= 0) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    // Caller holds diskLock
+    private long currentDiskBytes() {
+        if (diskBytes < 0) {
+            long total = 0;
+            File[] files = diskDir.listFiles();
+            if (files != null) {
+                for (File f : files) total += f.length();
+            }
+            diskBytes = total;
+        }
+        return diskBytes;
+    }
+
+    // Caller holds diskLock. Deletes least recently used files until the cache is at 3/4 of its limit,
+    // so a full cache is not trimmed again on every write.
+    private void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long target = DISK_MAX_BYTES * 3 / 4;
+        for (File f : files) {
+            if (diskBytes <= target) break;
+            long length = f.length();
+            if (f.delete()) {
+                diskBytes -= length;
+                diskEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static String key(String imageUri, int sizePx) {
+        return sizePx + ":" + imageUri;
+    }
+
+    // URIs contain characters that are not valid in file names, so entries are named by a digest of the key
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + 4);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.append(".jpg").toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android runtime ships SHA-1; fall back to a hash code rather than fail the load
+            return Integer.toHexString(key.hashCode()) + ".jpg";
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.myapplication.data;
+
+import com.example.myapplication.models.Category;
+import com.example.myapplication.models.Expense;
+import com.example.myapplication.utils.CategoryCache;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM benchmark: the legacy cursor -> JSON string -> JSONArray -> Expense round trip versus
+ * direct mapping with {@link ExpenseRowMapper}, at 1k, 10k and 100k rows.
+ * Both paths must produce the same expenses; at the largest size the row mapper must also be faster.
+ */
+public class CursorMappingBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    public void compareLegacyJsonWithRowMapper() throws Exception {
+        for (int size : SIZES) {
+            List<Object[]> rows = syntheticRows(size);
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                legacyJsonRoundTrip(cursor(rows));
+                ExpenseRowMapper.INSTANCE.mapAll(cursor(rows));
+            }
+
+            long legacyNanos = 0, mapperNanos = 0;
+            List<Expense> legacy = null, mapped = null;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                legacy = legacyJsonRoundTrip(cursor(rows));
+                legacyNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                mapped = ExpenseRowMapper.INSTANCE.mapAll(cursor(rows));
+                mapperNanos += System.nanoTime() - start;
+            }
+
+            assertEquals(size, mapped.size());
+            assertEquals(size, legacy.size());
+            for (int i = 0; i < size; i += 997) {
+                assertEquals(legacy.get(i).id, mapped.get(i).id);
+                assertEquals(legacy.get(i).amountCents, mapped.get(i).amountCents);
+                assertEquals(legacy.get(i).note, mapped.get(i).note);
+            }
+            // Small sizes are too noisy to compare; 100k rows over five rounds is not
+            if (size == SIZES[SIZES.length - 1]) {
+                assertTrue(String.format(Locale.US, "row mapper %.2f ms vs json round trip %.2f ms",
+                        mapperNanos / 1e6 / MEASURED_ROUNDS, legacyNanos / 1e6 / MEASURED_ROUNDS),
+                    mapperNanos < legacyNanos);
+            }
+        }
+    }
+
+    @Test
+    public void rowMapperKeepsCategoriesThatBrokeTheJsonPath() {
+        CategoryCache.getInstance().replaceAll(Collections.singletonList(
+            new Category(7, 1, "Mom's \"gift\" fund", Category.DEFAULT_ICON, Category.DEFAULT_COLOR, true)));
+        try {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[]{1, 7, 1250L, null, 20150L, null, null});
+            List<Expense> mapped = ExpenseRowMapper.INSTANCE.mapAll(cursor(rows));
+            assertEquals(7, mapped.get(0).categoryId);
+            assertEquals("Mom's \"gift\" fund", mapped.get(0).category);
+            assertEquals("", mapped.get(0).note);
+            assertEquals(20150L, mapped.get(0).epochDay);
+            assertNull(mapped.get(0).imageUri);
+        } finally {
+            CategoryCache.getInstance().invalidate();
+        }
+    }
+
+    @Test
+    public void rowMapperParsesDatesNotYetBackfilled() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1, 1, 300L, "n", null, null, "March 3, 2025"});
+        assertEquals(20150L, ExpenseRowMapper.INSTANCE.mapAll(cursor(rows)).get(0).epochDay);
+    }
+
+    private static InMemoryCursor cursor(List<Object[]> rows) {
+        return new InMemoryCursor(ExpenseRowMapper.PROJECTION, rows);
+    }
+
+    private static List<Object[]> syntheticRows(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = count; i > 0; i--) {
+            rows.add(new Object[]{
+                i,
+                i % 6 + 1, // One of the six default category ids
+                (long) (i % 5000) + 100,
+                "Lunch with team #" + i,
+                20150L + i % 28,
+                i % 10 == 0 ? "content://media/external/images/media/" + i : null,
+                null
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * Replica of the removed DatabaseHelper.getExpenses(int) + ExpenseRepository.getExpenses(int) pair.
+     */
+    private static List<Expense> legacyJsonRoundTrip(InMemoryCursor cursor) throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        while (cursor.moveToNext()) {
+            if (json.length() > 1) json.append(",");
+            json.append("{")
+                .append("\"id\":").append(cursor.getInt(0)).append(",")
+                .append("\"categoryId\":").append(cursor.getInt(1)).append(",")
+                .append("\"amount\":").append(cursor.getLong(2)).append(",")
+                .append("\"note\":\"").append(escapeJson(cursor.isNull(3) ? "" : cursor.getString(3))).append("\",")
+                .append("\"date\":").append(cursor.getLong(4)).append(",")
+                .append("\"imageUri\":\"").append(escapeJson(cursor.isNull(5) ? "" : cursor.getString(5))).append("\"")
+                .append("}");
+        }
+        cursor.close();
+        json.append("]");
+
+        List<Expense> expenses = new ArrayList<>();
+        JSONArray jsonArray = new JSONArray(json.toString());
+        for (int i = 0; i < jsonArray.length(); i++) {
+            JSONObject obj = jsonArray.getJSONObject(i);
+            expenses.add(new Expense(
+                obj.getInt("id"),
+                obj.getInt("categoryId"),
+                "",
+                obj.getLong("amount"),
+                obj.optString("note", ""),
+                obj.optLong("date"),
+                obj.optString("imageUri", null)
+            ));
+        }
+        return expenses;
+    }
+
+    private static String escapeJson(String str) {
+        return str.replace("\\", "\\\\")
+                  .replace("\"", "\\\"")
+                  .replace("\n", "\\n")
+                  .replace("\r", "\\r")
+                  .replace("\t", "\\t");
+    }
+}
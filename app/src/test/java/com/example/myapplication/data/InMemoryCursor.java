@@ -0,0 +1,110 @@
+package com.example.myapplication.data;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.net.Uri;
+import android.os.Bundle;
+import java.util.List;
+
+/**
+ * Minimal read-only Cursor over in-memory rows, so mapping code can be exercised on the JVM
+ * without the Android runtime (android.jar's own cursor classes are stubs in local tests).
+ */
+class InMemoryCursor implements Cursor {
+    private final String[] columns;
+    private final List<Object[]> rows;
+    private int position = -1;
+    private boolean closed;
+
+    InMemoryCursor(String[] columns, List<Object[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    private Object value(int column) {
+        return rows.get(position)[column];
+    }
+
+    @Override public int getCount() { return rows.size(); }
+    @Override public int getPosition() { return position; }
+    @Override public boolean move(int offset) { return moveToPosition(position + offset); }
+
+    @Override
+    public boolean moveToPosition(int newPosition) {
+        if (newPosition < -1) newPosition = -1;
+        if (newPosition > rows.size()) newPosition = rows.size();
+        position = newPosition;
+        return position >= 0 && position < rows.size();
+    }
+
+    @Override public boolean moveToFirst() { return moveToPosition(0); }
+    @Override public boolean moveToLast() { return moveToPosition(rows.size() - 1); }
+    @Override public boolean moveToNext() { return moveToPosition(position + 1); }
+    @Override public boolean moveToPrevious() { return moveToPosition(position - 1); }
+    @Override public boolean isFirst() { return position == 0 && !rows.isEmpty(); }
+    @Override public boolean isLast() { return position == rows.size() - 1 && !rows.isEmpty(); }
+    @Override public boolean isBeforeFirst() { return rows.isEmpty() || position == -1; }
+    @Override public boolean isAfterLast() { return rows.isEmpty() || position == rows.size(); }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(columnName)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        return index;
+    }
+
+    @Override public String getColumnName(int columnIndex) { return columns[columnIndex]; }
+    @Override public String[] getColumnNames() { return columns.clone(); }
+    @Override public int getColumnCount() { return columns.length; }
+    @Override public byte[] getBlob(int columnIndex) { return (byte[]) value(columnIndex); }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = value(columnIndex);
+        return value != null ? value.toString() : null;
+    }
+
+    @Override public void copyStringToBuffer(int columnIndex, CharArrayBuffer buffer) { throw new UnsupportedOperationException(); }
+    @Override public short getShort(int columnIndex) { return ((Number) value(columnIndex)).shortValue(); }
+    @Override public int getInt(int columnIndex) { return ((Number) value(columnIndex)).intValue(); }
+    @Override public long getLong(int columnIndex) { return ((Number) value(columnIndex)).longValue(); }
+    @Override public float getFloat(int columnIndex) { return ((Number) value(columnIndex)).floatValue(); }
+    @Override public double getDouble(int columnIndex) { return ((Number) value(columnIndex)).doubleValue(); }
+
+    @Override
+    public int getType(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) return FIELD_TYPE_NULL;
+        if (value instanceof Double || value instanceof Float) return FIELD_TYPE_FLOAT;
+        if (value instanceof Number) return FIELD_TYPE_INTEGER;
+        if (value instanceof byte[]) return FIELD_TYPE_BLOB;
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override public boolean isNull(int columnIndex) { return value(columnIndex) == null; }
+    @Override public void deactivate() {}
+    @Override public boolean requery() { return false; }
+    @Override public void close() { closed = true; }
+    @Override public boolean isClosed() { return closed; }
+    @Override public void registerContentObserver(ContentObserver observer) {}
+    @Override public void unregisterContentObserver(ContentObserver observer) {}
+    @Override public void registerDataSetObserver(DataSetObserver observer) {}
+    @Override public void unregisterDataSetObserver(DataSetObserver observer) {}
+    @Override public void setNotificationUri(ContentResolver cr, Uri uri) {}
+    @Override public Uri getNotificationUri() { return null; }
+    @Override public boolean getWantsAllOnMoveCalls() { return false; }
+    @Override public void setExtras(Bundle extras) {}
+    @Override public Bundle getExtras() { return null; }
+    @Override public Bundle respond(Bundle extras) { return null; }
+}